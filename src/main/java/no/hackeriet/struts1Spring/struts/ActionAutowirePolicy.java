@@ -0,0 +1,127 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+
+/**
+ * Autowire mode and dependency check for the Actions of a single Struts
+ * mapping, overriding the settings of the Struts ActionServlet through
+ * {@code <set-property>} elements of the mapping:
+ *
+ * <pre class="code">
+ * &lt;action path="/hot" type="myapp.HotAction"&gt;
+ * &lt;set-property key="spring.autowire" value="no"/&gt;
+ * &lt;/action&gt;
+ * &lt;action path="/legacy" type="myapp.LegacyAction"&gt;
+ * &lt;set-property key="spring.autowire" value="byName"/&gt;
+ * &lt;set-property key="spring.dependencyCheck" value="true"/&gt;
+ * &lt;/action&gt;</pre>
+ *
+ * Struts shares a single Action instance between all mappings of the same
+ * type, and each instance gets wired once: the policy of the mapping that
+ * first creates the instance applies.
+ *
+ * @see DelegatingActionUtils#determineAutowirePolicies
+ * @see AutowiringRequestProcessor
+ * @see AutowiringTilesRequestProcessor
+ * @since 1.0.1
+ */
+public final class ActionAutowirePolicy {
+
+    private final int autowireMode;
+
+    private final boolean annotationInjection;
+
+    private final boolean dependencyCheck;
+
+
+    /**
+     * Create a new ActionAutowirePolicy.
+     *
+     * @param autowireMode        {@link AutowireCapableBeanFactory#AUTOWIRE_NO},
+     *                            {@link AutowireCapableBeanFactory#AUTOWIRE_BY_NAME}
+     *                            or {@link AutowireCapableBeanFactory#AUTOWIRE_BY_TYPE}
+     * @param annotationInjection whether to inject annotated fields and methods
+     * @param dependencyCheck     whether to enforce a dependency check
+     */
+    public ActionAutowirePolicy(int autowireMode, boolean annotationInjection, boolean dependencyCheck) {
+        this.autowireMode = autowireMode;
+        this.annotationInjection = annotationInjection;
+        this.dependencyCheck = dependencyCheck;
+    }
+
+
+    /**
+     * Return the autowire mode for setter injection,
+     * {@code AUTOWIRE_NO} for annotation-driven injection or no wiring at all.
+     * @return the autowire mode
+     */
+    public int getAutowireMode() {
+        return this.autowireMode;
+    }
+
+    /**
+     * Return whether to inject annotated fields and methods.
+     * @return whether to inject annotated fields and methods
+     */
+    public boolean isAnnotationInjection() {
+        return this.annotationInjection;
+    }
+
+    /**
+     * Return whether to enforce a dependency check.
+     * @return whether to enforce a dependency check
+     */
+    public boolean isDependencyCheck() {
+        return this.dependencyCheck;
+    }
+
+    /**
+     * Return whether Actions get wired at all under this policy.
+     * @return {@code false} if wiring is switched off
+     */
+    public boolean isAutowire() {
+        return (this.annotationInjection || this.autowireMode != AutowireCapableBeanFactory.AUTOWIRE_NO);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof ActionAutowirePolicy)) {
+            return false;
+        }
+        ActionAutowirePolicy otherPolicy = (ActionAutowirePolicy) other;
+        return (this.autowireMode == otherPolicy.autowireMode &&
+                this.annotationInjection == otherPolicy.annotationInjection &&
+                this.dependencyCheck == otherPolicy.dependencyCheck);
+    }
+
+    @Override
+    public int hashCode() {
+        return (this.autowireMode * 31 + (this.annotationInjection ? 2 : 0) + (this.dependencyCheck ? 1 : 0));
+    }
+
+    @Override
+    public String toString() {
+        return "ActionAutowirePolicy: autowireMode=" + this.autowireMode + ", annotationInjection=" +
+                this.annotationInjection + ", dependencyCheck=" + this.dependencyCheck;
+    }
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import org.apache.struts.config.ActionConfig;
+
+/**
+ * Strategy interface for determining the name of the Spring-managed
+ * Struts Action bean that an Action mapping delegates to.
+ *
+ * <p>The delegating request processors evaluate the configured strategy
+ * once per mapping when they get initialized, and DelegatingActionProxy
+ * once per mapping on first use; implementations do not need to be fast.
+ * A custom strategy can be specified through the "actionBeanNameResolver"
+ * init-param of the Struts ActionServlet, as fully qualified class name.
+ *
+ * @see DefaultActionBeanNameResolver
+ * @see PropertyActionBeanNameResolver
+ * @see ClassNameActionBeanNameResolver
+ * @see AnnotationActionBeanNameResolver
+ * @see DelegatingActionUtils#PARAM_ACTION_BEAN_NAME_RESOLVER
+ * @since 1.0.1
+ */
+public interface ActionBeanNameResolver {
+
+    /**
+     * Determine the name of the Action bean for the given mapping.
+     *
+     * @param actionConfig the Struts ActionConfig, usually an ActionMapping
+     * @return the name of the Action bean (never {@code null})
+     */
+    String determineActionBeanName(ActionConfig actionConfig);
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import org.apache.struts.action.Action;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.Scope;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Resolved reference to a Spring-managed Struts {@link Action} bean.
+ *
+ * <p>Singleton beans are resolved once, when the delegate is created, and
+ * handed out as-is from then on. Beans of any other scope are looked up in
+ * the bean factory on each call, so that their scope semantics are preserved.
+ * Beans in the {@link PooledActionScope "pooled" scope} are returned to their
+ * pool through {@link #releaseAction} once the request has been handled.
+ *
+ * <p>Used by the delegating request processors to hold the result of
+ * resolving an {@code ActionMapping} to its {@code Action} bean.
+ *
+ * @see DelegatingActionUtils#buildActionDelegateTable
+ * @see DelegatingRequestProcessor
+ * @see DelegatingTilesRequestProcessor
+ * @since 1.0.1
+ */
+public abstract class ActionDelegate {
+
+    private final String beanName;
+
+
+    /**
+     * Create a new ActionDelegate for the given bean name.
+     *
+     * @param beanName the name of the Action bean
+     */
+    protected ActionDelegate(String beanName) {
+        this.beanName = beanName;
+    }
+
+    /**
+     * Create an ActionDelegate for the given bean, resolving it right away
+     * if it is a singleton, or taking instances from the {@link PooledActionScope}
+     * if the bean is defined in that scope of the given bean factory.
+     *
+     * @param beanFactory the bean factory that holds the Action bean
+     * @param beanName    the name of the Action bean
+     * @return the ActionDelegate
+     * @throws BeansException if the bean could not be resolved
+     */
+    public static ActionDelegate forBean(BeanFactory beanFactory, String beanName) throws BeansException {
+        if (beanFactory.isSingleton(beanName)) {
+            return new SingletonActionDelegate(beanName, beanFactory.getBean(beanName, Action.class));
+        }
+        PooledActionScope pooledActionScope = findPooledActionScope(beanFactory, beanName);
+        if (pooledActionScope != null) {
+            return new PooledActionDelegate(beanName, beanFactory, pooledActionScope);
+        }
+        return new LookupActionDelegate(beanName, beanFactory);
+    }
+
+    static PooledActionScope findPooledActionScope(BeanFactory beanFactory, String beanName) {
+        if (beanFactory instanceof ConfigurableApplicationContext) {
+            beanFactory = ((ConfigurableApplicationContext) beanFactory).getBeanFactory();
+        }
+        if (!(beanFactory instanceof ConfigurableListableBeanFactory)) {
+            return null;
+        }
+        ConfigurableListableBeanFactory clbf = (ConfigurableListableBeanFactory) beanFactory;
+        if (!clbf.containsBeanDefinition(beanName) ||
+                !PooledActionScope.SCOPE_NAME.equals(clbf.getMergedBeanDefinition(beanName).getScope())) {
+            return null;
+        }
+        Scope scope = clbf.getRegisteredScope(PooledActionScope.SCOPE_NAME);
+        return (scope instanceof PooledActionScope ? (PooledActionScope) scope : null);
+    }
+
+
+    /**
+     * Return the name of the Action bean.
+     * @return the name of the Action bean
+     */
+    public final String getBeanName() {
+        return this.beanName;
+    }
+
+    /**
+     * Return the Action instance to use for the current request.
+     *
+     * @return the Action instance
+     * @throws BeansException if the bean could not be obtained
+     */
+    public abstract Action getAction() throws BeansException;
+
+    /**
+     * Signal that the given instance, obtained from {@link #getAction},
+     * is no longer in use for the current request.
+     * <p>The default implementation is empty; pooled delegates return
+     * the instance to the pool.
+     *
+     * @param action the Action instance
+     */
+    public void releaseAction(Action action) {
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " for bean '" + this.beanName + "'";
+    }
+
+
+    /**
+     * ActionDelegate for a singleton bean, holding the resolved instance.
+     */
+    private static class SingletonActionDelegate extends ActionDelegate {
+
+        private final Action action;
+
+        SingletonActionDelegate(String beanName, Action action) {
+            super(beanName);
+            this.action = action;
+        }
+
+        @Override
+        public Action getAction() {
+            return this.action;
+        }
+    }
+
+
+    /**
+     * ActionDelegate for a non-singleton bean, obtaining a fresh
+     * instance from the bean factory on every call.
+     */
+    private static class LookupActionDelegate extends ActionDelegate {
+
+        private final BeanFactory beanFactory;
+
+        LookupActionDelegate(String beanName, BeanFactory beanFactory) {
+            super(beanName);
+            this.beanFactory = beanFactory;
+        }
+
+        @Override
+        public Action getAction() throws BeansException {
+            return this.beanFactory.getBean(getBeanName(), Action.class);
+        }
+    }
+
+
+    /**
+     * ActionDelegate for a bean in the "pooled" scope, obtaining instances
+     * from the bean factory and returning them to the scope when released.
+     */
+    private static class PooledActionDelegate extends LookupActionDelegate {
+
+        private final PooledActionScope pooledActionScope;
+
+        PooledActionDelegate(String beanName, BeanFactory beanFactory, PooledActionScope pooledActionScope) {
+            super(beanName, beanFactory);
+            this.pooledActionScope = pooledActionScope;
+        }
+
+        @Override
+        public void releaseAction(Action action) {
+            this.pooledActionScope.release(getBeanName(), action);
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import org.apache.struts.action.Action;
+import org.apache.struts.action.ActionMapping;
+import org.apache.struts.config.ActionConfig;
+import org.springframework.beans.BeansException;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ApplicationContextEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Lazily populated cache of {@link ActionDelegate ActionDelegates} per
+ * Struts {@link ActionMapping}, including the negative result for mappings
+ * that do not correspond to a Spring-managed {@code Action} bean.
+ *
+ * <p>Registered as {@link ApplicationListener} with the context that holds
+ * the {@code Action} beans, the cache discards all entries as soon as that
+ * context gets refreshed or closed, so that mappings are resolved against
+ * the current bean definitions again.
+ *
+ * @see DelegatingRequestProcessor
+ * @see DelegatingTilesRequestProcessor
+ * @see DelegatingActionProxy
+ * @since 1.0.1
+ */
+public class ActionDelegateCache implements ApplicationListener<ApplicationContextEvent> {
+
+    /**
+     * Marker for mappings without a corresponding Action bean
+     */
+    private static final ActionDelegate NO_DELEGATE = new ActionDelegate(null) {
+        @Override
+        public Action getAction() {
+            return null;
+        }
+    };
+
+
+    private volatile ConcurrentMap<ActionConfig, ActionDelegate> delegates = new ConcurrentHashMap<>();
+
+
+    /**
+     * Return the ActionDelegate for the given mapping, resolving and caching
+     * it through the given resolver on first access.
+     *
+     * @param mapping  the Struts ActionMapping
+     * @param resolver the resolver to call for mappings not cached yet,
+     *                 returning {@code null} if there is no Action bean for a mapping
+     * @return the ActionDelegate, or {@code null} if there is no Action bean for the mapping
+     * @throws BeansException if thrown by the resolver
+     */
+    public ActionDelegate getActionDelegate(
+            ActionMapping mapping, Function<ActionMapping, ActionDelegate> resolver) throws BeansException {
+
+        // Entries resolved concurrently with a clear() end up in the discarded map.
+        ConcurrentMap<ActionConfig, ActionDelegate> delegates = this.delegates;
+        ActionDelegate delegate = delegates.get(mapping);
+        if (delegate == null) {
+            delegate = resolver.apply(mapping);
+            if (delegate == null) {
+                delegate = NO_DELEGATE;
+            }
+            ActionDelegate existing = delegates.putIfAbsent(mapping, delegate);
+            if (existing != null) {
+                delegate = existing;
+            }
+        }
+        return (delegate != NO_DELEGATE ? delegate : null);
+    }
+
+    /**
+     * Discard all cached entries.
+     */
+    public void clear() {
+        this.delegates = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Discard all cached entries when the observed context gets refreshed or closed.
+     */
+    @Override
+    public void onApplicationEvent(ApplicationContextEvent event) {
+        if (event instanceof ContextRefreshedEvent || event instanceof ContextClosedEvent) {
+            clear();
+        }
+    }
+
+}
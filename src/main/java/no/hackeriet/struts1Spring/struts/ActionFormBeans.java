@@ -0,0 +1,271 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.struts.action.ActionForm;
+import org.apache.struts.action.ActionMapping;
+import org.apache.struts.action.ActionServlet;
+import org.apache.struts.config.FormBeanConfig;
+import org.apache.struts.config.ModuleConfig;
+import org.springframework.beans.BeanInstantiationException;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Table of the form beans of a Struts module, built once on initialization,
+ * that the request processors use to obtain ActionForms instead of Struts'
+ * reflective per-request instantiation.
+ *
+ * <p>A form bean gets obtained from the {@link BeanFactory} if that contains
+ * a non-singleton {@link ActionForm} bean named like the form bean, prefixed
+ * with the module prefix for modules other than the default module. This
+ * allows for configuring forms with collaborators, such as a
+ * {@link org.springframework.validation.Validator} or a
+ * {@link org.springframework.context.MessageSource}:
+ *
+ * <pre class="code">
+ * &lt;bean name="loginForm" class="myapp.LoginForm" scope="prototype"&gt;
+ * &lt;property name="..."&gt;...&lt;/property&gt;
+ * &lt;/bean&gt;</pre>
+ *
+ * Other form beans of a concrete ActionForm class get instantiated through
+ * a constructor resolved on initialization, without loading the class per
+ * request. Dynamic forms and forms wrapped in a
+ * {@link org.apache.struts.validator.BeanValidatorForm} are left to Struts.
+ *
+ * <p>Request-scoped form beans in {@link PooledActionScope "pooled"} scope get
+ * returned to their pool once the request processor is done with the request;
+ * such forms should implement {@link ResettableAction} to clear their state.
+ * Session-scoped forms are never returned.
+ *
+ * @see DelegatingActionUtils#PARAM_MANAGED_FORMS
+ * @see DelegatingRequestProcessor
+ * @see AutowiringRequestProcessor
+ * @since 1.0.1
+ */
+public class ActionFormBeans {
+
+    private static final String POOLED_FORMS_ATTRIBUTE = ActionFormBeans.class.getName() + ".POOLED_FORMS";
+
+    private static final Log logger = LogFactory.getLog(ActionFormBeans.class);
+
+
+    private final BeanFactory beanFactory;
+
+    private final ActionServlet actionServlet;
+
+    private final Map<String, FormBeanEntry> formBeans;
+
+
+    /**
+     * Build the table for all form beans of the given module.
+     *
+     * @param beanFactory   the bean factory to obtain form beans from
+     * @param actionServlet the Struts ActionServlet to associate forms with
+     * @param moduleConfig  the Struts ModuleConfig
+     * @throws BeansException if a form bean type could not be determined
+     */
+    public ActionFormBeans(BeanFactory beanFactory, ActionServlet actionServlet, ModuleConfig moduleConfig)
+            throws BeansException {
+
+        this.beanFactory = beanFactory;
+        this.actionServlet = actionServlet;
+        Map<String, FormBeanEntry> formBeans = new HashMap<>();
+        for (FormBeanConfig config : moduleConfig.findFormBeanConfigs()) {
+            FormBeanEntry entry = buildFormBeanEntry(config, determineFormBeanName(config, moduleConfig));
+            if (entry != null) {
+                formBeans.put(config.getName(), entry);
+            }
+        }
+        this.formBeans = formBeans;
+    }
+
+    /**
+     * Determine the name of the bean for the given form bean:
+     * the form bean name, prefixed with the module prefix and a slash
+     * for modules other than the default module.
+     *
+     * @param config       the Struts FormBeanConfig
+     * @param moduleConfig the Struts ModuleConfig
+     * @return the bean name
+     */
+    protected String determineFormBeanName(FormBeanConfig config, ModuleConfig moduleConfig) {
+        String prefix = moduleConfig.getPrefix();
+        return (prefix == null || prefix.isEmpty() ? config.getName() : prefix + "/" + config.getName());
+    }
+
+    private FormBeanEntry buildFormBeanEntry(FormBeanConfig config, String beanName) {
+        if (this.beanFactory.containsBean(beanName) &&
+                this.beanFactory.isTypeMatch(beanName, ActionForm.class)) {
+            if (this.beanFactory.isSingleton(beanName)) {
+                logger.warn("Ignoring singleton bean '" + beanName + "' for form bean '" + config.getName() +
+                        "': ActionForms hold request state and need prototype or pooled scope");
+                return null;
+            }
+            Class<?> beanType = this.beanFactory.getType(beanName);
+            PooledActionScope pooledScope = ActionDelegate.findPooledActionScope(this.beanFactory, beanName);
+            return new FormBeanEntry(beanType != null ? beanType : ActionForm.class, beanName, pooledScope, null);
+        }
+        if (config.getDynamic() || config.getType() == null) {
+            return null;
+        }
+        Class<?> formClass;
+        try {
+            formClass = ClassUtils.forName(config.getType(), ClassUtils.getDefaultClassLoader());
+        } catch (ClassNotFoundException | LinkageError ex) {
+            logger.debug("Leaving form bean '" + config.getName() + "' to Struts: " + ex);
+            return null;
+        }
+        if (!ActionForm.class.isAssignableFrom(formClass) || Modifier.isAbstract(formClass.getModifiers())) {
+            return null;
+        }
+        Constructor<?> constructor = ClassUtils.getConstructorIfAvailable(formClass);
+        if (constructor == null) {
+            return null;
+        }
+        ReflectionUtils.makeAccessible(constructor);
+        return new FormBeanEntry(formClass, null, null, constructor);
+    }
+
+    /**
+     * Obtain the ActionForm for the given mapping like Struts'
+     * {@code RequestProcessor.processActionForm} does: reusing a compatible
+     * instance in the mapping's scope, or storing a new instance there.
+     *
+     * @param request the current HTTP request
+     * @param mapping the Struts ActionMapping
+     * @return the ActionForm, or {@code null} if the form bean is not handled
+     * by this table
+     * @throws BeansException if the form bean could not be obtained
+     */
+    public ActionForm processActionForm(HttpServletRequest request, ActionMapping mapping) throws BeansException {
+        String attribute = mapping.getAttribute();
+        FormBeanEntry entry = (attribute != null ? this.formBeans.get(mapping.getName()) : null);
+        if (entry == null) {
+            return null;
+        }
+        boolean requestScope = "request".equals(mapping.getScope());
+        HttpSession session = (requestScope ? null : request.getSession());
+        Object existing = (requestScope ? request.getAttribute(attribute) : session.getAttribute(attribute));
+        if (entry.formType.isInstance(existing)) {
+            return (ActionForm) existing;
+        }
+        ActionForm form = entry.createActionForm(this.beanFactory);
+        form.setServlet(this.actionServlet);
+        if (requestScope) {
+            request.setAttribute(attribute, form);
+            if (entry.pooledScope != null) {
+                registerPooledForm(request, entry, form);
+            }
+        } else {
+            session.setAttribute(attribute, form);
+        }
+        return form;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void registerPooledForm(HttpServletRequest request, FormBeanEntry entry, ActionForm form) {
+        List<PooledForm> pooledForms = (List<PooledForm>) request.getAttribute(POOLED_FORMS_ATTRIBUTE);
+        if (pooledForms == null) {
+            pooledForms = new ArrayList<>(1);
+            request.setAttribute(POOLED_FORMS_ATTRIBUTE, pooledForms);
+        }
+        pooledForms.add(new PooledForm(entry, form));
+    }
+
+    /**
+     * Return the pooled forms obtained for the given request to their pools.
+     *
+     * @param request the current HTTP request
+     */
+    @SuppressWarnings("unchecked")
+    public void releaseActionForms(HttpServletRequest request) {
+        List<PooledForm> pooledForms = (List<PooledForm>) request.getAttribute(POOLED_FORMS_ATTRIBUTE);
+        if (pooledForms == null) {
+            return;
+        }
+        request.removeAttribute(POOLED_FORMS_ATTRIBUTE);
+        for (PooledForm pooledForm : pooledForms) {
+            pooledForm.entry.pooledScope.release(pooledForm.entry.beanName, pooledForm.form);
+        }
+    }
+
+
+    /**
+     * Creation metadata of a single form bean: either a bean name,
+     * or a constructor of a plain ActionForm class.
+     */
+    private static class FormBeanEntry {
+
+        private final Class<?> formType;
+
+        private final String beanName;
+
+        private final PooledActionScope pooledScope;
+
+        private final Constructor<?> constructor;
+
+        FormBeanEntry(Class<?> formType, String beanName, PooledActionScope pooledScope,
+                      Constructor<?> constructor) {
+            this.formType = formType;
+            this.beanName = beanName;
+            this.pooledScope = pooledScope;
+            this.constructor = constructor;
+        }
+
+        ActionForm createActionForm(BeanFactory beanFactory) {
+            if (this.beanName != null) {
+                return beanFactory.getBean(this.beanName, ActionForm.class);
+            }
+            try {
+                return (ActionForm) this.constructor.newInstance();
+            } catch (ReflectiveOperationException ex) {
+                throw new BeanInstantiationException(this.formType, "Could not instantiate ActionForm", ex);
+            }
+        }
+    }
+
+
+    /**
+     * A pooled form obtained for the current request.
+     */
+    private static class PooledForm {
+
+        private final FormBeanEntry entry;
+
+        private final ActionForm form;
+
+        PooledForm(FormBeanEntry entry, ActionForm form) {
+            this.entry = entry;
+            this.form = form;
+        }
+    }
+
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.struts.action.ActionServlet;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.Aware;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.UnsatisfiedDependencyException;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.DependencyDescriptor;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ApplicationContextEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.MethodParameter;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ReflectionUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cache of per-class injection plans for autowiring Struts Actions by name
+ * or by type, as an alternative to calling
+ * {@link AutowireCapableBeanFactory#autowireBeanProperties} for every instance.
+ *
+ * <p>The plan of an Action class gets built on first use: it lists the
+ * properties to inject, each with the bean name resolved for it or, for
+ * dependencies that do not resolve to a single bean (such as collections),
+ * the dependency descriptor to resolve per injection. Setters are invoked
+ * through cached {@link MethodHandle MethodHandles}. Bean references are
+ * still obtained from the bean factory per injection, so that the scope
+ * of the referenced beans is respected.
+ *
+ * <p>Properties get selected like Spring's autowiring does: writable
+ * properties of non-simple types, excluding ActionServlet properties and
+ * setters defined by {@link Aware} interfaces. Unlike
+ * {@code autowireBeanProperties}, injection plans do not apply
+ * {@link org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor
+ * InstantiationAwareBeanPostProcessors}.
+ *
+ * <p>Registered as {@link ApplicationListener} with the context that provides
+ * the beans, the plans get discarded when that context is refreshed or closed.
+ *
+ * @see DelegatingActionUtils#PARAM_INJECTION_PLANS
+ * @see AutowiringRequestProcessor
+ * @see AutowiringTilesRequestProcessor
+ * @since 1.0.1
+ */
+public class ActionInjectionPlans implements ApplicationListener<ApplicationContextEvent> {
+
+    private static final Log logger = LogFactory.getLog(ActionInjectionPlans.class);
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+
+    private final ConfigurableListableBeanFactory beanFactory;
+
+    private final int autowireMode;
+
+    private final boolean dependencyCheck;
+
+    private final Map<Class<?>, InjectionPlan> plans = new ConcurrentReferenceHashMap<>();
+
+
+    /**
+     * Create a new ActionInjectionPlans cache.
+     *
+     * @param beanFactory     the bean factory to resolve dependencies against
+     * @param autowireMode    {@link AutowireCapableBeanFactory#AUTOWIRE_BY_NAME}
+     *                        or {@link AutowireCapableBeanFactory#AUTOWIRE_BY_TYPE}
+     * @param dependencyCheck whether all selected properties have to be satisfied
+     */
+    public ActionInjectionPlans(ConfigurableListableBeanFactory beanFactory, int autowireMode,
+                                boolean dependencyCheck) {
+
+        Assert.isTrue(autowireMode == AutowireCapableBeanFactory.AUTOWIRE_BY_NAME ||
+                autowireMode == AutowireCapableBeanFactory.AUTOWIRE_BY_TYPE, "Unsupported autowire mode");
+        this.beanFactory = beanFactory;
+        this.autowireMode = autowireMode;
+        this.dependencyCheck = dependencyCheck;
+    }
+
+
+    /**
+     * Inject the dependencies of the given instance according to the
+     * injection plan of its class, building the plan on first use.
+     *
+     * @param bean the instance to inject
+     * @throws BeansException if a dependency could not be resolved or injected
+     */
+    public void inject(Object bean) throws BeansException {
+        Class<?> beanClass = bean.getClass();
+        InjectionPlan plan = this.plans.get(beanClass);
+        if (plan == null) {
+            plan = buildInjectionPlan(beanClass);
+            this.plans.put(beanClass, plan);
+        }
+        plan.inject(bean, this.beanFactory);
+    }
+
+    /**
+     * Discard all plans when the observed context gets refreshed or closed.
+     */
+    @Override
+    public void onApplicationEvent(ApplicationContextEvent event) {
+        if (event instanceof ContextRefreshedEvent || event instanceof ContextClosedEvent) {
+            this.plans.clear();
+        }
+    }
+
+    private InjectionPlan buildInjectionPlan(Class<?> beanClass) {
+        List<PropertyInjection> injections = new ArrayList<>();
+        for (PropertyDescriptor pd : BeanUtils.getPropertyDescriptors(beanClass)) {
+            Method writeMethod = pd.getWriteMethod();
+            if (writeMethod == null || BeanUtils.isSimpleProperty(pd.getPropertyType()) ||
+                    ActionServlet.class.isAssignableFrom(pd.getPropertyType()) ||
+                    isAwareSetter(writeMethod, beanClass)) {
+                continue;
+            }
+            PropertyInjection injection = (this.autowireMode == AutowireCapableBeanFactory.AUTOWIRE_BY_NAME ?
+                    planByName(pd, writeMethod) : planByType(pd, writeMethod));
+            if (injection != null) {
+                injections.add(injection);
+            } else if (this.dependencyCheck) {
+                throw new UnsatisfiedDependencyException(null, beanClass.getName(), pd.getName(),
+                        "Set this property value or disable dependency checking for this bean");
+            }
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Built injection plan for Action class [" + beanClass.getName() + "] with " +
+                    injections.size() + " properties");
+        }
+        return new InjectionPlan(injections);
+    }
+
+    private PropertyInjection planByName(PropertyDescriptor pd, Method writeMethod) {
+        if (!this.beanFactory.containsBean(pd.getName())) {
+            return null;
+        }
+        return new PropertyInjection(pd.getName(), createSetterHandle(writeMethod), pd.getName(), null);
+    }
+
+    private PropertyInjection planByType(PropertyDescriptor pd, Method writeMethod) {
+        if (Object.class == pd.getPropertyType()) {
+            return null;
+        }
+        DependencyDescriptor descriptor = new DependencyDescriptor(new MethodParameter(writeMethod, 0), false);
+        Set<String> beanNames = new LinkedHashSet<>(2);
+        Object value = this.beanFactory.resolveDependency(descriptor, null, beanNames, null);
+        if (value == null) {
+            return null;
+        }
+        MethodHandle setter = createSetterHandle(writeMethod);
+        if (beanNames.size() == 1) {
+            String beanName = beanNames.iterator().next();
+            if (this.beanFactory.isTypeMatch(beanName, pd.getPropertyType())) {
+                return new PropertyInjection(pd.getName(), setter, beanName, null);
+            }
+        }
+        return new PropertyInjection(pd.getName(), setter, null, descriptor);
+    }
+
+    private static boolean isAwareSetter(Method writeMethod, Class<?> beanClass) {
+        for (Class<?> ifc : ClassUtils.getAllInterfacesForClassAsSet(beanClass)) {
+            if (Aware.class.isAssignableFrom(ifc) &&
+                    ClassUtils.hasMethod(ifc, writeMethod.getName(), writeMethod.getParameterTypes())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static MethodHandle createSetterHandle(Method writeMethod) {
+        ReflectionUtils.makeAccessible(writeMethod);
+        try {
+            return MethodHandles.lookup().unreflect(writeMethod).asType(SETTER_TYPE);
+        } catch (IllegalAccessException ex) {
+            throw new IllegalStateException("Could not access setter " + writeMethod, ex);
+        }
+    }
+
+
+    /**
+     * Properties to inject into the instances of a single class.
+     */
+    private static class InjectionPlan {
+
+        private final PropertyInjection[] injections;
+
+        InjectionPlan(List<PropertyInjection> injections) {
+            this.injections = injections.toArray(new PropertyInjection[0]);
+        }
+
+        void inject(Object bean, ConfigurableListableBeanFactory beanFactory) {
+            for (PropertyInjection injection : this.injections) {
+                injection.inject(bean, beanFactory);
+            }
+        }
+    }
+
+
+    /**
+     * A single property, injected either with a named bean or with
+     * the result of resolving its dependency descriptor.
+     */
+    private static class PropertyInjection {
+
+        private final String propertyName;
+
+        private final MethodHandle setter;
+
+        private final String beanName;
+
+        private final DependencyDescriptor descriptor;
+
+        PropertyInjection(String propertyName, MethodHandle setter, String beanName, DependencyDescriptor descriptor) {
+            this.propertyName = propertyName;
+            this.setter = setter;
+            this.beanName = beanName;
+            this.descriptor = descriptor;
+        }
+
+        void inject(Object bean, ConfigurableListableBeanFactory beanFactory) {
+            Object value = (this.beanName != null ? beanFactory.getBean(this.beanName) :
+                    beanFactory.resolveDependency(this.descriptor, null));
+            if (value == null) {
+                return;
+            }
+            try {
+                this.setter.invokeExact(bean, value);
+            } catch (RuntimeException | Error ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                throw new BeanCreationException(bean.getClass().getName(),
+                        "Could not inject property '" + this.propertyName + "'", ex);
+            }
+        }
+    }
+
+}
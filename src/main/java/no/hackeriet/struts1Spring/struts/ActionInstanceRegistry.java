@@ -0,0 +1,137 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.struts.action.Action;
+import org.apache.struts.action.ActionMapping;
+import org.apache.struts.action.ActionServlet;
+import org.apache.struts.util.RequestUtils;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Concurrent replacement for the synchronized {@code actions} map that
+ * Struts' {@link org.apache.struts.action.RequestProcessor} keeps for the
+ * Action instances it creates itself.
+ *
+ * <p>Existing instances are returned without any locking. Each Action class
+ * is instantiated at most once; concurrent first requests for the same class
+ * wait for that single instantiation only, not for other classes.
+ * Instantiation follows the Struts semantics: the ActionServlet gets passed
+ * to new instances, and a failed instantiation is logged and answered with
+ * an internal server error.
+ *
+ * <p>Used by the Spring request processors when the
+ * "spring.concurrentActionCache" init-param of the Struts ActionServlet
+ * is set to "true".
+ *
+ * @see DelegatingActionUtils#PARAM_CONCURRENT_ACTION_CACHE
+ * @see org.apache.struts.action.RequestProcessor#processActionCreate
+ * @since 1.0.1
+ */
+public class ActionInstanceRegistry {
+
+    private static final Log logger = LogFactory.getLog(ActionInstanceRegistry.class);
+
+    private final ActionServlet actionServlet;
+
+    private final ConcurrentMap<String, Action> actions = new ConcurrentHashMap<>();
+
+
+    /**
+     * Create a new ActionInstanceRegistry for the given servlet.
+     *
+     * @param actionServlet the ActionServlet to pass to created Action instances
+     */
+    public ActionInstanceRegistry(ActionServlet actionServlet) {
+        this.actionServlet = actionServlet;
+    }
+
+
+    /**
+     * Return the Action instance for the type of the given mapping,
+     * creating it if necessary.
+     *
+     * @param mapping  the Struts ActionMapping
+     * @param response the response to send an error to if the Action
+     *                 could not be instantiated
+     * @return the Action instance, or {@code null} if it could not be instantiated
+     * @throws IOException if thrown when sending the error response
+     */
+    public Action getAction(ActionMapping mapping, HttpServletResponse response) throws IOException {
+        String className = mapping.getType();
+        Action action = this.actions.get(className);
+        if (action != null) {
+            return action;
+        }
+        try {
+            return this.actions.computeIfAbsent(className, this::createAction);
+        } catch (ActionInstantiationException ex) {
+            String message = this.actionServlet.getInternal().getMessage("actionCreate", mapping.getPath());
+            logger.error(message, ex.getCause());
+            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, message);
+            return null;
+        }
+    }
+
+    private Action createAction(String className) {
+        if (logger.isTraceEnabled()) {
+            logger.trace("Creating new Action instance of class [" + className + "]");
+        }
+        Action action;
+        try {
+            action = (Action) RequestUtils.applicationInstance(className);
+        } catch (Exception ex) {
+            throw new ActionInstantiationException(ex);
+        }
+        if (action.getServlet() == null) {
+            action.setServlet(this.actionServlet);
+        }
+        return action;
+    }
+
+    /**
+     * Release all Action instances, passing {@code null} as their servlet
+     * just like Struts does on shutdown.
+     *
+     * @see org.apache.struts.action.RequestProcessor#destroy
+     */
+    public void destroy() {
+        for (Action action : this.actions.values()) {
+            action.setServlet(null);
+        }
+        this.actions.clear();
+    }
+
+
+    /**
+     * Carries a checked instantiation exception out of the mapping function.
+     */
+    @SuppressWarnings("serial")
+    private static class ActionInstantiationException extends RuntimeException {
+
+        ActionInstantiationException(Exception cause) {
+            super(cause);
+        }
+    }
+
+}
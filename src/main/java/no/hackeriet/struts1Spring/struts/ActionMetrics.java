@@ -0,0 +1,219 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import org.apache.struts.config.ActionConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Invocation count, error count and latency histogram per Struts action
+ * mapping, reported by module prefix plus mapping path.
+ *
+ * <p>All counters are {@link LongAdder LongAdders}, striped across threads,
+ * and histograms use a fixed set of buckets, so that recording an invocation
+ * neither locks nor allocates once the mapping has been seen.
+ *
+ * <p>ContextLoaderPlugIn creates an instance per Struts module when
+ * "collectActionMetrics" is set, publishing it as ServletContext attribute and
+ * as JMX MBean. The request processors record the actions they perform, and
+ * {@link DelegatingActionProxy} records the invocations of its delegates.
+ *
+ * @see ContextLoaderPlugIn#setCollectActionMetrics
+ * @see DelegatingActionUtils#getActionMetrics
+ * @since 1.0.1
+ */
+public class ActionMetrics implements ActionMetricsMXBean {
+
+    /**
+     * Prefix for the ServletContext attribute for the ActionMetrics.
+     * The completion is the Struts module name.
+     */
+    public static final String SERVLET_CONTEXT_PREFIX = ActionMetrics.class.getName() + ".METRICS.";
+
+    private static final long[] BUCKET_BOUNDS_MILLIS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000};
+
+    private static final long[] BUCKET_BOUNDS_NANOS = new long[BUCKET_BOUNDS_MILLIS.length];
+
+    static {
+        for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+            BUCKET_BOUNDS_NANOS[i] = TimeUnit.MILLISECONDS.toNanos(BUCKET_BOUNDS_MILLIS[i]);
+        }
+    }
+
+
+    private volatile ConcurrentMap<ActionConfig, MappingMetrics> mappingMetrics = new ConcurrentHashMap<>();
+
+
+    /**
+     * Record a completed invocation of the given mapping.
+     *
+     * @param mapping      the Struts ActionConfig, usually an ActionMapping
+     * @param elapsedNanos the duration of the invocation, in nanoseconds
+     */
+    public void recordInvocation(ActionConfig mapping, long elapsedNanos) {
+        getMappingMetrics(mapping).recordInvocation(elapsedNanos);
+    }
+
+    /**
+     * Record a failed invocation of the given mapping. The invocation
+     * itself is recorded separately.
+     *
+     * @param mapping the Struts ActionConfig, usually an ActionMapping
+     */
+    public void recordError(ActionConfig mapping) {
+        getMappingMetrics(mapping).errors.increment();
+    }
+
+    private MappingMetrics getMappingMetrics(ActionConfig mapping) {
+        ConcurrentMap<ActionConfig, MappingMetrics> mappingMetrics = this.mappingMetrics;
+        MappingMetrics metrics = mappingMetrics.get(mapping);
+        if (metrics == null) {
+            metrics = mappingMetrics.computeIfAbsent(mapping, key -> new MappingMetrics());
+        }
+        return metrics;
+    }
+
+    @Override
+    public long[] getHistogramBucketBoundsMillis() {
+        return BUCKET_BOUNDS_MILLIS.clone();
+    }
+
+    @Override
+    public List<MappingStatistics> getMappingStatistics() {
+        List<MappingStatistics> result = new ArrayList<>();
+        for (Map.Entry<ActionConfig, MappingMetrics> entry : this.mappingMetrics.entrySet()) {
+            ActionConfig mapping = entry.getKey();
+            String prefix = (mapping.getModuleConfig() != null ? mapping.getModuleConfig().getPrefix() : "");
+            result.add(entry.getValue().snapshot(prefix + mapping.getPath()));
+        }
+        return result;
+    }
+
+    @Override
+    public void reset() {
+        this.mappingMetrics = new ConcurrentHashMap<>();
+    }
+
+
+    /**
+     * Counters of a single mapping.
+     */
+    private static class MappingMetrics {
+
+        private final LongAdder invocations = new LongAdder();
+
+        private final LongAdder errors = new LongAdder();
+
+        private final LongAdder totalNanos = new LongAdder();
+
+        private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_NANOS.length + 1];
+
+        MappingMetrics() {
+            for (int i = 0; i < this.buckets.length; i++) {
+                this.buckets[i] = new LongAdder();
+            }
+        }
+
+        void recordInvocation(long elapsedNanos) {
+            this.invocations.increment();
+            this.totalNanos.add(elapsedNanos);
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS_NANOS.length && elapsedNanos > BUCKET_BOUNDS_NANOS[bucket]) {
+                bucket++;
+            }
+            this.buckets[bucket].increment();
+        }
+
+        MappingStatistics snapshot(String path) {
+            long[] histogram = new long[this.buckets.length];
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] = this.buckets[i].sum();
+            }
+            return new MappingStatistics(path, this.invocations.sum(), this.errors.sum(),
+                    TimeUnit.NANOSECONDS.toMillis(this.totalNanos.sum()), histogram);
+        }
+    }
+
+
+    /**
+     * Snapshot of the statistics of a single mapping.
+     */
+    public static class MappingStatistics {
+
+        private final String path;
+
+        private final long invocationCount;
+
+        private final long errorCount;
+
+        private final long totalTimeMillis;
+
+        private final long[] histogram;
+
+        MappingStatistics(String path, long invocationCount, long errorCount, long totalTimeMillis, long[] histogram) {
+            this.path = path;
+            this.invocationCount = invocationCount;
+            this.errorCount = errorCount;
+            this.totalTimeMillis = totalTimeMillis;
+            this.histogram = histogram;
+        }
+
+        /**
+         * @return the module prefix plus mapping path
+         */
+        public String getPath() {
+            return this.path;
+        }
+
+        /**
+         * @return the number of completed invocations
+         */
+        public long getInvocationCount() {
+            return this.invocationCount;
+        }
+
+        /**
+         * @return the number of failed invocations
+         */
+        public long getErrorCount() {
+            return this.errorCount;
+        }
+
+        /**
+         * @return the accumulated duration of all invocations, in milliseconds
+         */
+        public long getTotalTimeMillis() {
+            return this.totalTimeMillis;
+        }
+
+        /**
+         * @return the number of invocations per latency bucket
+         * @see ActionMetricsMXBean#getHistogramBucketBoundsMillis
+         */
+        public long[] getHistogram() {
+            return this.histogram.clone();
+        }
+    }
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import java.util.List;
+
+/**
+ * JMX management interface of {@link ActionMetrics}, registered per
+ * Struts module by ContextLoaderPlugIn.
+ *
+ * @see ContextLoaderPlugIn#setCollectActionMetrics
+ * @since 1.0.1
+ */
+public interface ActionMetricsMXBean {
+
+    /**
+     * Return the upper bounds of the latency histogram buckets, in milliseconds.
+     * The last bucket of each histogram counts all slower invocations.
+     * @return the upper bounds of the histogram buckets
+     */
+    long[] getHistogramBucketBoundsMillis();
+
+    /**
+     * Return a snapshot of the statistics of all mappings invoked so far.
+     * @return the statistics per mapping
+     */
+    List<ActionMetrics.MappingStatistics> getMappingStatistics();
+
+    /**
+     * Discard all statistics collected so far.
+     */
+    void reset();
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import org.apache.struts.config.ActionConfig;
+import org.springframework.beans.factory.annotation.AnnotatedGenericBeanDefinition;
+import org.springframework.context.annotation.AnnotationBeanNameGenerator;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * {@link ActionBeanNameResolver} implementation that takes the bean name
+ * from a stereotype annotation of the Action class that the "type" of the
+ * mapping specifies, such as {@code @Component("loginAction")} or
+ * {@code @Named("loginAction")}: the explicit name under which Spring's
+ * component scanning registers the Action bean. Falls back to another
+ * strategy (by default, {@link DefaultActionBeanNameResolver}) for mappings
+ * without a type, of type {@link DelegatingActionProxy}, or whose Action
+ * class does not declare an explicit bean name. An Action class that cannot
+ * be loaded gets reported through an IllegalArgumentException.
+ *
+ * <pre class="code">
+ * &#064;Component("loginAction")
+ * public class LoginAction extends Action {
+ *     ...
+ * }</pre>
+ *
+ * @see org.springframework.context.annotation.AnnotationBeanNameGenerator
+ * @see ClassNameActionBeanNameResolver
+ * @since 1.0.1
+ */
+public class AnnotationActionBeanNameResolver implements ActionBeanNameResolver {
+
+    private static final ExplicitBeanNameGenerator beanNameGenerator = new ExplicitBeanNameGenerator();
+
+
+    private ActionBeanNameResolver fallbackResolver = new DefaultActionBeanNameResolver();
+
+
+    /**
+     * Set the strategy to use for mappings without an explicitly named Action class.
+     * Default is a {@link DefaultActionBeanNameResolver}.
+     *
+     * @param fallbackResolver the strategy to fall back to
+     */
+    public void setFallbackResolver(ActionBeanNameResolver fallbackResolver) {
+        Assert.notNull(fallbackResolver, "'fallbackResolver' must not be null");
+        this.fallbackResolver = fallbackResolver;
+    }
+
+
+    @Override
+    public String determineActionBeanName(ActionConfig actionConfig) {
+        String type = actionConfig.getType();
+        if (type != null && !DelegatingActionUtils.isDelegatingActionProxy(actionConfig)) {
+            Class<?> actionClass;
+            try {
+                actionClass = ClassUtils.forName(type, ClassUtils.getDefaultClassLoader());
+            } catch (ClassNotFoundException | LinkageError ex) {
+                throw new IllegalArgumentException("Action class [" + type + "] of mapping '" +
+                        actionConfig.getPath() + "' could not be loaded", ex);
+            }
+            String beanName = beanNameGenerator.determineExplicitBeanName(actionClass);
+            if (StringUtils.hasText(beanName)) {
+                return beanName;
+            }
+        }
+        return this.fallbackResolver.determineActionBeanName(actionConfig);
+    }
+
+
+    /**
+     * Exposes the explicit bean name, if any, that AnnotationBeanNameGenerator
+     * reads from the stereotype annotations of a class.
+     */
+    private static class ExplicitBeanNameGenerator extends AnnotationBeanNameGenerator {
+
+        String determineExplicitBeanName(Class<?> beanClass) {
+            return determineBeanNameFromAnnotation(new AnnotatedGenericBeanDefinition(beanClass));
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.annotation.AutowiredAnnotationBeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.SimpleAutowireCandidateResolver;
+import org.springframework.context.annotation.CommonAnnotationBeanPostProcessor;
+import org.springframework.context.annotation.ContextAnnotationAutowireCandidateResolver;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Injects the annotated fields and methods of Struts-created Actions:
+ * {@code @Autowired}, {@code @Value} and JSR-330's {@code @Inject} as well
+ * as JSR-250's {@code @Resource}, each if present on the classpath.
+ *
+ * <p>Delegates to Spring's {@link AutowiredAnnotationBeanPostProcessor} and
+ * {@link CommonAnnotationBeanPostProcessor}, which determine the injection
+ * points of each class once and cache them as {@code InjectionMetadata}.
+ * Other setters are left alone, so that no by-type resolution happens for
+ * properties that are not meant to be injected.
+ *
+ * <p>{@code @Value} and {@code @Qualifier} need an annotation-aware autowire
+ * candidate resolver, which plain XML and static contexts do not have unless
+ * they declare {@code <context:annotation-config/>}: the bean factory of such
+ * contexts gets a {@link ContextAnnotationAutowireCandidateResolver} installed,
+ * as {@code <context:annotation-config/>} would.
+ *
+ * @see DelegatingActionUtils#AUTOWIRE_ANNOTATION
+ * @see AutowiringRequestProcessor
+ * @see AutowiringTilesRequestProcessor
+ * @since 1.0.1
+ */
+public class AnnotationActionInjector {
+
+    private static final boolean jsr250Present =
+            ClassUtils.isPresent("javax.annotation.Resource", AnnotationActionInjector.class.getClassLoader());
+
+
+    private final AutowiredAnnotationBeanPostProcessor autowiredProcessor = new AutowiredAnnotationBeanPostProcessor();
+
+    private final InstantiationAwareBeanPostProcessor commonProcessor;
+
+
+    /**
+     * Create a new AnnotationActionInjector for the given bean factory,
+     * making sure that its autowire candidate resolver supports annotations.
+     *
+     * @param beanFactory the bean factory to resolve dependencies against
+     */
+    public AnnotationActionInjector(ConfigurableListableBeanFactory beanFactory) {
+        if (beanFactory instanceof DefaultListableBeanFactory) {
+            DefaultListableBeanFactory defaultBeanFactory = (DefaultListableBeanFactory) beanFactory;
+            if (defaultBeanFactory.getAutowireCandidateResolver().getClass() == SimpleAutowireCandidateResolver.class) {
+                defaultBeanFactory.setAutowireCandidateResolver(new ContextAnnotationAutowireCandidateResolver());
+            }
+        }
+        this.autowiredProcessor.setBeanFactory(beanFactory);
+        if (jsr250Present) {
+            CommonAnnotationBeanPostProcessor commonProcessor = new CommonAnnotationBeanPostProcessor();
+            commonProcessor.setBeanFactory(beanFactory);
+            this.commonProcessor = commonProcessor;
+        } else {
+            this.commonProcessor = null;
+        }
+    }
+
+
+    /**
+     * Inject the annotated fields and methods of the given instance.
+     *
+     * @param bean the instance to inject
+     * @throws BeansException if a dependency could not be resolved or injected
+     */
+    public void inject(Object bean) throws BeansException {
+        this.autowiredProcessor.processInjection(bean);
+        if (this.commonProcessor != null) {
+            this.commonProcessor.postProcessPropertyValues(null, null, bean, null);
+        }
+    }
+
+}
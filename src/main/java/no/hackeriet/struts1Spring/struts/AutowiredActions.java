@@ -0,0 +1,88 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import org.apache.struts.action.Action;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Tracks the Action instances that the autowiring request processors have
+ * wired, and against which context generation.
+ *
+ * <p>Struts keeps a single Action instance per class, so the wired instance
+ * is kept per Action class name and compared by identity: an Action that
+ * overrides {@code equals} cannot pass for another instance. The instances
+ * are referenced weakly, leaving their lifecycle to the Struts Action cache.
+ *
+ * @see AutowiringRequestProcessor#processActionCreate
+ * @see AutowiringTilesRequestProcessor#processActionCreate
+ * @since 1.0.1
+ */
+class AutowiredActions {
+
+    private final ConcurrentMap<String, WiredAction> wiredActions = new ConcurrentHashMap<>();
+
+
+    /**
+     * Return whether the given Action instance, created for the given
+     * Action class name, has been wired against the given context generation.
+     *
+     * @param className  the Action class name of the mapping
+     * @param action     the Action instance
+     * @param generation the current context generation
+     * @return whether the instance is wired
+     */
+    boolean isWired(String className, Action action, int generation) {
+        WiredAction wiredAction = this.wiredActions.get(className);
+        return (wiredAction != null && wiredAction.generation == generation && wiredAction.action.get() == action);
+    }
+
+    /**
+     * Mark the given Action instance as wired against the given context generation.
+     *
+     * @param className  the Action class name of the mapping
+     * @param action     the Action instance
+     * @param generation the context generation it was wired against
+     */
+    void markWired(String className, Action action, int generation) {
+        this.wiredActions.put(className, new WiredAction(action, generation));
+    }
+
+    /**
+     * Forget all wired Action instances.
+     */
+    void clear() {
+        this.wiredActions.clear();
+    }
+
+
+    private static class WiredAction {
+
+        private final WeakReference<Action> action;
+
+        private final int generation;
+
+        WiredAction(Action action, int generation) {
+            this.action = new WeakReference<>(action);
+            this.generation = generation;
+        }
+    }
+
+}
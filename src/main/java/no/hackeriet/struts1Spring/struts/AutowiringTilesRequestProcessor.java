@@ -17,10 +17,14 @@
 package no.hackeriet.struts1Spring.struts;
 
 import org.apache.struts.action.Action;
+import org.apache.struts.action.ActionForm;
+import org.apache.struts.action.ActionForward;
 import org.apache.struts.action.ActionMapping;
 import org.apache.struts.action.ActionServlet;
+import org.apache.struts.config.ActionConfig;
 import org.apache.struts.config.ModuleConfig;
 import org.apache.struts.tiles.TilesRequestProcessor;
+import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.web.context.WebApplicationContext;
@@ -29,6 +33,8 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
 
 /**
  * Subclass of Struts's TilesRequestProcessor that autowires Struts Actions
@@ -55,21 +61,65 @@ import java.io.IOException;
  */
 public class AutowiringTilesRequestProcessor extends TilesRequestProcessor {
 
-    private WebApplicationContext webApplicationContext;
+    private volatile ActionInstanceRegistry actionInstanceRegistry;
+
+    private volatile ActionMetrics actionMetrics;
+
+    private volatile ActionFormBeans actionFormBeans;
 
     private int autowireMode = AutowireCapableBeanFactory.AUTOWIRE_NO;
 
     private boolean dependencyCheck = false;
 
+    private volatile ActionInjectionPlans actionInjectionPlans;
+
+    private volatile AnnotationActionInjector annotationActionInjector;
+
+    private volatile Map<ActionConfig, ActionAutowirePolicy> autowirePolicies = Collections.emptyMap();
+
+    private volatile AnnotationActionInjector policyAnnotationActionInjector;
+
+    private final AutowiredActions autowiredActions = new AutowiredActions();
+
+    private volatile int contextGeneration;
+
+    private final ModuleContextBinding moduleContext =
+            new ModuleContextBinding(this::replaceWebApplicationContext);
+
+
 
     @Override
     public void init(ActionServlet actionServlet, ModuleConfig moduleConfig) throws ServletException {
         super.init(actionServlet, moduleConfig);
         if (actionServlet != null) {
-            this.webApplicationContext = initWebApplicationContext(actionServlet, moduleConfig);
+            this.moduleContext.setWebApplicationContext(initWebApplicationContext(actionServlet, moduleConfig));
+            this.actionInstanceRegistry = initActionInstanceRegistry(actionServlet, moduleConfig);
+            this.actionMetrics = initActionMetrics(actionServlet, moduleConfig);
+            this.actionFormBeans = initActionFormBeans(actionServlet, moduleConfig);
             this.autowireMode = initAutowireMode(actionServlet, moduleConfig);
             this.dependencyCheck = initDependencyCheck(actionServlet, moduleConfig);
+            this.annotationActionInjector = initAnnotationActionInjector(actionServlet, moduleConfig);
+            if (this.annotationActionInjector == null) {
+                this.actionInjectionPlans = initActionInjectionPlans(actionServlet, moduleConfig);
+            }
+            this.autowirePolicies = initAutowirePolicies(actionServlet, moduleConfig);
+            this.policyAnnotationActionInjector =
+                    createPolicyAnnotationActionInjector(this.annotationActionInjector, this.autowirePolicies);
+            this.moduleContext.observe();
+        }
+    }
+
+    private AnnotationActionInjector createPolicyAnnotationActionInjector(
+            AnnotationActionInjector annotationActionInjector,
+            Map<ActionConfig, ActionAutowirePolicy> autowirePolicies) {
+
+        if (annotationActionInjector == null &&
+                getWebApplicationContext() instanceof ConfigurableApplicationContext &&
+                autowirePolicies.values().stream().anyMatch(ActionAutowirePolicy::isAnnotationInjection)) {
+            return new AnnotationActionInjector(
+                    ((ConfigurableApplicationContext) getWebApplicationContext()).getBeanFactory());
         }
+        return annotationActionInjector;
     }
 
     /**
@@ -89,10 +139,14 @@ public class AutowiringTilesRequestProcessor extends TilesRequestProcessor {
 
         WebApplicationContext wac =
                 DelegatingActionUtils.findRequiredWebApplicationContext(actionServlet, moduleConfig);
+        ignoreActionServletDependency(wac);
+        return wac;
+    }
+
+    private static void ignoreActionServletDependency(WebApplicationContext wac) {
         if (wac instanceof ConfigurableApplicationContext) {
             ((ConfigurableApplicationContext) wac).getBeanFactory().ignoreDependencyType(ActionServlet.class);
         }
-        return wac;
     }
 
     /**
@@ -128,12 +182,133 @@ public class AutowiringTilesRequestProcessor extends TilesRequestProcessor {
     }
 
 
+    /**
+     * Create the injector for annotated fields and methods of Struts Actions,
+     * if the "autowire" init-param of the Struts ActionServlet is set to
+     * "annotation". Setter autowiring does not apply in that case.
+     *
+     * @param actionServlet the associated ActionServlet
+     * @param moduleConfig  the associated ModuleConfig
+     * @return the injector, or {@code null} for setter autowiring
+     * @see DelegatingActionUtils#getAnnotationInjection
+     * @see #autowireAction
+     */
+    protected AnnotationActionInjector initAnnotationActionInjector(
+            ActionServlet actionServlet, ModuleConfig moduleConfig) {
+
+        if (!DelegatingActionUtils.getAnnotationInjection(actionServlet) ||
+                !(getWebApplicationContext() instanceof ConfigurableApplicationContext)) {
+            return null;
+        }
+        return new AnnotationActionInjector(
+                ((ConfigurableApplicationContext) getWebApplicationContext()).getBeanFactory());
+    }
+
+    /**
+     * Create the cache of per-class injection plans for wiring Struts Actions,
+     * if turned on through the "injectionPlans" init-param of the Struts
+     * ActionServlet. The cache gets registered as listener with the
+     * WebApplicationContext, to be discarded on refresh or close.
+     *
+     * @param actionServlet the associated ActionServlet
+     * @param moduleConfig  the associated ModuleConfig
+     * @return the injection plans, or {@code null} to wire each Action
+     * through {@code autowireBeanProperties}
+     * @see DelegatingActionUtils#getInjectionPlans
+     * @see #autowireAction
+     */
+    protected ActionInjectionPlans initActionInjectionPlans(ActionServlet actionServlet, ModuleConfig moduleConfig) {
+        if (!DelegatingActionUtils.getInjectionPlans(actionServlet) ||
+                !(getWebApplicationContext() instanceof ConfigurableApplicationContext)) {
+            return null;
+        }
+        ConfigurableApplicationContext cac = (ConfigurableApplicationContext) getWebApplicationContext();
+        ActionInjectionPlans plans =
+                new ActionInjectionPlans(cac.getBeanFactory(), getAutowireMode(), getDependencyCheck());
+        cac.addApplicationListener(plans);
+        return plans;
+    }
+
+    /**
+     * Determine the autowire policies of the mappings of the given module that
+     * override the autowire mode or dependency check of the ActionServlet
+     * through "spring.autowire" and "spring.dependencyCheck" properties,
+     * specified as {@code <set-property>} of the mapping. A "spring.autowire"
+     * value of "no" switches off wiring for the mapping.
+     *
+     * @param actionServlet the associated ActionServlet
+     * @param moduleConfig  the associated ModuleConfig
+     * @return the table of overriding policies, keyed by mapping
+     * @see DelegatingActionUtils#determineAutowirePolicies
+     * @see #autowireAction(Action, ActionMapping)
+     */
+    protected Map<ActionConfig, ActionAutowirePolicy> initAutowirePolicies(
+            ActionServlet actionServlet, ModuleConfig moduleConfig) {
+
+        // Equivalent to the annotation injector being set, which is not yet on a reload.
+        boolean annotationInjection = (DelegatingActionUtils.getAnnotationInjection(actionServlet) &&
+                getWebApplicationContext() instanceof ConfigurableApplicationContext);
+        ActionAutowirePolicy defaultPolicy =
+                new ActionAutowirePolicy(getAutowireMode(), annotationInjection, getDependencyCheck());
+        return DelegatingActionUtils.determineAutowirePolicies(moduleConfig, defaultPolicy);
+    }
+
+    /**
+     * Create the registry for Action instances that Struts creates itself,
+     * if turned on through the "concurrentActionCache" init-param
+     * of the Struts ActionServlet.
+     *
+     * @param actionServlet the associated ActionServlet
+     * @param moduleConfig  the associated ModuleConfig
+     * @return the registry, or {@code null} to keep Struts' own synchronized action map
+     * @see DelegatingActionUtils#getConcurrentActionCache
+     */
+    protected ActionInstanceRegistry initActionInstanceRegistry(
+            ActionServlet actionServlet, ModuleConfig moduleConfig) {
+
+        return (DelegatingActionUtils.getConcurrentActionCache(actionServlet) ?
+                new ActionInstanceRegistry(actionServlet) : null);
+    }
+
+    /**
+     * Fetch the {@link ActionMetrics} to record the performed actions in,
+     * as published by ContextLoaderPlugIn if "collectActionMetrics" is set.
+     *
+     * @param actionServlet the associated ActionServlet
+     * @param moduleConfig  the associated ModuleConfig
+     * @return the ActionMetrics, or {@code null} to not record metrics
+     * @see DelegatingActionUtils#getActionMetrics
+     */
+    protected ActionMetrics initActionMetrics(ActionServlet actionServlet, ModuleConfig moduleConfig) {
+        return DelegatingActionUtils.getActionMetrics(actionServlet.getServletContext(), moduleConfig.getPrefix());
+    }
+
+    /**
+     * Build the table of {@link ActionFormBeans} for the form beans of the
+     * given module, if turned on through the "managedForms" init-param of the
+     * Struts ActionServlet. ActionForms then get obtained from the
+     * {@code WebApplicationContext} where defined as non-singleton beans there,
+     * or instantiated through a constructor resolved once per form class.
+     *
+     * @param actionServlet the associated ActionServlet
+     * @param moduleConfig  the associated ModuleConfig
+     * @return the form bean table, or {@code null} to let Struts create ActionForms
+     * @throws BeansException if a form bean type could not be determined
+     * @see DelegatingActionUtils#getManagedForms
+     */
+    protected ActionFormBeans initActionFormBeans(ActionServlet actionServlet, ModuleConfig moduleConfig)
+            throws BeansException {
+
+        return (DelegatingActionUtils.getManagedForms(actionServlet) ?
+                new ActionFormBeans(getWebApplicationContext(), actionServlet, moduleConfig) : null);
+    }
+
     /**
      * Return the current Spring WebApplicationContext.
      * @return returns the current Spring WebApplicationContext.
      */
     protected final WebApplicationContext getWebApplicationContext() {
-        return this.webApplicationContext;
+        return this.moduleContext.getWebApplicationContext();
     }
 
     /**
@@ -155,6 +330,9 @@ public class AutowiringTilesRequestProcessor extends TilesRequestProcessor {
 
     /**
      * Extend the base class method to autowire each created Action instance.
+     * <p>Struts reuses its Action instances across requests: each instance
+     * gets wired on its first request only, with the wired instances being
+     * tracked by identity through weak references.
      *
      * @see org.springframework.beans.factory.config.AutowireCapableBeanFactory#autowireBeanProperties
      * @return the created Action instance
@@ -164,10 +342,212 @@ public class AutowiringTilesRequestProcessor extends TilesRequestProcessor {
             HttpServletRequest request, HttpServletResponse response, ActionMapping mapping)
             throws IOException {
 
-        Action action = super.processActionCreate(request, response, mapping);
-        getWebApplicationContext().getAutowireCapableBeanFactory().autowireBeanProperties(
-                action, getAutowireMode(), getDependencyCheck());
+        Action action = (this.actionInstanceRegistry != null ?
+                this.actionInstanceRegistry.getAction(mapping, response) :
+                super.processActionCreate(request, response, mapping));
+        int generation = this.contextGeneration;
+        if (action != null && !this.autowiredActions.isWired(mapping.getType(), action, generation)) {
+            autowireAction(action, mapping);
+            // Mark as wired only once wired, as concurrent requests may already get the instance.
+            this.autowiredActions.markWired(mapping.getType(), action, generation);
+        }
         return action;
     }
 
+    /**
+     * Wire the given Action instance, created for the given mapping,
+     * according to the autowire policy of the mapping.
+     * <p>The default implementation applies the overriding policy that was
+     * determined for the mapping on initialization, if any, delegating to
+     * {@link #autowireAction(Action)} for mappings without overrides.
+     * Injection plans do not apply to overriding policies.
+     *
+     * @param action  the Action instance to wire
+     * @param mapping the Struts ActionMapping
+     * @see #initAutowirePolicies
+     */
+    protected void autowireAction(Action action, ActionMapping mapping) {
+        ActionAutowirePolicy policy = this.autowirePolicies.get(mapping);
+        if (policy == null) {
+            autowireAction(action);
+        } else if (policy.isAnnotationInjection()) {
+            if (this.policyAnnotationActionInjector != null) {
+                this.policyAnnotationActionInjector.inject(action);
+            }
+        } else if (policy.isAutowire()) {
+            getWebApplicationContext().getAutowireCapableBeanFactory().autowireBeanProperties(
+                    action, policy.getAutowireMode(), policy.isDependencyCheck());
+        }
+    }
+
+    /**
+     * Wire the given Action instance with beans from the WebApplicationContext.
+     * <p>The default implementation injects annotated fields and methods in
+     * "annotation" autowire mode, applies the cached injection plan of the
+     * Action class if injection plans are turned on, and calls
+     * {@code autowireBeanProperties} with the configured autowire mode
+     * and dependency check otherwise.
+     *
+     * @param action the Action instance to wire
+     * @see #initAnnotationActionInjector
+     * @see #initActionInjectionPlans
+     * @see org.springframework.beans.factory.config.AutowireCapableBeanFactory#autowireBeanProperties
+     */
+    protected void autowireAction(Action action) {
+        if (this.annotationActionInjector != null) {
+            this.annotationActionInjector.inject(action);
+        } else if (this.actionInjectionPlans != null) {
+            this.actionInjectionPlans.inject(action);
+        } else {
+            getWebApplicationContext().getAutowireCapableBeanFactory().autowireBeanProperties(
+                    action, getAutowireMode(), getDependencyCheck());
+        }
+    }
+
+    /**
+     * Switch this processor to the given context, which ContextLoaderPlugIn
+     * has published in place of the current one on a reload: the registry,
+     * metrics, injectors, autowire policies and form bean table get rebuilt,
+     * Action instances get wired again with beans of the replacement on their
+     * next request, and requests get counted against the replacement from then
+     * on. The replaced context stays open until the requests still being
+     * processed against it have completed.
+     * <p>The state gets derived from the replacement before any of it is
+     * published: if that fails, this processor stays on the current context.
+     * <p>Can be extended in subclasses that derive state of their own
+     * from the WebApplicationContext.
+     *
+     * @param replacement the replacement WebApplicationContext
+     * @throws BeansException if the derived state could not be rebuilt
+     * @see ModuleContextReplacedEvent
+     * @see InFlightRequests
+     */
+    protected synchronized void replaceWebApplicationContext(WebApplicationContext replacement)
+            throws BeansException {
+
+        this.moduleContext.replace(replacement, () -> {
+            ignoreActionServletDependency(replacement);
+            ActionInstanceRegistry actionInstanceRegistry = initActionInstanceRegistry(this.servlet, this.moduleConfig);
+            ActionMetrics actionMetrics = initActionMetrics(this.servlet, this.moduleConfig);
+            ActionFormBeans actionFormBeans = initActionFormBeans(this.servlet, this.moduleConfig);
+            AnnotationActionInjector annotationActionInjector =
+                    initAnnotationActionInjector(this.servlet, this.moduleConfig);
+            ActionInjectionPlans actionInjectionPlans = (annotationActionInjector == null ?
+                    initActionInjectionPlans(this.servlet, this.moduleConfig) : null);
+            Map<ActionConfig, ActionAutowirePolicy> autowirePolicies =
+                    initAutowirePolicies(this.servlet, this.moduleConfig);
+            AnnotationActionInjector policyAnnotationActionInjector =
+                    createPolicyAnnotationActionInjector(annotationActionInjector, autowirePolicies);
+            return () -> {
+                // Action instances of the replaced registry may still be in use: not destroyed.
+                this.actionInstanceRegistry = actionInstanceRegistry;
+                this.actionMetrics = actionMetrics;
+                this.actionFormBeans = actionFormBeans;
+                this.annotationActionInjector = annotationActionInjector;
+                this.actionInjectionPlans = actionInjectionPlans;
+                this.autowirePolicies = autowirePolicies;
+                this.policyAnnotationActionInjector = policyAnnotationActionInjector;
+                this.contextGeneration++;
+            };
+        });
+    }
+
+    /**
+     * Extend the base class method to count the request as in flight against
+     * the WebApplicationContext, if tracked, and to return pooled ActionForms
+     * to their pools once the request has been processed.
+     *
+     * @see InFlightRequests
+     * @see ActionFormBeans#releaseActionForms
+     */
+    @Override
+    public void process(HttpServletRequest request, HttpServletResponse response)
+            throws IOException, ServletException {
+
+        InFlightRequests inFlightRequests = this.moduleContext.enterRequest();
+        try {
+            super.process(request, response);
+        } finally {
+            if (this.actionFormBeans != null) {
+                this.actionFormBeans.releaseActionForms(request);
+            }
+            if (inFlightRequests != null) {
+                inFlightRequests.exit();
+            }
+        }
+    }
+
+    /**
+     * Override the base class method to obtain the ActionForm through the
+     * {@link ActionFormBeans} table, if any, falling back to Struts'
+     * reflective instantiation for form beans not covered by the table.
+     *
+     * @see #initActionFormBeans
+     */
+    @Override
+    protected ActionForm processActionForm(
+            HttpServletRequest request, HttpServletResponse response, ActionMapping mapping) {
+
+        if (this.actionFormBeans != null) {
+            ActionForm form = this.actionFormBeans.processActionForm(request, mapping);
+            if (form != null) {
+                return form;
+            }
+        }
+        return super.processActionForm(request, response, mapping);
+    }
+
+    /**
+     * Extend the base class method to record the invocation in the
+     * {@link ActionMetrics}, if any. Invocations of {@link DelegatingActionProxy}
+     * are recorded by the proxy itself.
+     */
+    @Override
+    protected ActionForward processActionPerform(
+            HttpServletRequest request, HttpServletResponse response,
+            Action action, ActionForm form, ActionMapping mapping)
+            throws IOException, ServletException {
+
+        if (this.actionMetrics == null || DelegatingActionUtils.isDelegatingActionProxy(mapping)) {
+            return super.processActionPerform(request, response, action, form, mapping);
+        }
+        long startTime = System.nanoTime();
+        try {
+            return super.processActionPerform(request, response, action, form, mapping);
+        } finally {
+            this.actionMetrics.recordInvocation(mapping, System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Extend the base class method to record the failure in the
+     * {@link ActionMetrics}, if any. Failures of {@link DelegatingActionProxy}
+     * mappings are recorded by the proxy itself.
+     */
+    @Override
+    protected ActionForward processException(
+            HttpServletRequest request, HttpServletResponse response,
+            Exception exception, ActionForm form, ActionMapping mapping)
+            throws IOException, ServletException {
+
+        if (this.actionMetrics != null && !DelegatingActionUtils.isDelegatingActionProxy(mapping)) {
+            this.actionMetrics.recordError(mapping);
+        }
+        return super.processException(request, response, exception, form, mapping);
+    }
+
+    /**
+     * Release the Action instances of the concurrent registry, if any,
+     * and remove the listeners of this processor from its context.
+     */
+    @Override
+    public void destroy() {
+        this.moduleContext.unbind();
+        this.autowiredActions.clear();
+        if (this.actionInstanceRegistry != null) {
+            this.actionInstanceRegistry.destroy();
+        }
+        super.destroy();
+    }
+
 }
@@ -0,0 +1,781 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.BeanMetadataAttribute;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanNameReference;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.beans.factory.parsing.AliasDefinition;
+import org.springframework.beans.factory.parsing.BeanComponentDefinition;
+import org.springframework.beans.factory.parsing.ComponentDefinition;
+import org.springframework.beans.factory.parsing.CompositeComponentDefinition;
+import org.springframework.beans.factory.parsing.EmptyReaderEventListener;
+import org.springframework.beans.factory.parsing.ImportDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionReaderUtils;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.GenericBeanDefinition;
+import org.springframework.beans.factory.support.MethodOverride;
+import org.springframework.beans.factory.support.MethodOverrides;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.annotation.AnnotationConfigUtils;
+import org.springframework.core.SpringVersion;
+import org.springframework.core.io.DescriptiveResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * File cache for the bean definitions parsed from single XML resources,
+ * used by {@link CachingXmlWebApplicationContext}.
+ *
+ * <p>Each cache file holds the definitions and aliases registered by one
+ * resource, in registration order, along with the MD5 checksums of the
+ * resource and of all resources it imports, the active profiles and the
+ * Spring version. A cache file only gets used if all of these still match;
+ * any failure to read it falls back to parsing.
+ *
+ * <p>The definitions are written with Java serialization, replacing the
+ * metadata types of the XML parser that are not serializable (bean references,
+ * typed string values, constructor arguments, method overrides, inner bean
+ * holders, meta attributes and resources) with serializable surrogates.
+ * Resources with definitions that still are not serializable, such as those
+ * registered by {@code <context:component-scan>}, simply do not get cached.
+ * Bean classes are referred to by name. Reading a cache file only resolves
+ * the surrogates, bean definition and value types that such files consist of,
+ * and cache directories have to be owned by, and only be writable by, the
+ * user running the application.
+ *
+ * @see CachingXmlWebApplicationContext
+ * @since 1.0.1
+ */
+class BeanDefinitionCache {
+
+    private static final String FORMAT = "struts1Spring-bean-definitions/2";
+
+    private static final String CACHE_FILE_SUFFIX = ".bdc";
+
+    private static final Log logger = LogFactory.getLog(BeanDefinitionCache.class);
+
+    /**
+     * The classes that cache files may contain, besides the surrogates of this
+     * class, arrays and primitive types: bean definitions and their values.
+     */
+    private static final Set<String> SERIALIZABLE_CLASS_NAMES = new HashSet<>(Arrays.asList(
+            "java.lang.Boolean", "java.lang.Byte", "java.lang.Character", "java.lang.Double", "java.lang.Float",
+            "java.lang.Integer", "java.lang.Long", "java.lang.Number", "java.lang.Object", "java.lang.Short",
+            "java.lang.String", "java.util.ArrayList", "java.util.HashMap", "java.util.HashSet",
+            "java.util.Hashtable", "java.util.LinkedHashMap", "java.util.LinkedHashSet", "java.util.LinkedList",
+            "java.util.Properties", "org.springframework.beans.BeanMetadataAttributeAccessor",
+            "org.springframework.beans.MutablePropertyValues", "org.springframework.beans.PropertyValue",
+            "org.springframework.beans.factory.support.AbstractBeanDefinition",
+            "org.springframework.beans.factory.support.AutowireCandidateQualifier",
+            "org.springframework.beans.factory.support.ChildBeanDefinition",
+            "org.springframework.beans.factory.support.GenericBeanDefinition",
+            "org.springframework.beans.factory.support.LookupOverride",
+            "org.springframework.beans.factory.support.ManagedArray",
+            "org.springframework.beans.factory.support.ManagedList",
+            "org.springframework.beans.factory.support.ManagedMap",
+            "org.springframework.beans.factory.support.ManagedProperties",
+            "org.springframework.beans.factory.support.ManagedSet",
+            "org.springframework.beans.factory.support.MethodOverride",
+            "org.springframework.beans.factory.support.ReplaceOverride",
+            "org.springframework.core.AttributeAccessorSupport"));
+
+
+    private final File directory;
+
+    private final String profiles;
+
+    private final ResourceLoader resourceLoader;
+
+    private Boolean directoryUsable;
+
+
+    /**
+     * Create a new BeanDefinitionCache.
+     *
+     * @param directory      the directory to keep the cache files in
+     * @param activeProfiles the active profiles of the environment
+     * @param resourceLoader the ResourceLoader to resolve imported resources with
+     */
+    BeanDefinitionCache(File directory, String[] activeProfiles, ResourceLoader resourceLoader) {
+        this.directory = directory;
+        this.profiles = StringUtils.arrayToCommaDelimitedString(activeProfiles);
+        this.resourceLoader = resourceLoader;
+    }
+
+
+    /**
+     * Compute the checksum of the given resource.
+     *
+     * @param resource the resource
+     * @return the MD5 checksum as hex string, or {@code null} if the resource
+     * cannot be read
+     */
+    static String checksum(Resource resource) {
+        try (InputStream in = resource.getInputStream()) {
+            return DigestUtils.md5DigestAsHex(in);
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private File getCacheFile(Resource resource) {
+        try {
+            String key = resource.getURL().toExternalForm() + '|' + this.profiles;
+            return new File(this.directory, DigestUtils.md5DigestAsHex(key.getBytes(StandardCharsets.UTF_8)) +
+                    CACHE_FILE_SUFFIX);
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Register the cached bean definitions of the given resource, if the
+     * cache is up to date.
+     *
+     * @param resource the XML resource
+     * @param checksum the current checksum of the resource
+     * @param registry the registry to register the definitions with
+     * @return whether the cached definitions were registered
+     */
+    boolean restore(Resource resource, String checksum, BeanDefinitionRegistry registry) {
+        File file = getCacheFile(resource);
+        if (file == null || !file.isFile() || !isDirectoryUsable()) {
+            return false;
+        }
+        List<Registration> registrations = read(file, checksum);
+        if (registrations == null) {
+            return false;
+        }
+        for (Registration registration : registrations) {
+            if (registration.definition != null &&
+                    registration.name.contains(BeanDefinitionReaderUtils.GENERATED_BEAN_NAME_SEPARATOR) &&
+                    registry.containsBeanDefinition(registration.name)) {
+                // The generated name depends on the definitions registered before: parse again.
+                logger.debug("Generated bean name '" + registration.name + "' of " + resource.getDescription() +
+                        " is taken: parsing the resource");
+                return false;
+            }
+        }
+        boolean annotationConfig = false;
+        for (Registration registration : registrations) {
+            registration.registerWith(registry);
+            annotationConfig |= AnnotationConfigUtils.AUTOWIRED_ANNOTATION_PROCESSOR_BEAN_NAME.equals(registration.name);
+        }
+        if (annotationConfig) {
+            // Configure the bean factory for annotations, as the parser of <context:annotation-config/> does.
+            AnnotationConfigUtils.registerAnnotationConfigProcessors(registry);
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Registration> read(File file, String checksum) {
+        try (ObjectInputStream in = new FilteringInputStream(
+                new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file.toPath()))))) {
+            if (!FORMAT.equals(in.readUTF()) || !getSpringVersion().equals(in.readUTF()) ||
+                    !this.profiles.equals(in.readUTF()) || !checksum.equals(in.readUTF())) {
+                return null;
+            }
+            int dependencyCount = in.readInt();
+            for (int i = 0; i < dependencyCount; i++) {
+                Resource dependency = this.resourceLoader.getResource(in.readUTF());
+                if (!in.readUTF().equals(checksum(dependency))) {
+                    return null;
+                }
+            }
+            return (List<Registration>) in.readObject();
+        } catch (IOException | ClassNotFoundException | RuntimeException ex) {
+            logger.debug("Ignoring unreadable bean definition cache file [" + file + "]: " + ex);
+            return null;
+        }
+    }
+
+    /**
+     * Write the registrations recorded for the given resource to its cache
+     * file, replacing the previous file atomically. Failures are logged.
+     *
+     * @param resource the XML resource
+     * @param checksum the checksum of the resource before it got parsed
+     * @param recorder the recorder that recorded the parsing of the resource
+     */
+    void store(Resource resource, String checksum, Recorder recorder) {
+        File file = getCacheFile(resource);
+        if (file == null || recorder.dependencies == null || !isDirectoryUsable()) {
+            return;
+        }
+        Path tempFile = null;
+        try {
+            tempFile = Files.createTempFile(this.directory.toPath(), file.getName(), ".tmp");
+            try (ObjectOutputStream out = new SurrogateOutputStream(
+                    new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile))))) {
+                out.writeUTF(FORMAT);
+                out.writeUTF(getSpringVersion());
+                out.writeUTF(this.profiles);
+                out.writeUTF(checksum);
+                out.writeInt(recorder.dependencies.size());
+                for (Map.Entry<String, String> dependency : recorder.dependencies.entrySet()) {
+                    out.writeUTF(dependency.getKey());
+                    out.writeUTF(dependency.getValue());
+                }
+                out.writeObject(recorder.registrations);
+            }
+            Files.move(tempFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tempFile = null;
+        } catch (IOException | RuntimeException ex) {
+            logger.debug("Not caching bean definitions of " + resource.getDescription() + ": " + ex);
+        } finally {
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException ex) {
+                    logger.debug("Could not delete [" + tempFile + "]: " + ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Determine whether the cache directory can be trusted, creating it if
+     * necessary: it has to be owned by the user running the application and,
+     * on POSIX file systems, be writable by that user only, so that no other
+     * user can plant cache files. New directories are created accessible by
+     * the owner only. An unusable directory disables the cache, with a warning.
+     */
+    private boolean isDirectoryUsable() {
+        if (this.directoryUsable == null) {
+            this.directoryUsable = checkDirectory();
+        }
+        return this.directoryUsable;
+    }
+
+    private boolean checkDirectory() {
+        Path directory = this.directory.toPath();
+        try {
+            boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+            if (!Files.exists(directory, LinkOption.NOFOLLOW_LINKS)) {
+                if (posix) {
+                    Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(
+                            PosixFilePermissions.fromString("rwx------")));
+                } else {
+                    Files.createDirectories(directory);
+                }
+            }
+            if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)) {
+                logger.warn("Not using bean definition cache [" + directory + "]: not a directory");
+                return false;
+            }
+            UserPrincipal user = FileSystems.getDefault().getUserPrincipalLookupService()
+                    .lookupPrincipalByName(System.getProperty("user.name"));
+            if (!user.equals(Files.getOwner(directory, LinkOption.NOFOLLOW_LINKS))) {
+                logger.warn("Not using bean definition cache [" + directory + "]: not owned by user " + user);
+                return false;
+            }
+            if (posix) {
+                Set<PosixFilePermission> permissions =
+                        Files.getPosixFilePermissions(directory, LinkOption.NOFOLLOW_LINKS);
+                if (permissions.contains(PosixFilePermission.GROUP_WRITE) ||
+                        permissions.contains(PosixFilePermission.OTHERS_WRITE)) {
+                    logger.warn("Not using bean definition cache [" + directory + "]: writable by other users");
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException | UnsupportedOperationException | SecurityException ex) {
+            logger.warn("Not using bean definition cache [" + directory + "]: " + ex);
+            return false;
+        }
+    }
+
+    private static String getSpringVersion() {
+        return String.valueOf(SpringVersion.getVersion());
+    }
+
+
+    /**
+     * A bean definition or alias registered by a resource.
+     */
+    private static class Registration implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String name;
+
+        private final String alias;
+
+        private final BeanDefinition definition;
+
+        Registration(String name, String alias, BeanDefinition definition) {
+            this.name = name;
+            this.alias = alias;
+            this.definition = definition;
+        }
+
+        void registerWith(BeanDefinitionRegistry registry) {
+            if (this.definition != null) {
+                registry.registerBeanDefinition(this.name, this.definition);
+            } else {
+                registry.registerAlias(this.name, this.alias);
+            }
+        }
+    }
+
+
+    /**
+     * ReaderEventListener that records the bean definitions and aliases
+     * registered by the resource currently being parsed, together with the
+     * resources it imports. The reader registers with the bean factory itself,
+     * so that namespace handlers see the actual factory; a resource that
+     * registers beans or aliases without reporting them as components does
+     * not get cached.
+     */
+    static class Recorder extends EmptyReaderEventListener {
+
+        private final BeanDefinitionRegistry registry;
+
+        private List<Registration> registrations;
+
+        private Map<String, String> dependencies;
+
+        private Set<String> existingBeanNames;
+
+        Recorder(BeanDefinitionRegistry registry) {
+            this.registry = registry;
+        }
+
+        /**
+         * Start recording the parsing of a new resource.
+         */
+        void start() {
+            this.registrations = new ArrayList<>();
+            this.dependencies = new LinkedHashMap<>();
+            this.existingBeanNames = new HashSet<>(Arrays.asList(this.registry.getBeanDefinitionNames()));
+        }
+
+        /**
+         * Complete recording the parsing of the current resource, checking that
+         * all bean definitions and aliases that it registered were recorded.
+         */
+        void finish() {
+            if (this.dependencies == null) {
+                return;
+            }
+            Set<String> recorded = new HashSet<>();
+            for (Registration registration : this.registrations) {
+                recorded.add(registration.alias != null ? registration.name + '|' + registration.alias :
+                        registration.name);
+            }
+            for (String beanName : this.registry.getBeanDefinitionNames()) {
+                if (this.existingBeanNames.contains(beanName)) {
+                    continue;
+                }
+                if (!recorded.contains(beanName)) {
+                    invalidate();
+                    return;
+                }
+                for (String alias : this.registry.getAliases(beanName)) {
+                    if (!recorded.contains(beanName + '|' + alias)) {
+                        invalidate();
+                        return;
+                    }
+                }
+            }
+        }
+
+        private void invalidate() {
+            // Nothing to record: the resource cannot be cached.
+            this.dependencies = null;
+        }
+
+        @Override
+        public void componentRegistered(ComponentDefinition componentDefinition) {
+            if (this.registrations == null) {
+                return;
+            }
+            if (componentDefinition instanceof BeanComponentDefinition) {
+                BeanComponentDefinition beanComponent = (BeanComponentDefinition) componentDefinition;
+                this.registrations.add(
+                        new Registration(beanComponent.getBeanName(), null, beanComponent.getBeanDefinition()));
+                if (beanComponent.getAliases() != null) {
+                    for (String alias : beanComponent.getAliases()) {
+                        this.registrations.add(new Registration(beanComponent.getBeanName(), alias, null));
+                    }
+                }
+            } else if (componentDefinition instanceof CompositeComponentDefinition) {
+                for (ComponentDefinition nested :
+                        ((CompositeComponentDefinition) componentDefinition).getNestedComponents()) {
+                    componentRegistered(nested);
+                }
+            }
+        }
+
+        @Override
+        public void aliasRegistered(AliasDefinition aliasDefinition) {
+            if (this.registrations != null) {
+                this.registrations.add(new Registration(aliasDefinition.getBeanName(), aliasDefinition.getAlias(), null));
+            }
+        }
+
+        @Override
+        public void importProcessed(ImportDefinition importDefinition) {
+            if (this.dependencies == null) {
+                return;
+            }
+            Resource[] resources = importDefinition.getActualResources();
+            if (resources == null) {
+                invalidate();
+                return;
+            }
+            for (Resource resource : resources) {
+                String checksum = checksum(resource);
+                try {
+                    if (checksum == null) {
+                        invalidate();
+                        return;
+                    }
+                    this.dependencies.put(resource.getURL().toExternalForm(), checksum);
+                } catch (IOException ex) {
+                    invalidate();
+                    return;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * ObjectInputStream that only resolves the classes that cache files
+     * written by this class consist of, rejecting all others.
+     */
+    private static class FilteringInputStream extends ObjectInputStream {
+
+        FilteringInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if (!isSerializableClass(desc.getName())) {
+                throw new InvalidClassException(desc.getName(), "not allowed in bean definition cache files");
+            }
+            return super.resolveClass(desc);
+        }
+
+        private static boolean isSerializableClass(String className) {
+            String elementName = className;
+            while (elementName.startsWith("[")) {
+                elementName = elementName.substring(1);
+            }
+            if (elementName.length() != className.length()) {
+                if (elementName.length() == 1) {
+                    // Array of a primitive type
+                    return true;
+                }
+                elementName = elementName.substring(1, elementName.length() - 1);
+            }
+            return (SERIALIZABLE_CLASS_NAMES.contains(elementName) ||
+                    elementName.startsWith(BeanDefinitionCache.class.getName() + "$"));
+        }
+    }
+
+
+    /**
+     * ObjectOutputStream that replaces the non-serializable metadata
+     * types of the XML parser with serializable surrogates, and plain
+     * RootBeanDefinitions with equivalent GenericBeanDefinitions. Source
+     * objects are not retained.
+     */
+    private static class SurrogateOutputStream extends ObjectOutputStream {
+
+        SurrogateOutputStream(OutputStream out) throws IOException {
+            super(out);
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) {
+            Class<?> type = (obj != null ? obj.getClass() : null);
+            if (type == RootBeanDefinition.class) {
+                RootBeanDefinition rootBeanDefinition = (RootBeanDefinition) obj;
+                if (rootBeanDefinition.getDecoratedDefinition() == null &&
+                        rootBeanDefinition.getQualifiedElement() == null && rootBeanDefinition.getTargetType() == null) {
+                    // Holds locks that are not serializable, as registered for <context:annotation-config/>.
+                    return withBeanClassName(new GenericBeanDefinition(rootBeanDefinition));
+                }
+            } else if (type == GenericBeanDefinition.class && ((GenericBeanDefinition) obj).hasBeanClass()) {
+                return withBeanClassName(new GenericBeanDefinition((GenericBeanDefinition) obj));
+            }
+            if (obj == null || obj instanceof Serializable) {
+                return obj;
+            }
+            if (obj instanceof Resource) {
+                return new ResourceSurrogate((Resource) obj);
+            } else if (type == RuntimeBeanReference.class) {
+                return new BeanReferenceSurrogate((RuntimeBeanReference) obj);
+            } else if (type == RuntimeBeanNameReference.class) {
+                return new BeanNameReferenceSurrogate((RuntimeBeanNameReference) obj);
+            } else if (type == TypedStringValue.class) {
+                return new TypedStringValueSurrogate((TypedStringValue) obj);
+            } else if (type == BeanDefinitionHolder.class) {
+                return new BeanDefinitionHolderSurrogate((BeanDefinitionHolder) obj);
+            } else if (type == ConstructorArgumentValues.class) {
+                return new ConstructorArgumentValuesSurrogate((ConstructorArgumentValues) obj);
+            } else if (type == ConstructorArgumentValues.ValueHolder.class) {
+                return new ValueHolderSurrogate((ConstructorArgumentValues.ValueHolder) obj);
+            } else if (type == MethodOverrides.class) {
+                return new MethodOverridesSurrogate((MethodOverrides) obj);
+            } else if (type == BeanMetadataAttribute.class) {
+                return new BeanMetadataAttributeSurrogate((BeanMetadataAttribute) obj);
+            }
+            return obj;
+        }
+
+        /**
+         * Refer to the bean class by name: the cache files only contain allowed classes.
+         */
+        private static GenericBeanDefinition withBeanClassName(GenericBeanDefinition beanDefinition) {
+            if (beanDefinition.hasBeanClass()) {
+                beanDefinition.setBeanClassName(beanDefinition.getBeanClassName());
+            }
+            return beanDefinition;
+        }
+    }
+
+
+    private static class ResourceSurrogate implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String description;
+
+        ResourceSurrogate(Resource resource) {
+            this.description = resource.getDescription();
+        }
+
+        private Object readResolve() {
+            return new DescriptiveResource(this.description);
+        }
+    }
+
+
+    private static class BeanReferenceSurrogate implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String beanName;
+
+        private final boolean toParent;
+
+        BeanReferenceSurrogate(RuntimeBeanReference reference) {
+            this.beanName = reference.getBeanName();
+            this.toParent = reference.isToParent();
+        }
+
+        private Object readResolve() {
+            return new RuntimeBeanReference(this.beanName, this.toParent);
+        }
+    }
+
+
+    private static class BeanNameReferenceSurrogate implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String beanName;
+
+        BeanNameReferenceSurrogate(RuntimeBeanNameReference reference) {
+            this.beanName = reference.getBeanName();
+        }
+
+        private Object readResolve() {
+            return new RuntimeBeanNameReference(this.beanName);
+        }
+    }
+
+
+    private static class TypedStringValueSurrogate implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String value;
+
+        private final String targetTypeName;
+
+        private final String specifiedTypeName;
+
+        private final boolean dynamic;
+
+        TypedStringValueSurrogate(TypedStringValue typedStringValue) {
+            this.value = typedStringValue.getValue();
+            this.targetTypeName = typedStringValue.getTargetTypeName();
+            this.specifiedTypeName = typedStringValue.getSpecifiedTypeName();
+            this.dynamic = typedStringValue.isDynamic();
+        }
+
+        private Object readResolve() {
+            TypedStringValue typedStringValue = new TypedStringValue(this.value);
+            typedStringValue.setTargetTypeName(this.targetTypeName);
+            typedStringValue.setSpecifiedTypeName(this.specifiedTypeName);
+            if (this.dynamic) {
+                typedStringValue.setDynamic();
+            }
+            return typedStringValue;
+        }
+    }
+
+
+    private static class BeanDefinitionHolderSurrogate implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final BeanDefinition beanDefinition;
+
+        private final String beanName;
+
+        private final String[] aliases;
+
+        BeanDefinitionHolderSurrogate(BeanDefinitionHolder holder) {
+            this.beanDefinition = holder.getBeanDefinition();
+            this.beanName = holder.getBeanName();
+            this.aliases = holder.getAliases();
+        }
+
+        private Object readResolve() {
+            return new BeanDefinitionHolder(this.beanDefinition, this.beanName, this.aliases);
+        }
+    }
+
+
+    private static class ConstructorArgumentValuesSurrogate implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Map<Integer, ConstructorArgumentValues.ValueHolder> indexedArgumentValues;
+
+        private final List<ConstructorArgumentValues.ValueHolder> genericArgumentValues;
+
+        ConstructorArgumentValuesSurrogate(ConstructorArgumentValues values) {
+            this.indexedArgumentValues = new LinkedHashMap<>(values.getIndexedArgumentValues());
+            this.genericArgumentValues = new ArrayList<>(values.getGenericArgumentValues());
+        }
+
+        private Object readResolve() {
+            ConstructorArgumentValues values = new ConstructorArgumentValues();
+            this.indexedArgumentValues.forEach(values::addIndexedArgumentValue);
+            this.genericArgumentValues.forEach(values::addGenericArgumentValue);
+            return values;
+        }
+    }
+
+
+    private static class ValueHolderSurrogate implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Object value;
+
+        private final String type;
+
+        private final String name;
+
+        ValueHolderSurrogate(ConstructorArgumentValues.ValueHolder valueHolder) {
+            this.value = valueHolder.getValue();
+            this.type = valueHolder.getType();
+            this.name = valueHolder.getName();
+        }
+
+        private Object readResolve() {
+            return new ConstructorArgumentValues.ValueHolder(this.value, this.type, this.name);
+        }
+    }
+
+
+    private static class MethodOverridesSurrogate implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<MethodOverride> overrides;
+
+        MethodOverridesSurrogate(MethodOverrides methodOverrides) {
+            this.overrides = new ArrayList<>(methodOverrides.getOverrides());
+        }
+
+        private Object readResolve() {
+            MethodOverrides methodOverrides = new MethodOverrides();
+            this.overrides.forEach(methodOverrides::addOverride);
+            return methodOverrides;
+        }
+    }
+
+
+    private static class BeanMetadataAttributeSurrogate implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String name;
+
+        private final Object value;
+
+        BeanMetadataAttributeSurrogate(BeanMetadataAttribute attribute) {
+            this.name = attribute.getName();
+            this.value = attribute.getValue();
+        }
+
+        private Object readResolve() {
+            return new BeanMetadataAttribute(this.name, this.value);
+        }
+    }
+
+}
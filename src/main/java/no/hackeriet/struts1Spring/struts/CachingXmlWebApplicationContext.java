@@ -0,0 +1,197 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.xml.ResourceEntityResolver;
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import org.springframework.core.io.Resource;
+import org.springframework.web.context.support.XmlWebApplicationContext;
+import org.springframework.web.util.WebUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * XmlWebApplicationContext that keeps the bean definitions parsed from each
+ * XML resource in a binary cache file, registering them from there on later
+ * startups instead of parsing the XML again. A cache file is only used while
+ * the checksums of the resource and of all resources it imports, the active
+ * profiles and the Spring version are unchanged; otherwise the resource gets
+ * parsed and its cache file rewritten.
+ *
+ * <p>Use it as context class of ContextLoaderPlugIn:
+ *
+ * <pre>
+ * &lt;plug-in className="no.hackeriet.struts1Spring.struts.ContextLoaderPlugIn"&gt;
+ *   &lt;set-property property="contextClassName" value="no.hackeriet.struts1Spring.struts.CachingXmlWebApplicationContext"/&gt;
+ * &lt;/plug-in&gt;</pre>
+ *
+ * The cache files are kept in the "struts-bean-definitions" subdirectory of
+ * the servlet container's temp directory by default. The cache directory has
+ * to be owned by the user running the application and must not be writable
+ * by other users; otherwise the cache is not used. A missing directory gets
+ * created accessible by that user only.
+ *
+ * <p>The cache covers the definitions the XML parser produces, as reported
+ * to its ReaderEventListener. Resources that contain definitions which cannot
+ * be serialized, typically registered by custom namespace handlers such as
+ * {@code <context:component-scan>}, or definitions that were registered
+ * without being reported, get parsed on every startup. Restoring the
+ * definitions of {@code <context:annotation-config/>} configures the bean
+ * factory for annotations like parsing it does. Note that a namespace
+ * handler whose definitions depend on anything but the XML content, such as
+ * the classpath, would be served stale definitions. Source objects are not cached, and definitions
+ * restored from the cache refer to their resource by description only.
+ * Overriding {@link #loadBeanDefinitions(XmlBeanDefinitionReader)} has no
+ * effect with this context class.
+ *
+ * @see ContextLoaderPlugIn#setContextClass
+ * @since 1.0.1
+ */
+public class CachingXmlWebApplicationContext extends XmlWebApplicationContext {
+
+    /**
+     * Name of the default cache directory within the servlet container's
+     * temp directory: "struts-bean-definitions".
+     */
+    public static final String DEFAULT_CACHE_DIRECTORY_NAME = "struts-bean-definitions";
+
+
+    private File cacheDirectory;
+
+    private final List<String> restoredResources = new ArrayList<>();
+
+    private StartupReport startupReport;
+
+
+    /**
+     * Set the directory to keep the cache files in. Default is the
+     * "struts-bean-definitions" subdirectory of the servlet container's
+     * temp directory, or of "java.io.tmpdir" if the container does not
+     * specify one.
+     * <p>The directory has to be owned by the user running the application
+     * and must not be writable by other users, since the cache files get
+     * deserialized on startup; otherwise the cache is not used.
+     *
+     * @param cacheDirectory the cache directory
+     */
+    public void setCacheDirectory(File cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    /**
+     * Return the directory to keep the cache files in.
+     * @return the cache directory, or {@code null} for the default
+     */
+    public File getCacheDirectory() {
+        return this.cacheDirectory;
+    }
+
+    /**
+     * Return the descriptions of the resources whose bean definitions were
+     * registered from the cache on the last refresh.
+     * @return the descriptions of the restored resources
+     */
+    public List<String> getRestoredResources() {
+        synchronized (this.restoredResources) {
+            return Collections.unmodifiableList(new ArrayList<>(this.restoredResources));
+        }
+    }
+
+    /**
+     * Set the startup report to load the bean definitions of each config
+     * location in a phase of its own in, as ContextLoaderPlugIn does when
+     * collecting one.
+     */
+    void setStartupReport(StartupReport startupReport) {
+        this.startupReport = startupReport;
+    }
+
+    /**
+     * Determine the directory to keep the cache files in.
+     *
+     * @return the cache directory
+     * @see #setCacheDirectory
+     */
+    protected File determineCacheDirectory() {
+        if (this.cacheDirectory != null) {
+            return this.cacheDirectory;
+        }
+        Object tempDir = (getServletContext() != null ?
+                getServletContext().getAttribute(WebUtils.TEMP_DIR_CONTEXT_ATTRIBUTE) : null);
+        File parent = (tempDir instanceof File ? (File) tempDir : new File(System.getProperty("java.io.tmpdir")));
+        return new File(parent, DEFAULT_CACHE_DIRECTORY_NAME);
+    }
+
+    /**
+     * Loads the bean definitions of each resource from the cache, if up to
+     * date, or else through an XmlBeanDefinitionReader configured like
+     * XmlWebApplicationContext's, recording them for the cache.
+     */
+    @Override
+    protected void loadBeanDefinitions(DefaultListableBeanFactory beanFactory) throws BeansException, IOException {
+        BeanDefinitionCache.Recorder recorder = new BeanDefinitionCache.Recorder(beanFactory);
+        XmlBeanDefinitionReader beanDefinitionReader = new XmlBeanDefinitionReader(beanFactory);
+        beanDefinitionReader.setEnvironment(getEnvironment());
+        beanDefinitionReader.setResourceLoader(this);
+        beanDefinitionReader.setEntityResolver(new ResourceEntityResolver(this));
+        beanDefinitionReader.setEventListener(recorder);
+        initBeanDefinitionReader(beanDefinitionReader);
+
+        synchronized (this.restoredResources) {
+            this.restoredResources.clear();
+        }
+        String[] configLocations = getConfigLocations();
+        if (configLocations == null) {
+            return;
+        }
+        BeanDefinitionCache cache =
+                new BeanDefinitionCache(determineCacheDirectory(), getEnvironment().getActiveProfiles(), this);
+        for (String configLocation : configLocations) {
+            if (this.startupReport != null) {
+                this.startupReport.startConfigLocationPhase(configLocation);
+            }
+            for (Resource resource : getResources(configLocation)) {
+                String checksum = BeanDefinitionCache.checksum(resource);
+                if (checksum != null && cache.restore(resource, checksum, beanFactory)) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Registered cached bean definitions of " + resource.getDescription());
+                    }
+                    synchronized (this.restoredResources) {
+                        this.restoredResources.add(resource.getDescription());
+                    }
+                    continue;
+                }
+                recorder.start();
+                beanDefinitionReader.loadBeanDefinitions(resource);
+                recorder.finish();
+                if (checksum != null) {
+                    cache.store(resource, checksum, recorder);
+                }
+            }
+        }
+        if (this.startupReport != null) {
+            this.startupReport.endConfigLocationPhases();
+        }
+    }
+
+}
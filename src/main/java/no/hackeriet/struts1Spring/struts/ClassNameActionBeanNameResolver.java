@@ -0,0 +1,66 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import org.apache.struts.config.ActionConfig;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+import java.beans.Introspector;
+
+/**
+ * {@link ActionBeanNameResolver} implementation that derives the bean name
+ * from the Action class that the "type" of the mapping specifies: the short
+ * class name, decapitalized, as Spring's component scanning names beans
+ * without an explicit name. Falls back to another strategy (by default,
+ * {@link DefaultActionBeanNameResolver}) for mappings without a type, or of
+ * type {@link DelegatingActionProxy}.
+ *
+ * <pre class="code">
+ * &lt;action path="/login" type="myapp.LoginAction"/&gt;   -&gt; bean name "loginAction"</pre>
+ *
+ * @see org.springframework.context.annotation.AnnotationBeanNameGenerator
+ * @see org.apache.struts.config.ActionConfig#getType
+ * @since 1.0.1
+ */
+public class ClassNameActionBeanNameResolver implements ActionBeanNameResolver {
+
+    private ActionBeanNameResolver fallbackResolver = new DefaultActionBeanNameResolver();
+
+
+    /**
+     * Set the strategy to use for mappings without an Action class.
+     * Default is a {@link DefaultActionBeanNameResolver}.
+     *
+     * @param fallbackResolver the strategy to fall back to
+     */
+    public void setFallbackResolver(ActionBeanNameResolver fallbackResolver) {
+        Assert.notNull(fallbackResolver, "'fallbackResolver' must not be null");
+        this.fallbackResolver = fallbackResolver;
+    }
+
+
+    @Override
+    public String determineActionBeanName(ActionConfig actionConfig) {
+        String type = actionConfig.getType();
+        if (type == null || DelegatingActionUtils.isDelegatingActionProxy(actionConfig)) {
+            return this.fallbackResolver.determineActionBeanName(actionConfig);
+        }
+        return Introspector.decapitalize(ClassUtils.getShortName(type));
+    }
+
+}
@@ -18,22 +18,63 @@ package no.hackeriet.struts1Spring.struts;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.struts.Globals;
+import org.apache.struts.action.Action;
 import org.apache.struts.action.ActionServlet;
 import org.apache.struts.action.PlugIn;
+import org.apache.struts.config.ActionConfig;
+import org.apache.struts.config.ForwardConfig;
 import org.apache.struts.config.ModuleConfig;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.SmartFactoryBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.GenericBeanDefinition;
 import org.springframework.context.ApplicationContextException;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.index.CandidateComponentsIndexLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.web.context.ConfigurableWebApplicationContext;
 import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
 import org.springframework.web.context.support.WebApplicationContextUtils;
 import org.springframework.web.context.support.XmlWebApplicationContext;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * Struts 1.1+ PlugIn that loads a Spring application context for the Struts
@@ -73,6 +114,75 @@ import javax.servlet.ServletException;
  * in the Struts configuration, using the DelegatingActionProxy class or
  * the DelegatingRequestProcessor.
  *
+ * <p>Action beans that hold per-request state can be defined in the "pooled"
+ * scope that this PlugIn registers, recycling instances across requests
+ * instead of creating a new prototype instance per request. The number of
+ * idle instances kept per bean can be set through "maxPooledActions".
+ *
+ * <p>With "warmUpActions" set to "true", the Action beans of all mappings of the
+ * module get instantiated right after the context has been refreshed, and the
+ * mappings get checked for missing or mismatched beans. The problems found are
+ * logged; set "failOnInvalidActions" to fail the startup instead.
+ *
+ * <p>Action classes annotated with {@link StrutsActionBean} can be registered as
+ * beans without any XML: set "registerIndexedActions" to "true" to register the
+ * Action beans of this PlugIn's module from the index that the annotation
+ * processor writes at build time, without scanning the classpath.
+ *
+ * <p>Set "collectActionMetrics" to "true" to have the request processors and
+ * DelegatingActionProxy record invocation count, error count and latency
+ * histogram per action mapping, exposed as {@link ActionMetrics} MBean.
+ *
+ * <p>With "parallelRefresh" set to "true", the context gets refreshed on an
+ * executor shared by the ContextLoaderPlugIns of all modules, bounded by
+ * "maxRefreshThreads": module contexts whose PlugIns get initialized
+ * concurrently then start concurrently, each still referring to the root
+ * WebApplicationContext as parent. The PlugIn's {@code init} method waits
+ * for its own context only, and then completes the initialization of the
+ * module on the calling thread, including {@link #onInit}; a refresh failure
+ * still fails the ActionServlet startup. Looking up a module context through
+ * {@link DelegatingActionUtils} meanwhile waits for its refresh to complete.
+ *
+ * <p>Set "lazyInit" to "true" to refresh the context with all singletons
+ * deferred: the module becomes ready without instantiating them, and a
+ * background thread then instantiates them one by one, each with its
+ * dependencies, invoking {@code SmartInitializingSingleton} callbacks at the
+ * end. Requests that need a bean before the warm-up gets to it create it on
+ * demand.
+ *
+ * <p>Set "collectStartupReport" to "true" to profile the startup of the
+ * module: the duration of each startup phase and the slowest beans to
+ * instantiate, exposed as {@link StartupReport} ServletContext attribute
+ * and MBean, and written as JSON file to the temp directory with
+ * "writeStartupReport" set as well.
+ *
+ * <p>With "reloadOnChange" set to "true", the config files of the context get
+ * watched, and a changed configuration gets loaded into a new context that
+ * replaces the current one without a restart. The request processors switch
+ * to the new context, and the replaced context is closed once the requests
+ * in flight against it have completed.
+ *
+ * <p>On {@code destroy}, the context gets closed once the requests in flight
+ * against it have completed, or once "drainTimeout" has elapsed, so that a
+ * shutdown under load does not close beans that requests are still using.
+ *
+ * <p>Configuration that several modules or ActionServlets have in common can
+ * be listed as "sharedContextConfigLocation": it then gets loaded once into
+ * a shared context between the root WebApplicationContext and the module
+ * contexts, instead of once per module.
+ *
+ * <p>Modules can be configured through annotations instead of XML: set
+ * "annotatedClasses" to {@code @Configuration} classes and/or "basePackages"
+ * to packages to scan for components, and an
+ * {@link AnnotationConfigWebApplicationContext} gets created. Scanning then
+ * uses the candidate components index ("META-INF/spring.components", as
+ * written by the "spring-context-indexer" annotation processor) if present,
+ * instead of scanning the classpath.
+ *
+ * <p>Use {@link CachingXmlWebApplicationContext} as "contextClassName" to
+ * register the bean definitions from a binary cache on restarts, instead of
+ * parsing XML files that have not changed.
+ *
  * <p>Note that you can use a single ContextLoaderPlugIn for all Struts modules.
  * That context can in turn be loaded from multiple XML files, for example split
  * according to Struts modules. Alternatively, define one ContextLoaderPlugIn per
@@ -92,6 +202,8 @@ import javax.servlet.ServletException;
  * @see DelegatingActionProxy
  * @see DelegatingRequestProcessor
  * @see DelegatingTilesRequestProcessor
+ * @see PooledActionScope
+ * @see StrutsActionBean
  * @see org.springframework.web.context.ContextLoaderListener
  * @see org.springframework.web.servlet.FrameworkServlet
  * @since 1.0.1
@@ -118,6 +230,32 @@ public class ContextLoaderPlugIn implements PlugIn {
      */
     public static final String SERVLET_CONTEXT_PREFIX = ContextLoaderPlugIn.class.getName() + ".CONTEXT.";
 
+    /**
+     * Namespace of the shared parent context: "struts-shared".
+     * @see #setSharedContextConfigLocation
+     */
+    public static final String SHARED_CONTEXT_NAMESPACE = "struts-shared";
+
+    /**
+     * Default time to wait for further config file changes before
+     * reloading: 500 milliseconds.
+     * @see #setReloadDelay
+     */
+    public static final long DEFAULT_RELOAD_DELAY = 500;
+
+    /**
+     * Default maximum time to wait for requests in flight before closing
+     * a context: 30000 milliseconds.
+     * @see #setDrainTimeout
+     */
+    public static final long DEFAULT_DRAIN_TIMEOUT = 30000;
+
+    private static final String STARTUP_REPORT_PHASE_BEAN_NAME =
+            StartupReport.class.getName() + ".instantiateSingletonsPhase";
+
+    private static final String STARTUP_REPORT_CALLBACKS_BEAN_NAME =
+            StartupReport.class.getName() + ".callbackTimingPostProcessor";
+
 
     protected final Log logger = LogFactory.getLog(getClass());
 
@@ -136,6 +274,91 @@ public class ContextLoaderPlugIn implements PlugIn {
      */
     private String contextConfigLocation;
 
+    /**
+     * Annotated classes to register with an annotation-based context
+     */
+    private String annotatedClasses;
+
+    /**
+     * Base packages to scan with an annotation-based context
+     */
+    private String basePackages;
+
+    /**
+     * Config locations to load into a context shared with other PlugIns
+     */
+    private String sharedContextConfigLocation;
+
+    /**
+     * Maximum number of idle instances per bean in the "pooled" scope
+     */
+    private int maxPooledActions = PooledActionScope.DEFAULT_MAX_IDLE;
+
+    /**
+     * Whether to pre-instantiate and validate the Action beans on startup
+     */
+    private boolean warmUpActions = false;
+
+    /**
+     * Whether problems found during warm-up fail the initialization
+     */
+    private boolean failOnInvalidActions = false;
+
+    /**
+     * Whether to register the Action beans from the StrutsActionBean index
+     */
+    private boolean registerIndexedActions = false;
+
+    /**
+     * Whether to collect per-mapping metrics for the module
+     */
+    private boolean collectActionMetrics = false;
+
+    /**
+     * Whether to refresh the context in the background
+     */
+    private boolean parallelRefresh = false;
+
+    /**
+     * Whether to profile the startup of the module
+     */
+    private boolean collectStartupReport = false;
+
+    /**
+     * Number of slowest beans to keep in the startup report
+     */
+    private int startupReportBeans = StartupReport.DEFAULT_MAX_BEANS;
+
+    /**
+     * Whether to write the startup report as JSON file
+     */
+    private boolean writeStartupReport = false;
+
+    /**
+     * Whether to defer singletons to a background warm-up
+     */
+    private boolean lazyInit = false;
+
+    /**
+     * Whether to reload the context when its config files change
+     */
+    private boolean reloadOnChange = false;
+
+    /**
+     * Time to wait for further changes before reloading, in milliseconds
+     */
+    private long reloadDelay = DEFAULT_RELOAD_DELAY;
+
+    /**
+     * Maximum time to wait for requests in flight before closing, in milliseconds
+     */
+    private long drainTimeout = DEFAULT_DRAIN_TIMEOUT;
+
+    /**
+     * Maximum number of module contexts to refresh concurrently
+     */
+    private int maxRefreshThreads = Runtime.getRuntime().availableProcessors();
+
     /**
      * The Struts ActionServlet that this PlugIn is registered with
      */
@@ -149,7 +372,57 @@ public class ContextLoaderPlugIn implements PlugIn {
     /**
      * WebApplicationContext for the ActionServlet
      */
-    private WebApplicationContext webApplicationContext;
+    private volatile WebApplicationContext webApplicationContext;
+
+    /**
+     * Name of the ActionMetrics MBean, if registered
+     */
+    private ObjectName actionMetricsObjectName;
+
+    /**
+     * The startup report being recorded, if any
+     */
+    private volatile StartupReport startupReport;
+
+    /**
+     * The ObjectName of the registered StartupReport MBean, if any
+     */
+    private ObjectName startupReportObjectName;
+
+    /**
+     * The pending background refresh of the context, if any
+     */
+    private volatile Future<?> pendingRefresh;
+
+    /**
+     * Names of the singletons deferred to the background warm-up
+     */
+    private volatile List<String> deferredSingletonNames;
+
+    /**
+     * The thread running the background warm-up, if any
+     */
+    private volatile Thread singletonWarmUpThread;
+
+    /**
+     * The shared parent context that this PlugIn holds a reference to, if any
+     */
+    private WebApplicationContext sharedContext;
+
+    /**
+     * The WatchService for the config files, if watched
+     */
+    private WatchService reloadWatchService;
+
+    /**
+     * The thread watching the config files, if any
+     */
+    private Thread reloadThread;
+
+    /**
+     * Monitor that serializes reloads
+     */
+    private final Object reloadMonitor = new Object();
 
 
     /**
@@ -228,208 +501,1588 @@ public class ContextLoaderPlugIn implements PlugIn {
         return this.contextConfigLocation;
     }
 
-
     /**
-     * Create the ActionServlet's WebApplicationContext.
+     * Set config locations to load into an intermediate parent context that
+     * is shared by all ContextLoaderPlugIns of the web application specifying
+     * the same locations, in any module or ActionServlet. This location string
+     * can consist of multiple locations separated by any number of commas and spaces.
+     * <p>The shared context gets created by the first such PlugIn, refers to
+     * the root WebApplicationContext as parent, and gets closed once the last
+     * PlugIn referring to it is destroyed. Shared locations that are listed in
+     * "contextConfigLocation" as well get loaded into the shared context only.
+     * <p>The shared context is not specific to any Struts module: it should
+     * define middle tier components rather than Actions, which need the
+     * ActionServlet and the "pooled" scope of their module context.
      *
-     * @param actionServlet the actionServlet
-     * @param moduleConfig the moduleConfig
+     * @param sharedContextConfigLocation the config locations of the shared context
+     * @see #createSharedWebApplicationContext
      */
-    public final void init(ActionServlet actionServlet, ModuleConfig moduleConfig) throws ServletException {
-        long startTime = System.currentTimeMillis();
-        if (logger.isInfoEnabled()) {
-            logger.info("ContextLoaderPlugIn for Struts ActionServlet '" + actionServlet.getServletName() +
-                    ", module '" + moduleConfig.getPrefix() + "': initialization started");
-        }
-
-        this.actionServlet = actionServlet;
-        this.moduleConfig = moduleConfig;
-        try {
-            this.webApplicationContext = initWebApplicationContext();
-            onInit();
-        } catch (RuntimeException ex) {
-            logger.error("Context initialization failed", ex);
-            throw ex;
-        }
+    public void setSharedContextConfigLocation(String sharedContextConfigLocation) {
+        this.sharedContextConfigLocation = sharedContextConfigLocation;
+    }
 
-        if (logger.isInfoEnabled()) {
-            long elapsedTime = System.currentTimeMillis() - startTime;
-            logger.info("ContextLoaderPlugIn for Struts ActionServlet '" + actionServlet.getServletName() +
-                    "', module '" + moduleConfig.getPrefix() + "': initialization completed in " + elapsedTime + " ms");
-        }
+    /**
+     * Return the config locations of the shared parent context, if any.
+     * @return the config locations of the shared parent context, if any
+     */
+    public String getSharedContextConfigLocation() {
+        return this.sharedContextConfigLocation;
     }
 
     /**
-     * Return the Struts ActionServlet that this PlugIn is associated with.
+     * Set the annotated classes, typically {@code @Configuration} classes,
+     * to register with the context of this PlugIn's module, as fully-qualified
+     * class names separated by any number of commas and spaces.
+     * <p>Setting "annotatedClasses" or "basePackages" creates an
+     * {@link AnnotationConfigWebApplicationContext} rather than an
+     * XmlWebApplicationContext, unless a custom "contextClass" has been set,
+     * which then has to be an AnnotationConfigWebApplicationContext as well.
      *
-     * @return the Struts ActionServlet that this PlugIn is associated with
+     * @param annotatedClasses the names of the annotated classes
+     * @see #setBasePackages
+     * @see AnnotationConfigWebApplicationContext#register
      */
-    public final ActionServlet getActionServlet() {
-        return actionServlet;
+    public void setAnnotatedClasses(String annotatedClasses) {
+        this.annotatedClasses = annotatedClasses;
     }
 
     /**
-     * Return the name of the ActionServlet that this PlugIn is associated with.
-     *
-     * @return the name of the ActionServlet that this PlugIn is associated with
+     * Return the annotated classes to register with the context, if any.
+     * @return the names of the annotated classes, if any
      */
-    public final String getServletName() {
-        return this.actionServlet.getServletName();
+    public String getAnnotatedClasses() {
+        return this.annotatedClasses;
     }
 
     /**
-     * Return the ServletContext that this PlugIn is associated with.
+     * Set the base packages to scan for components with the context of this
+     * PlugIn's module, separated by any number of commas and spaces.
+     * <p>If the classpath contains a candidate components index
+     * ("META-INF/spring.components"), the components get looked up in the
+     * index rather than by scanning the classpath. The index is loaded once per
+     * ClassLoader, and covers all modules; it has to be complete, though: the
+     * components of jars without an index are not found when any jar has one.
      *
-     * @return the ServletContext that this PlugIn is associated with.
+     * @param basePackages the base packages to scan
+     * @see #setAnnotatedClasses
+     * @see AnnotationConfigWebApplicationContext#scan
+     * @see CandidateComponentsIndexLoader
      */
-    public final ServletContext getServletContext() {
-        return this.actionServlet.getServletContext();
+    public void setBasePackages(String basePackages) {
+        this.basePackages = basePackages;
     }
 
     /**
-     * Return the Struts ModuleConfig that this PlugIn is associated with.
-     *
-     * @return the Struts ModuleConfig that this PlugIn is associated with.
+     * Return the base packages to scan with the context, if any.
+     * @return the base packages to scan, if any
      */
-    public final ModuleConfig getModuleConfig() {
-        return this.moduleConfig;
+    public String getBasePackages() {
+        return this.basePackages;
     }
 
+
     /**
-     * Return the prefix of the ModuleConfig that this PlugIn is associated with.
+     * Set the maximum number of idle instances to keep per bean in the
+     * {@link PooledActionScope "pooled" scope} that this PlugIn registers.
+     * Default is twice the number of processors.
      *
-     * @see org.apache.struts.config.ModuleConfig#getPrefix
-     * @return the prefix of the ModuleConfig that this PlugIn is associated with.
+     * @param maxPooledActions the maximum number of idle instances per bean
+     * @see PooledActionScope#DEFAULT_MAX_IDLE
      */
-    public final String getModulePrefix() {
-        return this.moduleConfig.getPrefix();
+    public void setMaxPooledActions(int maxPooledActions) {
+        this.maxPooledActions = maxPooledActions;
     }
 
     /**
-     * Initialize and publish the WebApplicationContext for the ActionServlet.
-     * <p>Delegates to {@link #createWebApplicationContext} for actual creation.
-     * <p>Can be overridden in subclasses. Call {@code getActionServlet()}
-     * and/or {@code getModuleConfig()} to access the Struts configuration
-     * that this PlugIn is associated with.
+     * Return the maximum number of idle instances per pooled bean.
+     * @return the maximum number of idle instances per pooled bean
+     */
+    public int getMaxPooledActions() {
+        return this.maxPooledActions;
+    }
+
+
+    /**
+     * Set whether to walk all action mappings of the module once the context
+     * has been refreshed, pre-instantiating the corresponding Action beans and
+     * checking their forwards. Problems get logged as startup report.
+     * Default is "false".
      *
-     * @return the created WebApplicationContext
-     * @throws org.springframework.beans.BeansException if the context couldn't be initialized
-     * @throws IllegalStateException                    if there is already a context for the Struts ActionServlet
-     * @see #getActionServlet()
-     * @see #getServletName()
-     * @see #getServletContext()
-     * @see #getModuleConfig()
-     * @see #getModulePrefix()
+     * @param warmUpActions whether to warm up the Action beans on startup
+     * @see #warmUpActions
      */
-    protected WebApplicationContext initWebApplicationContext() throws BeansException, IllegalStateException {
-        getServletContext().log("Initializing WebApplicationContext for Struts ActionServlet '" +
-                getServletName() + "', module '" + getModulePrefix() + "'");
-        WebApplicationContext parent = WebApplicationContextUtils.getWebApplicationContext(getServletContext());
+    public void setWarmUpActions(boolean warmUpActions) {
+        this.warmUpActions = warmUpActions;
+    }
 
-        WebApplicationContext wac = createWebApplicationContext(parent);
-        if (logger.isInfoEnabled()) {
-            logger.info("Using context class '" + wac.getClass().getName() + "' for servlet '" + getServletName() + "'");
-        }
+    /**
+     * Return whether to warm up the Action beans on startup.
+     * @return whether to warm up the Action beans on startup
+     */
+    public boolean isWarmUpActions() {
+        return this.warmUpActions;
+    }
 
-        // Publish the context as a servlet context attribute.
-        String attrName = getServletContextAttributeName();
-        getServletContext().setAttribute(attrName, wac);
-        if (logger.isDebugEnabled()) {
-            logger.debug("Published WebApplicationContext of Struts ActionServlet '" + getServletName() +
-                    "', module '" + getModulePrefix() + "' as ServletContext attribute with name [" + attrName + "]");
-        }
+    /**
+     * Set whether problems found when warming up the Action beans should
+     * fail the initialization of this PlugIn, rather than just being logged.
+     * Default is "false".
+     *
+     * @param failOnInvalidActions whether to fail on invalid action mappings
+     * @see #setWarmUpActions
+     */
+    public void setFailOnInvalidActions(boolean failOnInvalidActions) {
+        this.failOnInvalidActions = failOnInvalidActions;
+    }
 
-        return wac;
+    /**
+     * Return whether to fail on invalid action mappings.
+     * @return whether to fail on invalid action mappings
+     */
+    public boolean isFailOnInvalidActions() {
+        return this.failOnInvalidActions;
     }
 
     /**
-     * Instantiate the WebApplicationContext for the ActionServlet, either a default
-     * XmlWebApplicationContext or a custom context class if set.
-     * <p>This implementation expects custom contexts to implement ConfigurableWebApplicationContext.
-     * Can be overridden in subclasses.
+     * Set whether to register bean definitions for the {@link StrutsActionBean}
+     * classes of this PlugIn's module, as recorded in the index written at
+     * build time. Bean definitions from the context configuration take
+     * precedence over indexed ones with the same name. Default is "false".
+     * <p>Indexed beans are named after the module prefix plus the mapping
+     * path, matching the default {@link ActionBeanNameResolver} only.
      *
-     * @param parent the WebApplicationContext parent
-     * @return the created WebApplicationContext
-     * @throws org.springframework.beans.BeansException if the context couldn't be initialized
-     * @see #setContextClass
-     * @see org.springframework.web.context.support.XmlWebApplicationContext
+     * @param registerIndexedActions whether to register the indexed Action beans
+     * @see StrutsActionBeanIndex
+     * @see #registerIndexedActions
      */
-    protected WebApplicationContext createWebApplicationContext(WebApplicationContext parent)
-            throws BeansException {
+    public void setRegisterIndexedActions(boolean registerIndexedActions) {
+        this.registerIndexedActions = registerIndexedActions;
+    }
 
-        if (logger.isDebugEnabled()) {
-            logger.debug("ContextLoaderPlugIn for Struts ActionServlet '" + getServletName() +
-                    "', module '" + getModulePrefix() + "' will try to create custom WebApplicationContext " +
-                    "context of class '" + getContextClass().getName() + "', using parent context [" + parent + "]");
-        }
-        if (!ConfigurableWebApplicationContext.class.isAssignableFrom(getContextClass())) {
-            throw new ApplicationContextException(
-                    "Fatal initialization error in ContextLoaderPlugIn for Struts ActionServlet '" + getServletName() +
-                            "', module '" + getModulePrefix() + "': custom WebApplicationContext class [" +
-                            getContextClass().getName() + "] is not of type ConfigurableWebApplicationContext");
-        }
+    /**
+     * Return whether to register the indexed Action beans.
+     * @return whether to register the indexed Action beans
+     */
+    public boolean isRegisterIndexedActions() {
+        return this.registerIndexedActions;
+    }
 
-        ConfigurableWebApplicationContext wac =
-                (ConfigurableWebApplicationContext) BeanUtils.instantiateClass(getContextClass());
-        wac.setParent(parent);
-        wac.setServletContext(getServletContext());
-        wac.setNamespace(getNamespace());
-        if (getContextConfigLocation() != null) {
-            wac.setConfigLocations(
-                    StringUtils.tokenizeToStringArray(
-                            getContextConfigLocation(), ConfigurableWebApplicationContext.CONFIG_LOCATION_DELIMITERS));
-        }
-        wac.addBeanFactoryPostProcessor(
-                beanFactory -> {
-                    beanFactory.addBeanPostProcessor(new ActionServletAwareProcessor(getActionServlet()));
-                    beanFactory.ignoreDependencyType(ActionServlet.class);
-                }
-        );
+    /**
+     * Set whether to collect invocation count, error count and latency
+     * histogram per action mapping of this PlugIn's module. The
+     * {@link ActionMetrics} get published as ServletContext attribute,
+     * for the request processors and DelegatingActionProxy to record into,
+     * and registered as MBean with the platform MBeanServer.
+     * Default is "false".
+     *
+     * @param collectActionMetrics whether to collect per-mapping metrics
+     * @see #initActionMetrics
+     */
+    public void setCollectActionMetrics(boolean collectActionMetrics) {
+        this.collectActionMetrics = collectActionMetrics;
+    }
 
-        wac.refresh();
-        return wac;
+    /**
+     * Return whether to collect per-mapping metrics.
+     * @return whether to collect per-mapping metrics
+     */
+    public boolean isCollectActionMetrics() {
+        return this.collectActionMetrics;
     }
 
+
     /**
-     * Return the ServletContext attribute name for this PlugIn's WebApplicationContext.
-     * <p>The default implementation returns SERVLET_CONTEXT_PREFIX + module prefix.
+     * Set whether to refresh the context on an executor shared by the
+     * ContextLoaderPlugIns of all Struts modules, letting independent
+     * module contexts start concurrently. Default is "false".
+     * <p>The context gets published right away; lookups through
+     * {@link DelegatingActionUtils} wait for the refresh to complete.
+     * The {@code init} method waits for the refresh of its own context
+     * only, rethrowing a refresh failure, before it completes the
+     * initialization of the module on the calling thread. Only applies
+     * to contexts published under the default ServletContext attribute name.
      *
-     * @return the ServletContext attribute name for this PlugIn's WebApplicationContext
-     * @see #SERVLET_CONTEXT_PREFIX
-     * @see #getModulePrefix()
+     * @param parallelRefresh whether to refresh the context in the background
+     * @see #setMaxRefreshThreads
      */
-    public String getServletContextAttributeName() {
-        return SERVLET_CONTEXT_PREFIX + getModulePrefix();
+    public void setParallelRefresh(boolean parallelRefresh) {
+        this.parallelRefresh = parallelRefresh;
     }
 
     /**
-     * Return this PlugIn's WebApplicationContext.
-     * @return this PlugIn's WebApplicationContext.
+     * Return whether to refresh the context in the background.
+     * @return whether to refresh the context in the background
      */
-    public final WebApplicationContext getWebApplicationContext() {
-        return webApplicationContext;
+    public boolean isParallelRefresh() {
+        return this.parallelRefresh;
     }
 
     /**
-     * Callback for custom initialization after the context has been set up.
+     * Set the maximum number of module contexts to refresh concurrently,
+     * if "parallelRefresh" is set. The first PlugIn to schedule a refresh
+     * determines the bound for all modules. Default is the number of processors.
      *
-     * @throws ServletException if initialization failed
+     * @param maxRefreshThreads the maximum number of concurrent refreshes
+     * @throws IllegalArgumentException if the number is not positive
+     * @see #setParallelRefresh
      */
-    protected void onInit() throws ServletException {
+    public void setMaxRefreshThreads(int maxRefreshThreads) {
+        Assert.isTrue(maxRefreshThreads > 0, "maxRefreshThreads must be greater than 0");
+        this.maxRefreshThreads = maxRefreshThreads;
     }
 
+    /**
+     * Return the maximum number of module contexts to refresh concurrently.
+     * @return the maximum number of concurrent refreshes
+     */
+    public int getMaxRefreshThreads() {
+        return this.maxRefreshThreads;
+    }
 
     /**
-     * Close the WebApplicationContext of the ActionServlet.
+     * Set whether to watch the config files of the context and reload the
+     * context when they change. Default is "false".
+     * <p>The config locations that resolve to files in the file system get
+     * watched, not the files that they import. On a change, a new context
+     * gets created and refreshed in the background, published in place of
+     * the current one, and the current one gets closed once the requests
+     * being processed against it have completed. If the new context fails
+     * to refresh, or fails the Action warm-up with "failOnInvalidActions" set,
+     * the current one stays in place.
      *
-     * @see org.springframework.context.ConfigurableApplicationContext#close()
+     * @param reloadOnChange whether to reload the context on config file changes
+     * @see #reloadWebApplicationContext
+     * @see #setReloadDelay
      */
-    public void destroy() {
+    public void setReloadOnChange(boolean reloadOnChange) {
+        this.reloadOnChange = reloadOnChange;
+    }
+
+    /**
+     * Return whether to reload the context on config file changes.
+     * @return whether to reload the context on config file changes
+     */
+    public boolean isReloadOnChange() {
+        return this.reloadOnChange;
+    }
+
+    /**
+     * Set the time to wait for further config file changes before reloading,
+     * in milliseconds, so that a series of changes results in a single reload.
+     * Default is 500.
+     *
+     * @param reloadDelay the time to wait for further changes, in milliseconds
+     * @see #setReloadOnChange
+     */
+    public void setReloadDelay(long reloadDelay) {
+        this.reloadDelay = reloadDelay;
+    }
+
+    /**
+     * Return the time to wait for further config file changes before reloading.
+     * @return the time to wait for further changes, in milliseconds
+     */
+    public long getReloadDelay() {
+        return this.reloadDelay;
+    }
+
+    /**
+     * Set the maximum time to wait for the requests in flight against the
+     * context to complete before closing it, on {@code destroy} as well as
+     * on a reload, in milliseconds. Default is 30000.
+     * <p>The requests are counted by the request processors. Once the timeout
+     * has elapsed, the context gets closed regardless, logging the number of
+     * requests still in flight. Set to 0 to close the context right away.
+     *
+     * @param drainTimeout the maximum time to wait, in milliseconds
+     * @see InFlightRequests
+     */
+    public void setDrainTimeout(long drainTimeout) {
+        this.drainTimeout = drainTimeout;
+    }
+
+    /**
+     * Return the maximum time to wait for requests in flight before closing the context.
+     * @return the maximum time to wait, in milliseconds
+     */
+    public long getDrainTimeout() {
+        return this.drainTimeout;
+    }
+
+
+    /**
+     * Set whether to profile the startup of this PlugIn's module. Default is "false".
+     * <p>The {@link StartupReport} lists the duration of the phases
+     * "createContext", "loadBeanDefinitions" (creating the bean factory and
+     * reading the config locations), "postProcessBeanFactory" (running bean
+     * factory post-processors), "instantiateSingletons" (the rest of the
+     * refresh), and "actionMetrics", "warmUpActions" and "onInit" where
+     * applicable. With the default context class or CachingXmlWebApplicationContext,
+     * reading each config location gets a phase of its own, named
+     * "loadBeanDefinitions:" plus the location, and the bean definition
+     * registry post-processors count towards "postProcessBeanFactory"; otherwise
+     * they count towards "loadBeanDefinitions". The slowest beans get listed
+     * with their instantiation times.
+     * <p>The report gets published as ServletContext attribute and registered
+     * as MBean with the platform MBeanServer once the module is initialized.
+     *
+     * @param collectStartupReport whether to profile the startup
+     * @see #setWriteStartupReport
+     * @see StartupReport#SERVLET_CONTEXT_PREFIX
+     */
+    public void setCollectStartupReport(boolean collectStartupReport) {
+        this.collectStartupReport = collectStartupReport;
+    }
+
+    /**
+     * Return whether to profile the startup of the module.
+     * @return whether to profile the startup of the module
+     */
+    public boolean isCollectStartupReport() {
+        return this.collectStartupReport;
+    }
+
+    /**
+     * Set the number of slowest beans to keep in the startup report.
+     * Default is 20.
+     *
+     * @param startupReportBeans the number of slowest beans to keep
+     * @see StartupReport#DEFAULT_MAX_BEANS
+     */
+    public void setStartupReportBeans(int startupReportBeans) {
+        this.startupReportBeans = startupReportBeans;
+    }
+
+    /**
+     * Return the number of slowest beans to keep in the startup report.
+     * @return the number of slowest beans to keep
+     */
+    public int getStartupReportBeans() {
+        return this.startupReportBeans;
+    }
+
+    /**
+     * Set whether to write the startup report as JSON file to the temp
+     * directory ("java.io.tmpdir"), named after the ActionServlet and module,
+     * if "collectStartupReport" is set. Default is "false".
+     *
+     * @param writeStartupReport whether to write the startup report as JSON file
+     * @see #setCollectStartupReport
+     */
+    public void setWriteStartupReport(boolean writeStartupReport) {
+        this.writeStartupReport = writeStartupReport;
+    }
+
+    /**
+     * Return whether to write the startup report as JSON file.
+     * @return whether to write the startup report as JSON file
+     */
+    public boolean isWriteStartupReport() {
+        return this.writeStartupReport;
+    }
+
+    /**
+     * Set whether to refresh the context with all singletons deferred,
+     * instantiating them on a background thread once the context is ready.
+     * Default is "false".
+     * <p>Singletons needed before the warm-up gets to them are created on
+     * demand. Bean definitions that are lazy-init already stay untouched.
+     *
+     * @param lazyInit whether to defer singletons to a background warm-up
+     * @see #deferSingletons
+     * @see #startSingletonWarmUp
+     */
+    public void setLazyInit(boolean lazyInit) {
+        this.lazyInit = lazyInit;
+    }
+
+    /**
+     * Return whether to defer singletons to a background warm-up.
+     * @return whether to defer singletons to a background warm-up
+     */
+    public boolean isLazyInit() {
+        return this.lazyInit;
+    }
+
+
+    /**
+     * Create the ActionServlet's WebApplicationContext.
+     *
+     * @param actionServlet the actionServlet
+     * @param moduleConfig the moduleConfig
+     */
+    public final void init(ActionServlet actionServlet, ModuleConfig moduleConfig) throws ServletException {
+        long startTime = System.currentTimeMillis();
+        if (logger.isInfoEnabled()) {
+            logger.info("ContextLoaderPlugIn for Struts ActionServlet '" + actionServlet.getServletName() +
+                    ", module '" + moduleConfig.getPrefix() + "': initialization started");
+        }
+
+        this.actionServlet = actionServlet;
+        this.moduleConfig = moduleConfig;
+        if (isCollectStartupReport()) {
+            this.startupReport = new StartupReport(
+                    actionServlet.getServletName(), moduleConfig.getPrefix(), getStartupReportBeans());
+            this.startupReport.startPhase("createContext");
+        }
+        try {
+            this.webApplicationContext = initWebApplicationContext();
+            if (this.pendingRefresh != null) {
+                awaitPendingRefresh();
+            }
+            initModuleServices();
+        } catch (RuntimeException ex) {
+            logger.error("Context initialization failed", ex);
+            throw ex;
+        }
+        logInitializationCompleted(startTime);
+    }
+
+    private void initModuleServices() throws ServletException {
+        StartupReport startupReport = this.startupReport;
+        if (this.deferredSingletonNames != null) {
+            startSingletonWarmUp(this.deferredSingletonNames);
+            this.deferredSingletonNames = null;
+        }
+        if (isCollectActionMetrics()) {
+            startPhase(startupReport, "actionMetrics");
+            initActionMetrics();
+        }
+        if (isWarmUpActions()) {
+            startPhase(startupReport, "warmUpActions");
+            reportActionProblems(warmUpActions());
+        }
+        startPhase(startupReport, "onInit");
+        onInit();
+        if (startupReport != null) {
+            startupReport.complete();
+            publishStartupReport(startupReport);
+        }
+        if (isReloadOnChange()) {
+            startReloadWatcher();
+        }
+    }
+
+    /**
+     * Start the thread that watches the config files of the context,
+     * reloading the context on changes. Config locations that do not
+     * resolve to files in the file system are not watched.
+     *
+     * @see #setReloadOnChange
+     */
+    private void startReloadWatcher() {
+        Set<Path> files = new HashSet<>();
+        WatchService watchService = null;
+        try {
+            WebApplicationContext wac = getWebApplicationContext();
+            if (wac instanceof AnnotationConfigWebApplicationContext) {
+                logger.warn("Cannot watch the annotation-based context of Struts ActionServlet '" +
+                        getServletName() + "', module '" + getModulePrefix() + "' for changes");
+                return;
+            }
+            String[] configLocations = getConfigLocations();
+            if (configLocations == null) {
+                configLocations = new String[] {XmlWebApplicationContext.DEFAULT_CONFIG_LOCATION_PREFIX +
+                        getNamespace() + XmlWebApplicationContext.DEFAULT_CONFIG_LOCATION_SUFFIX};
+            }
+            for (String configLocation : configLocations) {
+                for (Resource resource : wac.getResources(configLocation)) {
+                    if (resource.isFile()) {
+                        files.add(resource.getFile().toPath().toAbsolutePath());
+                    } else {
+                        logger.warn("Cannot watch " + resource.getDescription() + " for changes: not a file");
+                    }
+                }
+            }
+            if (files.isEmpty()) {
+                return;
+            }
+            watchService = FileSystems.getDefault().newWatchService();
+            for (Path directory : files.stream().map(Path::getParent).collect(Collectors.toSet())) {
+                directory.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        } catch (IOException ex) {
+            logger.warn("Cannot watch config files of Struts ActionServlet '" + getServletName() +
+                    "', module '" + getModulePrefix() + "' for changes", ex);
+            closeWatchService(watchService);
+            return;
+        }
+        WatchService reloadWatchService = watchService;
+        Thread thread = new Thread(() -> watchConfigFiles(reloadWatchService, files),
+                "struts-context-reload-" + getServletName() + getModulePrefix());
+        thread.setDaemon(true);
+        thread.setContextClassLoader(Thread.currentThread().getContextClassLoader());
+        this.reloadWatchService = watchService;
+        this.reloadThread = thread;
+        thread.start();
+        if (logger.isInfoEnabled()) {
+            logger.info("Watching " + files + " for changes to reload the context of Struts ActionServlet '" +
+                    getServletName() + "', module '" + getModulePrefix() + "'");
+        }
+    }
+
+    private void watchConfigFiles(WatchService watchService, Set<Path> files) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                boolean changed = isConfigFileChanged(watchService.take(), files);
+                // Let a series of changes settle before reloading once.
+                WatchKey key;
+                while ((key = watchService.poll(getReloadDelay(), TimeUnit.MILLISECONDS)) != null) {
+                    changed |= isConfigFileChanged(key, files);
+                }
+                if (changed) {
+                    reloadWebApplicationContext();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            // Stopped on destroy.
+        }
+    }
+
+    private static boolean isConfigFileChanged(WatchKey key, Set<Path> files) {
+        boolean changed = false;
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW ||
+                    files.contains(directory.resolve((Path) event.context()))) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    private void closeWatchService(WatchService watchService) {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ex) {
+                logger.debug("Could not close WatchService", ex);
+            }
+        }
+    }
+
+    /**
+     * Reload the WebApplicationContext from the current configuration: create
+     * and refresh a new context, publish it in place of the current one,
+     * notify the request processors through a {@link ModuleContextReplacedEvent}
+     * on the current context, and close the current context once the requests
+     * in flight against it have completed, up to the drain timeout.
+     * <p>If the new context fails to refresh, has invalid Action mappings
+     * with "warmUpActions" and "failOnInvalidActions" set, or a request
+     * processor fails to switch to it, the current context stays in place
+     * and the new context gets closed. Called on config file changes if "reloadOnChange" is set;
+     * reloads are serialized.
+     *
+     * @return whether the context was replaced
+     * @see #setReloadOnChange
+     * @see #setDrainTimeout
+     * @see InFlightRequests
+     */
+    public boolean reloadWebApplicationContext() {
+        synchronized (this.reloadMonitor) {
+            long startTime = System.currentTimeMillis();
+            WebApplicationContext current = getWebApplicationContext();
+            WebApplicationContext wac;
+            try {
+                wac = createWebApplicationContext(this.sharedContext != null ? this.sharedContext :
+                        WebApplicationContextUtils.getWebApplicationContext(getServletContext()));
+                if (wac instanceof ConfigurableApplicationContext &&
+                        !((ConfigurableApplicationContext) wac).isActive()) {
+                    refreshContext((ConfigurableApplicationContext) wac);
+                }
+            } catch (RuntimeException ex) {
+                logger.error("Reloading the context of Struts ActionServlet '" + getServletName() + "', module '" +
+                        getModulePrefix() + "' failed: keeping the current context", ex);
+                this.deferredSingletonNames = null;
+                return false;
+            }
+            if (isWarmUpActions()) {
+                List<String> problems = warmUpActions(wac);
+                problems.forEach(logger::warn);
+                if (!problems.isEmpty() && isFailOnInvalidActions()) {
+                    logger.error("Reloaded context of Struts ActionServlet '" + getServletName() + "', module '" +
+                            getModulePrefix() + "' has invalid action mappings: keeping the current context");
+                    this.deferredSingletonNames = null;
+                    if (wac instanceof ConfigurableApplicationContext) {
+                        ((ConfigurableApplicationContext) wac).close();
+                    }
+                    return false;
+                }
+            }
+
+            InFlightRequests.register(wac);
+            publishReloadedContext(wac);
+            if (!switchToReloadedContext(current, wac)) {
+                // Requests may have entered against the reloaded context in the meantime.
+                publishReloadedContext(current);
+                this.deferredSingletonNames = null;
+                drainRequests(wac);
+                if (wac instanceof ConfigurableApplicationContext) {
+                    ((ConfigurableApplicationContext) wac).close();
+                }
+                InFlightRequests.unregister(wac);
+                return false;
+            }
+            stopSingletonWarmUp();
+            if (this.deferredSingletonNames != null) {
+                startSingletonWarmUp(this.deferredSingletonNames);
+                this.deferredSingletonNames = null;
+            }
+            if (current instanceof ConfigurableApplicationContext) {
+                drainRequests(current);
+                ((ConfigurableApplicationContext) current).close();
+            }
+            InFlightRequests.unregister(current);
+            if (logger.isInfoEnabled()) {
+                logger.info("Reloaded the context of Struts ActionServlet '" + getServletName() + "', module '" +
+                        getModulePrefix() + "' in " + (System.currentTimeMillis() - startTime) + " ms");
+            }
+            return true;
+        }
+    }
+
+    private void publishReloadedContext(WebApplicationContext wac) {
+        String attrName = getServletContextAttributeName();
+        getServletContext().setAttribute(attrName, wac);
+        if (attrName.equals(SERVLET_CONTEXT_PREFIX + getModulePrefix())) {
+            ModuleContextRegistry.registerContext(getServletContext(), getModulePrefix(), wac, null);
+        }
+        this.webApplicationContext = wac;
+    }
+
+    /**
+     * Switch the request processors from the current context to the reloaded
+     * one, through a {@link ModuleContextReplacedEvent} on the current context.
+     * If a processor fails to switch, the processors that did switch already
+     * get switched back through a {@link ModuleContextReplacedEvent} on the
+     * reloaded context, which they observe by then.
+     *
+     * @param current the current WebApplicationContext
+     * @param wac     the reloaded WebApplicationContext
+     * @return whether all processors switched to the reloaded context
+     */
+    private boolean switchToReloadedContext(WebApplicationContext current, WebApplicationContext wac) {
+        if (!(current instanceof ConfigurableApplicationContext)) {
+            return true;
+        }
+        try {
+            current.publishEvent(new ModuleContextReplacedEvent(current, wac));
+            return true;
+        } catch (RuntimeException ex) {
+            logger.error("Switching to the reloaded context of Struts ActionServlet '" + getServletName() +
+                    "', module '" + getModulePrefix() + "' failed: keeping the current context", ex);
+        }
+        try {
+            wac.publishEvent(new ModuleContextReplacedEvent(wac, current));
+        } catch (RuntimeException ex) {
+            logger.error("Switching back to the current context of Struts ActionServlet '" + getServletName() +
+                    "', module '" + getModulePrefix() + "' failed", ex);
+        }
+        return false;
+    }
+
+    /**
+     * Wait for the requests in flight against the given context to complete,
+     * up to the drain timeout, logging how long that took.
+     *
+     * @param wac the WebApplicationContext about to be closed
+     * @return whether all requests completed in time
+     */
+    private boolean drainRequests(WebApplicationContext wac) {
+        InFlightRequests inFlightRequests = InFlightRequests.getInstance(wac);
+        if (inFlightRequests == null || inFlightRequests.getCount() == 0) {
+            return true;
+        }
+        long startTime = System.currentTimeMillis();
+        boolean drained = false;
+        if (getDrainTimeout() > 0) {
+            try {
+                drained = inFlightRequests.awaitCompletion(getDrainTimeout(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        long drainTime = System.currentTimeMillis() - startTime;
+        if (drained) {
+            if (logger.isInfoEnabled()) {
+                logger.info("Drained the requests in flight against the context of Struts ActionServlet '" +
+                        getServletName() + "', module '" + getModulePrefix() + "' in " + drainTime + " ms");
+            }
+        } else if (logger.isWarnEnabled()) {
+            logger.warn("Closing the context of Struts ActionServlet '" + getServletName() + "', module '" +
+                    getModulePrefix() + "' with " + inFlightRequests.getCount() +
+                    " requests still in flight after " + drainTime + " ms");
+        }
+        return drained;
+    }
+
+    private static void startPhase(StartupReport startupReport, String phase) {
+        if (startupReport != null && !startupReport.isComplete()) {
+            startupReport.startPhase(phase);
+        }
+    }
+
+    /**
+     * Refresh the given context, recording the refresh phases in the
+     * startup report, if any.
+     */
+    private void refreshContext(ConfigurableApplicationContext wac) {
+        startPhase(this.startupReport, "loadBeanDefinitions");
+        wac.refresh();
+        startPhase(this.startupReport, "publishContext");
+    }
+
+    private void logInitializationCompleted(long startTime) {
+        if (logger.isInfoEnabled()) {
+            long elapsedTime = System.currentTimeMillis() - startTime;
+            logger.info("ContextLoaderPlugIn for Struts ActionServlet '" + getServletName() +
+                    "', module '" + getModulePrefix() + "': initialization completed in " + elapsedTime + " ms");
+        }
+    }
+
+    /**
+     * Refresh the given context on the shared refresh executor, publishing it
+     * as ServletContext attribute once refreshed.
+     */
+    private void refreshInBackground(ConfigurableApplicationContext wac, String attrName) {
+        // A refresh failure gets logged by init, which waits for the refresh.
+        refreshContext(wac);
+        getServletContext().setAttribute(attrName, wac);
+    }
+
+    /**
+     * Wait for the background refresh of the context on initialization,
+     * unregistering the context if the refresh failed.
+     */
+    private void awaitPendingRefresh() throws ApplicationContextException {
+        try {
+            awaitRefresh();
+        } catch (RuntimeException ex) {
+            ModuleContextRegistry.unregisterContext(getServletContext(), getModulePrefix(), this.webApplicationContext);
+            releaseSharedContext();
+            throw ex;
+        }
+    }
+
+    /**
+     * Wait for the pending background refresh of the context to complete.
+     */
+    private void awaitRefresh() throws ApplicationContextException {
+        try {
+            this.pendingRefresh.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ApplicationContextException("Interrupted while waiting for context refresh", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new ApplicationContextException("Context refresh failed", ex.getCause());
+        }
+    }
+
+    /**
+     * Return the Struts ActionServlet that this PlugIn is associated with.
+     *
+     * @return the Struts ActionServlet that this PlugIn is associated with
+     */
+    public final ActionServlet getActionServlet() {
+        return actionServlet;
+    }
+
+    /**
+     * Return the name of the ActionServlet that this PlugIn is associated with.
+     *
+     * @return the name of the ActionServlet that this PlugIn is associated with
+     */
+    public final String getServletName() {
+        return this.actionServlet.getServletName();
+    }
+
+    /**
+     * Return the ServletContext that this PlugIn is associated with.
+     *
+     * @return the ServletContext that this PlugIn is associated with.
+     */
+    public final ServletContext getServletContext() {
+        return this.actionServlet.getServletContext();
+    }
+
+    /**
+     * Return the Struts ModuleConfig that this PlugIn is associated with.
+     *
+     * @return the Struts ModuleConfig that this PlugIn is associated with.
+     */
+    public final ModuleConfig getModuleConfig() {
+        return this.moduleConfig;
+    }
+
+    /**
+     * Return the prefix of the ModuleConfig that this PlugIn is associated with.
+     *
+     * @see org.apache.struts.config.ModuleConfig#getPrefix
+     * @return the prefix of the ModuleConfig that this PlugIn is associated with.
+     */
+    public final String getModulePrefix() {
+        return this.moduleConfig.getPrefix();
+    }
+
+    /**
+     * Initialize and publish the WebApplicationContext for the ActionServlet.
+     * <p>Delegates to {@link #createWebApplicationContext} for actual creation.
+     * <p>Besides the ServletContext attribute, the context gets registered
+     * for fast resolution through {@link DelegatingActionUtils}, unless a
+     * custom attribute name is used. With "parallelRefresh", such a registered
+     * context gets refreshed in the background and published as ServletContext
+     * attribute once refreshed.
+     * <p>Can be overridden in subclasses. Call {@code getActionServlet()}
+     * and/or {@code getModuleConfig()} to access the Struts configuration
+     * that this PlugIn is associated with.
+     *
+     * @return the created WebApplicationContext
+     * @throws org.springframework.beans.BeansException if the context couldn't be initialized
+     * @throws IllegalStateException                    if there is already a context for the Struts ActionServlet
+     * @see #getActionServlet()
+     * @see #getServletName()
+     * @see #getServletContext()
+     * @see #getModuleConfig()
+     * @see #getModulePrefix()
+     */
+    protected WebApplicationContext initWebApplicationContext() throws BeansException, IllegalStateException {
+        getServletContext().log("Initializing WebApplicationContext for Struts ActionServlet '" +
+                getServletName() + "', module '" + getModulePrefix() + "'");
+        WebApplicationContext root = WebApplicationContextUtils.getWebApplicationContext(getServletContext());
+
+        WebApplicationContext parent = root;
+        String[] sharedLocations = getSharedConfigLocations();
+        if (sharedLocations.length > 0) {
+            this.sharedContext = SharedContextRegistry.obtainContext(getServletContext(), sharedLocations,
+                    () -> createSharedWebApplicationContext(root, sharedLocations));
+            parent = this.sharedContext;
+        }
+        WebApplicationContext wac;
+        try {
+            wac = createWebApplicationContext(parent);
+        } catch (RuntimeException ex) {
+            releaseSharedContext();
+            throw ex;
+        }
+        InFlightRequests.register(wac);
+        if (logger.isInfoEnabled()) {
+            logger.info("Using context class '" + wac.getClass().getName() + "' for servlet '" + getServletName() + "'");
+        }
+
+        // Publish the context as a servlet context attribute.
+        String attrName = getServletContextAttributeName();
+        boolean registered = attrName.equals(SERVLET_CONTEXT_PREFIX + getModulePrefix());
+        if (wac instanceof ConfigurableApplicationContext && !((ConfigurableApplicationContext) wac).isActive()) {
+            ConfigurableApplicationContext cac = (ConfigurableApplicationContext) wac;
+            if (registered && isParallelRefresh()) {
+                this.pendingRefresh = ModuleContextRegistry.registerPendingContext(
+                        getServletContext(), getModulePrefix(), wac, root,
+                        () -> refreshInBackground(cac, attrName), getMaxRefreshThreads());
+                return wac;
+            }
+            refreshContext(cac);
+        }
+        getServletContext().setAttribute(attrName, wac);
+        if (registered) {
+            ModuleContextRegistry.registerContext(getServletContext(), getModulePrefix(), wac, root);
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Published WebApplicationContext of Struts ActionServlet '" + getServletName() +
+                    "', module '" + getModulePrefix() + "' as ServletContext attribute with name [" + attrName + "]");
+        }
+
+        return wac;
+    }
+
+    /**
+     * Instantiate the WebApplicationContext for the ActionServlet, either a default
+     * XmlWebApplicationContext, an AnnotationConfigWebApplicationContext if
+     * "annotatedClasses" or "basePackages" are set, or a custom context class if set.
+     * <p>This implementation expects custom contexts to implement ConfigurableWebApplicationContext.
+     * The context is left for {@link #initWebApplicationContext} to refresh if
+     * "parallelRefresh" is set. Can be overridden in subclasses.
+     *
+     * @param parent the WebApplicationContext parent
+     * @return the created WebApplicationContext
+     * @throws org.springframework.beans.BeansException if the context couldn't be initialized
+     * @see #setContextClass
+     * @see org.springframework.web.context.support.XmlWebApplicationContext
+     */
+    protected WebApplicationContext createWebApplicationContext(WebApplicationContext parent)
+            throws BeansException {
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("ContextLoaderPlugIn for Struts ActionServlet '" + getServletName() +
+                    "', module '" + getModulePrefix() + "' will try to create custom WebApplicationContext " +
+                    "context of class '" + getContextClass().getName() + "', using parent context [" + parent + "]");
+        }
+        Class<?> contextClass = getContextClass();
+        if (isAnnotationConfig()) {
+            if (contextClass == DEFAULT_CONTEXT_CLASS) {
+                contextClass = AnnotationConfigWebApplicationContext.class;
+            } else if (!AnnotationConfigWebApplicationContext.class.isAssignableFrom(contextClass)) {
+                throw new ApplicationContextException(
+                        "Fatal initialization error in ContextLoaderPlugIn for Struts ActionServlet '" +
+                                getServletName() + "', module '" + getModulePrefix() +
+                                "': custom WebApplicationContext class [" + contextClass.getName() +
+                                "] is not of type AnnotationConfigWebApplicationContext, as required by " +
+                                "\"annotatedClasses\" and \"basePackages\"");
+            }
+        }
+        ConfigurableWebApplicationContext wac;
+        StartupReport startupReport = this.startupReport;
+        if (startupReport != null && !startupReport.isComplete() && contextClass == DEFAULT_CONTEXT_CLASS) {
+            wac = new ProfilingXmlWebApplicationContext(startupReport);
+        } else {
+            wac = instantiateWebApplicationContext(contextClass);
+            if (startupReport != null && wac instanceof CachingXmlWebApplicationContext) {
+                ((CachingXmlWebApplicationContext) wac).setStartupReport(startupReport);
+            }
+        }
+        wac.setParent(parent);
+        wac.setServletContext(getServletContext());
+        wac.setNamespace(getNamespace());
+        String[] configLocations = getConfigLocations();
+        if (configLocations != null) {
+            wac.setConfigLocations(configLocations);
+        }
+        if (wac instanceof AnnotationConfigWebApplicationContext) {
+            configureAnnotationConfig((AnnotationConfigWebApplicationContext) wac);
+        }
+        PooledActionScope pooledActionScope = new PooledActionScope(getMaxPooledActions());
+        wac.addApplicationListener(pooledActionScope);
+        wac.addBeanFactoryPostProcessor(
+                beanFactory -> {
+                    StartupReport report = this.startupReport;
+                    if (report != null && !report.isComplete()) {
+                        // Runs ahead of the post-processors defined in the context; the registered
+                        // singletons run after them, as they come last among the unordered ones.
+                        report.startPhase(StartupReport.POST_PROCESS_BEAN_FACTORY_PHASE);
+                        beanFactory.addBeanPostProcessor(report.createBeanTimingPostProcessor());
+                        beanFactory.registerSingleton(STARTUP_REPORT_PHASE_BEAN_NAME,
+                                (BeanFactoryPostProcessor) bf -> startPhase(report, "instantiateSingletons"));
+                        beanFactory.registerSingleton(STARTUP_REPORT_CALLBACKS_BEAN_NAME,
+                                report.createCallbackTimingPostProcessor());
+                    }
+                    beanFactory.addBeanPostProcessor(new ActionServletAwareProcessor(getActionServlet()));
+                    beanFactory.ignoreDependencyType(ActionServlet.class);
+                    beanFactory.registerScope(PooledActionScope.SCOPE_NAME, pooledActionScope);
+                    if (isRegisterIndexedActions()) {
+                        registerIndexedActions(beanFactory);
+                    }
+                    if (isLazyInit()) {
+                        this.deferredSingletonNames = deferSingletons(beanFactory);
+                    }
+                }
+        );
+
+        if (!isParallelRefresh()) {
+            refreshContext(wac);
+        }
+        return wac;
+    }
+
+    private boolean isAnnotationConfig() {
+        return (StringUtils.hasText(getAnnotatedClasses()) || StringUtils.hasText(getBasePackages()));
+    }
+
+    /**
+     * Register the annotated classes and base packages with the given context,
+     * logging whether the base packages get looked up in the candidate
+     * components index or scanned for.
+     */
+    private void configureAnnotationConfig(AnnotationConfigWebApplicationContext wac) {
+        String[] annotatedClasses = StringUtils.tokenizeToStringArray(
+                getAnnotatedClasses(), ConfigurableWebApplicationContext.CONFIG_LOCATION_DELIMITERS);
+        if (annotatedClasses.length > 0) {
+            ClassLoader classLoader = wac.getClassLoader();
+            Class<?>[] classes = new Class<?>[annotatedClasses.length];
+            for (int i = 0; i < annotatedClasses.length; i++) {
+                try {
+                    classes[i] = ClassUtils.forName(annotatedClasses[i], classLoader);
+                } catch (ClassNotFoundException | LinkageError ex) {
+                    throw new ApplicationContextException("Cannot load annotated class [" + annotatedClasses[i] +
+                            "] for Struts ActionServlet '" + getServletName() + "', module '" +
+                            getModulePrefix() + "'", ex);
+                }
+            }
+            wac.register(classes);
+        }
+        String[] basePackages = StringUtils.tokenizeToStringArray(
+                getBasePackages(), ConfigurableWebApplicationContext.CONFIG_LOCATION_DELIMITERS);
+        if (basePackages.length > 0) {
+            wac.scan(basePackages);
+            if (logger.isInfoEnabled()) {
+                // Cached per ClassLoader, and reused by the scanner of the context.
+                boolean indexed = (CandidateComponentsIndexLoader.loadIndex(wac.getClassLoader()) != null);
+                logger.info("Struts ActionServlet '" + getServletName() + "', module '" + getModulePrefix() +
+                        "' will " + (indexed ? "look up components in the candidate components index" :
+                        "scan the classpath for components") + " in base packages " + Arrays.toString(basePackages));
+            }
+        }
+    }
+
+    private String[] getConfigLocations() {
+        if (getContextConfigLocation() == null) {
+            return null;
+        }
+        List<String> configLocations = new ArrayList<>(Arrays.asList(StringUtils.tokenizeToStringArray(
+                getContextConfigLocation(), ConfigurableWebApplicationContext.CONFIG_LOCATION_DELIMITERS)));
+        configLocations.removeAll(Arrays.asList(getSharedConfigLocations()));
+        return StringUtils.toStringArray(configLocations);
+    }
+
+    private String[] getSharedConfigLocations() {
+        return StringUtils.tokenizeToStringArray(
+                getSharedContextConfigLocation(), ConfigurableWebApplicationContext.CONFIG_LOCATION_DELIMITERS);
+    }
+
+    /**
+     * Create and refresh the shared parent context for the given config
+     * locations, of the same context class as the module context.
+     * <p>Called by the first PlugIn that asks for the given locations only;
+     * the context must not depend on the PlugIn's module. Can be overridden
+     * in subclasses.
+     *
+     * @param parent          the root WebApplicationContext (can be {@code null})
+     * @param configLocations the config locations of the shared context
+     * @return the refreshed shared WebApplicationContext
+     * @throws BeansException if the context couldn't be initialized
+     * @see #setSharedContextConfigLocation
+     */
+    protected WebApplicationContext createSharedWebApplicationContext(WebApplicationContext parent,
+                                                                      String[] configLocations)
+            throws BeansException {
+
+        if (logger.isInfoEnabled()) {
+            logger.info("Creating shared WebApplicationContext for config locations " +
+                    Arrays.toString(configLocations) + " on behalf of Struts ActionServlet '" +
+                    getServletName() + "', module '" + getModulePrefix() + "'");
+        }
+        ConfigurableWebApplicationContext wac = instantiateWebApplicationContext(getContextClass());
+        wac.setParent(parent);
+        wac.setServletContext(getServletContext());
+        wac.setNamespace(SHARED_CONTEXT_NAMESPACE);
+        wac.setConfigLocations(configLocations);
+        wac.refresh();
+        return wac;
+    }
+
+    /**
+     * Instantiate the given context class, which has to implement
+     * ConfigurableWebApplicationContext, for the module context or a
+     * shared context.
+     *
+     * @param contextClass the context class to instantiate
+     * @return the new, unconfigured context
+     * @throws ApplicationContextException if the context class does not
+     *                                     implement ConfigurableWebApplicationContext
+     */
+    private ConfigurableWebApplicationContext instantiateWebApplicationContext(Class<?> contextClass) {
+        if (!ConfigurableWebApplicationContext.class.isAssignableFrom(contextClass)) {
+            throw new ApplicationContextException(
+                    "Fatal initialization error in ContextLoaderPlugIn for Struts ActionServlet '" + getServletName() +
+                            "', module '" + getModulePrefix() + "': custom WebApplicationContext class [" +
+                            contextClass.getName() + "] is not of type ConfigurableWebApplicationContext");
+        }
+        return BeanUtils.instantiateClass(contextClass, ConfigurableWebApplicationContext.class);
+    }
+
+    private void releaseSharedContext() {
+        if (this.sharedContext != null) {
+            int references = SharedContextRegistry.releaseContext(getServletContext(), this.sharedContext);
+            if (references == 0 && logger.isInfoEnabled()) {
+                logger.info("Closed shared WebApplicationContext " + this.sharedContext.getDisplayName());
+            }
+            this.sharedContext = null;
+        }
+    }
+
+    /**
+     * Register bean definitions for the indexed {@link StrutsActionBean}
+     * classes of this PlugIn's module, unless the bean factory already
+     * contains a bean definition with the same name.
+     * <p>Called after the context configuration has been loaded, if
+     * "registerIndexedActions" is set.
+     *
+     * @param beanFactory the bean factory of the WebApplicationContext
+     * @throws BeansException if a bean definition could not be registered
+     * @see #setRegisterIndexedActions
+     * @see StrutsActionBeanIndex#loadIndex
+     */
+    protected void registerIndexedActions(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+        if (!(beanFactory instanceof BeanDefinitionRegistry)) {
+            throw new ApplicationContextException("Cannot register indexed Action beans: bean factory [" +
+                    beanFactory + "] is not a BeanDefinitionRegistry");
+        }
+        ClassLoader classLoader = beanFactory.getBeanClassLoader();
+        StrutsActionBeanIndex index = StrutsActionBeanIndex.loadIndex(
+                classLoader != null ? classLoader : ClassUtils.getDefaultClassLoader());
+        int registered = 0;
+        for (StrutsActionBeanIndex.Entry entry : index.getActionBeans(getModulePrefix())) {
+            if (!beanFactory.containsBeanDefinition(entry.getBeanName())) {
+                GenericBeanDefinition bd = new GenericBeanDefinition();
+                bd.setBeanClassName(entry.getClassName());
+                bd.setScope(entry.getScope());
+                ((BeanDefinitionRegistry) beanFactory).registerBeanDefinition(entry.getBeanName(), bd);
+                registered++;
+            }
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Registered " + registered + " indexed Action beans for Struts ActionServlet '" +
+                    getServletName() + "', module '" + getModulePrefix() + "'");
+        }
+    }
+
+    /**
+     * Mark all singleton bean definitions that would be instantiated on
+     * refresh as lazy-init, deferring them to the background warm-up.
+     * <p>Called after the context configuration has been loaded, if
+     * "lazyInit" is set. Post-processors are still instantiated on refresh.
+     *
+     * @param beanFactory the bean factory of the WebApplicationContext
+     * @return the names of the deferred singletons, in registration order
+     * @throws BeansException if a bean definition could not be resolved
+     * @see #setLazyInit
+     */
+    protected List<String> deferSingletons(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+        List<String> deferred = new ArrayList<>();
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition mbd = beanFactory.getMergedBeanDefinition(beanName);
+            if (mbd.isSingleton() && !mbd.isAbstract() && !mbd.isLazyInit()) {
+                beanFactory.getBeanDefinition(beanName).setLazyInit(true);
+                deferred.add(beanName);
+            }
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Deferred " + deferred.size() + " singletons of Struts ActionServlet '" +
+                    getServletName() + "', module '" + getModulePrefix() + "' to background warm-up");
+        }
+        return deferred;
+    }
+
+    /**
+     * Start a daemon thread that instantiates the given deferred singletons,
+     * like the context refresh would have done: FactoryBeans themselves,
+     * their objects only if eager, and {@link SmartInitializingSingleton}
+     * callbacks once all singletons are there. Beans that fail are logged
+     * and skipped, to fail again when requested.
+     *
+     * @param beanNames the names of the deferred singletons
+     * @see #setLazyInit
+     */
+    protected void startSingletonWarmUp(List<String> beanNames) {
+        if (!(getWebApplicationContext() instanceof ConfigurableApplicationContext)) {
+            return;
+        }
+        ConfigurableApplicationContext cac = (ConfigurableApplicationContext) getWebApplicationContext();
+        Thread thread = new Thread(() -> warmUpSingletons(cac, beanNames),
+                "struts-context-warmup-" + getServletName() + getModulePrefix());
+        thread.setDaemon(true);
+        thread.setContextClassLoader(Thread.currentThread().getContextClassLoader());
+        this.singletonWarmUpThread = thread;
+        thread.start();
+    }
+
+    private void warmUpSingletons(ConfigurableApplicationContext cac, List<String> beanNames) {
+        long startTime = System.currentTimeMillis();
+        ConfigurableListableBeanFactory beanFactory = cac.getBeanFactory();
+        int failures = 0;
+        for (String beanName : beanNames) {
+            if (Thread.currentThread().isInterrupted() || !cac.isActive()) {
+                return;
+            }
+            try {
+                if (beanFactory.isFactoryBean(beanName)) {
+                    Object factory = beanFactory.getBean(BeanFactory.FACTORY_BEAN_PREFIX + beanName);
+                    if (factory instanceof SmartFactoryBean && ((SmartFactoryBean<?>) factory).isEagerInit()) {
+                        beanFactory.getBean(beanName);
+                    }
+                } else {
+                    beanFactory.getBean(beanName);
+                }
+            } catch (BeansException ex) {
+                failures++;
+                logger.warn("Background warm-up of bean '" + beanName + "' failed: " + ex.getMessage());
+            }
+        }
+        for (String beanName : beanNames) {
+            if (Thread.currentThread().isInterrupted() || !cac.isActive()) {
+                return;
+            }
+            Object singleton = beanFactory.getSingleton(beanName);
+            if (singleton instanceof SmartInitializingSingleton) {
+                ((SmartInitializingSingleton) singleton).afterSingletonsInstantiated();
+            }
+        }
+        if (logger.isInfoEnabled()) {
+            logger.info("Background warm-up of " + beanNames.size() + " singletons for Struts ActionServlet '" +
+                    getServletName() + "', module '" + getModulePrefix() + "' completed in " +
+                    (System.currentTimeMillis() - startTime) + " ms, " + failures + " failure(s)");
+        }
+    }
+
+    /**
+     * Create the {@link ActionMetrics} for this PlugIn's module, publish them
+     * as ServletContext attribute and register them as MBean with the platform
+     * MBeanServer. A failed MBean registration is logged but does not fail
+     * the initialization.
+     * <p>The MBean is named after the web application, the ActionServlet and
+     * the module, e.g. "no.hackeriet.struts1Spring.struts:type=ActionMetrics,
+     * context="/app",servlet="action",module="/mymodule"".
+     *
+     * @see #setCollectActionMetrics
+     * @see ActionMetrics#SERVLET_CONTEXT_PREFIX
+     */
+    protected void initActionMetrics() {
+        ActionMetrics actionMetrics = new ActionMetrics();
+        getServletContext().setAttribute(ActionMetrics.SERVLET_CONTEXT_PREFIX + getModulePrefix(), actionMetrics);
+        this.actionMetricsObjectName = registerMBean(actionMetrics, "ActionMetrics");
+    }
+
+    /**
+     * Publish the completed startup report as ServletContext attribute and
+     * MBean, and write it as JSON file if "writeStartupReport" is set.
+     *
+     * @param startupReport the completed startup report
+     * @see #setCollectStartupReport
+     */
+    protected void publishStartupReport(StartupReport startupReport) {
+        getServletContext().setAttribute(StartupReport.SERVLET_CONTEXT_PREFIX + getModulePrefix(), startupReport);
+        this.startupReportObjectName = registerMBean(startupReport, "StartupReport");
+        if (logger.isInfoEnabled()) {
+            logger.info("Startup of Struts ActionServlet '" + getServletName() + "', module '" + getModulePrefix() +
+                    "': " + startupReport.getPhaseTimesMillis() + " ms, " + startupReport.getInstantiatedBeanCount() +
+                    " beans instantiated");
+        }
+        if (isWriteStartupReport()) {
+            File file = new File(System.getProperty("java.io.tmpdir"), "struts-startup-" + getServletName() +
+                    getModulePrefix().replace('/', '-') + ".json");
+            try {
+                Files.write(file.toPath(), startupReport.toJson().getBytes(StandardCharsets.UTF_8));
+                logger.info("Wrote startup report to [" + file + "]");
+            } catch (IOException ex) {
+                logger.warn("Could not write startup report to [" + file + "]", ex);
+            }
+        }
+    }
+
+    /**
+     * Register the given MBean of this PlugIn's module with the platform MBeanServer.
+     *
+     * @return the ObjectName, or {@code null} if the registration failed
+     */
+    private ObjectName registerMBean(Object mbean, String type) {
+        try {
+            ObjectName objectName = new ObjectName(ContextLoaderPlugIn.class.getPackage().getName() +
+                    ":type=" + type + ",context=" + ObjectName.quote(getServletContext().getContextPath()) +
+                    ",servlet=" + ObjectName.quote(getServletName()) + ",module=" + ObjectName.quote(getModulePrefix()));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, objectName);
+            return objectName;
+        } catch (JMException ex) {
+            logger.warn("Could not register " + type + " MBean for Struts ActionServlet '" + getServletName() +
+                    "', module '" + getModulePrefix() + "'", ex);
+            return null;
+        }
+    }
+
+    private void unregisterMBean(ObjectName objectName) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException ex) {
+            logger.warn("Could not unregister MBean [" + objectName + "]", ex);
+        }
+    }
+
+    /**
+     * Return the ServletContext attribute name for this PlugIn's WebApplicationContext.
+     * <p>The default implementation returns SERVLET_CONTEXT_PREFIX + module prefix.
+     *
+     * @return the ServletContext attribute name for this PlugIn's WebApplicationContext
+     * @see #SERVLET_CONTEXT_PREFIX
+     * @see #getModulePrefix()
+     */
+    public String getServletContextAttributeName() {
+        return SERVLET_CONTEXT_PREFIX + getModulePrefix();
+    }
+
+    /**
+     * Return this PlugIn's WebApplicationContext.
+     * @return this PlugIn's WebApplicationContext.
+     */
+    public final WebApplicationContext getWebApplicationContext() {
+        return webApplicationContext;
+    }
+
+    /**
+     * Pre-instantiate the Action bean of every action mapping of the module,
+     * and check the mappings against the context.
+     * <p>The default implementation resolves the bean name of each mapping
+     * through the {@link ActionBeanNameResolver} of the ActionServlet. Mappings
+     * of type {@link DelegatingActionProxy} require a corresponding bean; beans
+     * found for other mappings have to be Struts Actions compatible with the
+     * mapping type, if any. Non-singleton beans get instantiated once, with
+     * pooled instances being returned to their pool.
+     * <p>The forwards of each mapping get resolved against the module as
+     * well: a forward needs a path or a resolvable forward to extend, and
+     * a forward to an action path of this module, as determined by the
+     * servlet mapping of the ActionServlet, needs a corresponding mapping.
+     * Forwards to other modules, redirects and other resources such as
+     * JSPs are not checked.
+     * <p>Note that the mappings have not been frozen yet: mappings that extend
+     * another mapping are checked against the type of their ancestors, with
+     * cycles among the ancestors being reported.
+     *
+     * @return descriptions of the problems found, empty if none
+     * @see #setWarmUpActions
+     * @see DelegatingActionUtils#getActionBeanNameResolver
+     */
+    protected List<String> warmUpActions() {
+        return warmUpActions(getWebApplicationContext());
+    }
+
+    private List<String> warmUpActions(WebApplicationContext wac) {
+        ActionBeanNameResolver beanNameResolver = DelegatingActionUtils.getActionBeanNameResolver(getActionServlet());
+        String servletMapping = (String) getServletContext().getAttribute(Globals.SERVLET_KEY);
+        List<String> problems = new ArrayList<>();
+        int warmedUp = 0;
+        for (ActionConfig actionConfig : getModuleConfig().findActionConfigs()) {
+            String mappingDescription = "Action mapping '" + actionConfig.getPath() + "'";
+            ActionConfig typeConfig = determineTypeConfig(actionConfig, mappingDescription, problems);
+            String type = (typeConfig != null ? typeConfig.getType() : null);
+            boolean proxy = (typeConfig != null && DelegatingActionUtils.isDelegatingActionProxy(typeConfig));
+            String beanName = beanNameResolver.determineActionBeanName(actionConfig);
+            if (!wac.containsBean(beanName)) {
+                if (proxy) {
+                    problems.add(mappingDescription + ": no Action bean named '" + beanName + "'");
+                }
+            } else if (!wac.isTypeMatch(beanName, Action.class)) {
+                problems.add(mappingDescription + ": bean '" + beanName + "' of type [" +
+                        wac.getType(beanName) + "] is not a Struts Action");
+            } else if (type != null && !proxy && !isActionTypeMatch(wac, beanName, type)) {
+                problems.add(mappingDescription + ": bean '" + beanName + "' of type [" +
+                        wac.getType(beanName) + "] does not match mapping type [" + type + "]");
+            } else {
+                try {
+                    ActionDelegate delegate = ActionDelegate.forBean(wac, beanName);
+                    delegate.releaseAction(delegate.getAction());
+                    warmedUp++;
+                } catch (BeansException ex) {
+                    problems.add(mappingDescription + ": bean '" + beanName + "' could not be instantiated: " +
+                            ex.getMessage());
+                }
+            }
+            for (ForwardConfig forwardConfig : actionConfig.findForwardConfigs()) {
+                checkForward(forwardConfig, actionConfig, servletMapping, mappingDescription, problems);
+            }
+        }
+        if (logger.isInfoEnabled()) {
+            logger.info("Warmed up " + warmedUp + " Action beans for Struts ActionServlet '" + getServletName() +
+                    "', module '" + getModulePrefix() + "': " + problems.size() + " problem(s) found");
+        }
+        return problems;
+    }
+
+    /**
+     * Log the given problems found during warm-up, failing the
+     * initialization if {@code failOnInvalidActions} is set.
+     *
+     * @param problems descriptions of the problems found
+     * @throws ApplicationContextException if there are problems and
+     *                                     {@code failOnInvalidActions} is set
+     * @see #setFailOnInvalidActions
+     */
+    protected void reportActionProblems(List<String> problems) throws ApplicationContextException {
+        if (problems.isEmpty()) {
+            return;
+        }
+        for (String problem : problems) {
+            logger.warn(problem);
+        }
+        if (isFailOnInvalidActions()) {
+            throw new ApplicationContextException(
+                    "Invalid action mappings for Struts ActionServlet '" + getServletName() + "', module '" +
+                            getModulePrefix() + "': " + StringUtils.collectionToDelimitedString(problems, "; "));
+        }
+    }
+
+    private ActionConfig determineTypeConfig(ActionConfig actionConfig, String mappingDescription,
+                                             List<String> problems) {
+        Set<ActionConfig> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        ActionConfig config = actionConfig;
+        while (config.getType() == null && config.getExtends() != null) {
+            if (!visited.add(config)) {
+                problems.add(mappingDescription + ": cyclic extends through mapping '" + config.getPath() + "'");
+                return null;
+            }
+            ActionConfig parent = getModuleConfig().findActionConfig(config.getExtends());
+            if (parent == null) {
+                break;
+            }
+            config = parent;
+        }
+        return config;
+    }
+
+    private void checkForward(ForwardConfig forwardConfig, ActionConfig actionConfig, String servletMapping,
+                              String mappingDescription, List<String> problems) {
+
+        String forwardDescription = mappingDescription + ": forward '" + forwardConfig.getName() + "'";
+        if (forwardConfig.getExtends() != null && findBaseForward(forwardConfig, actionConfig) == null) {
+            problems.add(forwardDescription + " extends unknown forward '" + forwardConfig.getExtends() + "'");
+        }
+        String path = forwardConfig.getPath();
+        if (!StringUtils.hasText(path)) {
+            if (forwardConfig.getExtends() == null) {
+                problems.add(forwardDescription + " has no path");
+            }
+            return;
+        }
+        if (forwardConfig.getRedirect() || forwardConfig.getModule() != null || servletMapping == null) {
+            return;
+        }
+        int queryIndex = path.indexOf('?');
+        String actionPath = determineActionPath(
+                (queryIndex != -1 ? path.substring(0, queryIndex) : path), servletMapping);
+        if (actionPath != null && getModuleConfig().findActionConfig(actionPath) == null) {
+            problems.add(forwardDescription + " refers to unknown action path '" + actionPath + "'");
+        }
+    }
+
+    /**
+     * Find the forward that the given forward extends, as Struts resolves it:
+     * among the forwards of the mapping and its ancestors first, then among
+     * the global forwards of the module.
+     */
+    private ForwardConfig findBaseForward(ForwardConfig forwardConfig, ActionConfig actionConfig) {
+        Set<ActionConfig> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        ActionConfig config = actionConfig;
+        while (config != null && visited.add(config)) {
+            ForwardConfig baseConfig = config.findForwardConfig(forwardConfig.getExtends());
+            if (baseConfig != null && baseConfig != forwardConfig) {
+                return baseConfig;
+            }
+            config = (config.getExtends() != null ? getModuleConfig().findActionConfig(config.getExtends()) : null);
+        }
+        return getModuleConfig().findForwardConfig(forwardConfig.getExtends());
+    }
+
+    /**
+     * Determine the action path that the given forward path refers to, for an
+     * extension mapping such as "*.do" or a path mapping such as "/do/*".
+     *
+     * @return the action path, or {@code null} if the path is not an action path
+     */
+    private String determineActionPath(String path, String servletMapping) {
+        if (servletMapping.startsWith("*.")) {
+            String extension = servletMapping.substring(1);
+            return (path.endsWith(extension) ? path.substring(0, path.length() - extension.length()) : null);
+        }
+        if (servletMapping.endsWith("/*")) {
+            String prefix = servletMapping.substring(0, servletMapping.length() - 2);
+            return (path.startsWith(prefix + "/") ? path.substring(prefix.length()) : null);
+        }
+        return null;
+    }
+
+    private boolean isActionTypeMatch(WebApplicationContext wac, String beanName, String type) {
+        try {
+            return wac.isTypeMatch(beanName, ClassUtils.forName(type, wac.getClassLoader()));
+        } catch (ClassNotFoundException | LinkageError ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Callback for custom initialization after the context has been set up.
+     *
+     * @throws ServletException if initialization failed
+     */
+    protected void onInit() throws ServletException {
+    }
+
+
+    /**
+     * Close the WebApplicationContext of the ActionServlet, once the requests
+     * in flight against it have completed or the drain timeout has elapsed.
+     *
+     * @see #setDrainTimeout
+     * @see org.springframework.context.ConfigurableApplicationContext#close()
+     */
+    public void destroy() {
         getServletContext().log("Closing WebApplicationContext of Struts ActionServlet '" +
                 getServletName() + "', module '" + getModulePrefix() + "'");
-        if (getWebApplicationContext() instanceof ConfigurableApplicationContext) {
+        stopReloadWatcher();
+        boolean refreshed = true;
+        if (this.pendingRefresh != null) {
+            try {
+                awaitRefresh();
+            } catch (RuntimeException ex) {
+                // A failed refresh has already destroyed the beans created so far.
+                refreshed = false;
+            }
+        }
+        stopSingletonWarmUp();
+        if (refreshed) {
+            // Still registered, so that requests in flight can look up the context.
+            drainRequests(getWebApplicationContext());
+        }
+        ModuleContextRegistry.unregisterContext(getServletContext(), getModulePrefix(), getWebApplicationContext());
+        if (isCollectActionMetrics()) {
+            getServletContext().removeAttribute(ActionMetrics.SERVLET_CONTEXT_PREFIX + getModulePrefix());
+        }
+        if (this.actionMetricsObjectName != null) {
+            unregisterMBean(this.actionMetricsObjectName);
+            this.actionMetricsObjectName = null;
+        }
+        if (this.startupReport != null) {
+            getServletContext().removeAttribute(StartupReport.SERVLET_CONTEXT_PREFIX + getModulePrefix());
+            this.startupReport = null;
+        }
+        if (this.startupReportObjectName != null) {
+            unregisterMBean(this.startupReportObjectName);
+            this.startupReportObjectName = null;
+        }
+        if (refreshed && getWebApplicationContext() instanceof ConfigurableApplicationContext) {
             ((ConfigurableApplicationContext) getWebApplicationContext()).close();
         }
+        InFlightRequests.unregister(getWebApplicationContext());
+        releaseSharedContext();
+    }
+
+    private void stopReloadWatcher() {
+        closeWatchService(this.reloadWatchService);
+        this.reloadWatchService = null;
+        Thread reloadThread = this.reloadThread;
+        if (reloadThread != null) {
+            // A reload in progress completes before the context gets closed.
+            reloadThread.interrupt();
+            try {
+                reloadThread.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            this.reloadThread = null;
+        }
+    }
+
+    private void stopSingletonWarmUp() {
+        Thread warmUpThread = this.singletonWarmUpThread;
+        if (warmUpThread != null) {
+            // Let the bean currently being created complete before closing the context.
+            warmUpThread.interrupt();
+            try {
+                warmUpThread.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            this.singletonWarmUpThread = null;
+        }
     }
 
 }
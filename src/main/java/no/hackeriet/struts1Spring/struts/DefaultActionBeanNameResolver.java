@@ -0,0 +1,55 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.struts.config.ActionConfig;
+
+/**
+ * Default {@link ActionBeanNameResolver} implementation, taking the
+ * mapping path and prepending the module prefix, if any.
+ *
+ * <p>Example:
+ * <ul>
+ * <li>mapping path "/login" -&gt; bean name "/login"<br>
+ * <li>mapping path "/login", module prefix "/mymodule" -&gt;
+ * bean name "/mymodule/login"
+ * </ul>
+ *
+ * @see org.apache.struts.config.ActionConfig#getPath
+ * @see org.apache.struts.config.ModuleConfig#getPrefix
+ * @since 1.0.1
+ */
+public class DefaultActionBeanNameResolver implements ActionBeanNameResolver {
+
+    private static final Log logger = LogFactory.getLog(DefaultActionBeanNameResolver.class);
+
+
+    @Override
+    public String determineActionBeanName(ActionConfig actionConfig) {
+        String prefix = actionConfig.getModuleConfig().getPrefix();
+        String path = actionConfig.getPath();
+        String beanName = prefix + path;
+        if (logger.isDebugEnabled()) {
+            logger.debug("Mapping path '" + path + "' and module prefix '" +
+                    prefix + "' delegating to Spring bean with name [" + beanName + "]");
+        }
+        return beanName;
+    }
+
+}
@@ -19,10 +19,19 @@ package no.hackeriet.struts1Spring.struts;
 import org.apache.struts.action.*;
 import org.apache.struts.config.ModuleConfig;
 import org.springframework.beans.BeansException;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ApplicationContextEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.util.ConcurrentReferenceHashMap;
 import org.springframework.web.context.WebApplicationContext;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * Proxy for a Spring-managed Struts {@code Action} that is defined in
@@ -37,7 +46,9 @@ import javax.servlet.http.HttpServletResponse;
  *
  * The name of the {@code Action} bean in the
  * {@code WebApplicationContext} will be determined from the mapping
- * path and module prefix. This can be customized by overriding the
+ * path and module prefix. This can be customized through a custom
+ * {@link ActionBeanNameResolver}, specified as "spring.actionBeanNameResolver"
+ * init-param for the Struts ActionServlet, or by overriding the
  * {@code determineActionBeanName} method.
  *
  * <p>Example:
@@ -70,6 +81,17 @@ import javax.servlet.http.HttpServletResponse;
  * The latter's disadvantage is that it might conflict with the need
  * for a different {@code RequestProcessor} subclass.
  *
+ * <p>The delegate {@code Action} of each mapping is resolved on first use
+ * and cached from then on; singleton beans are held directly, beans of other
+ * scopes are obtained from the bean factory per request, with instances of
+ * the {@link PooledActionScope "pooled" scope} being returned to their pool
+ * after execution. The cache gets
+ * discarded when the {@code WebApplicationContext} that the delegates have
+ * been resolved from is refreshed or closed.
+ *
+ * <p>If ContextLoaderPlugIn collects {@link ActionMetrics}, each invocation
+ * of a delegate gets recorded there, including failures.
+ *
  * <p>The default implementation delegates to the {@link DelegatingActionUtils}
  * class as much as possible, to reuse as much code as possible with
  * {@code DelegatingRequestProcessor} and
@@ -93,36 +115,118 @@ import javax.servlet.http.HttpServletResponse;
  */
 public class DelegatingActionProxy extends Action {
 
+    private ActionBeanNameResolver actionBeanNameResolver = new DefaultActionBeanNameResolver();
+
+    private final ActionDelegateCache actionDelegateCache = new ActionDelegateCache();
+
+    private final Set<WebApplicationContext> observedContexts = Collections.newSetFromMap(
+            new ConcurrentReferenceHashMap<>(4, ConcurrentReferenceHashMap.ReferenceType.WEAK));
+
+    private final ObservedContextListener observedContextListener = new ObservedContextListener();
+
+    private final Map<ModuleConfig, Optional<ActionMetrics>> actionMetrics =
+            new ConcurrentReferenceHashMap<>(4, ConcurrentReferenceHashMap.ReferenceType.WEAK);
+
+
     /**
-     * Pass the execute call on to the Spring-managed delegate {@code Action}.
+     * Pass the execute call on to the Spring-managed delegate {@code Action},
+     * obtained from the {@link ActionDelegate} of the mapping and released to
+     * that same delegate once executed.
      *
-     * @see #getDelegateAction
+     * @see #resolveActionDelegate
      */
     @Override
     public ActionForward execute(
             ActionMapping mapping, ActionForm form, HttpServletRequest request, HttpServletResponse response)
             throws Exception {
 
-        Action delegateAction = getDelegateAction(mapping);
-        return delegateAction.execute(mapping, form, request, response);
+        ActionMetrics actionMetrics = getActionMetrics(mapping.getModuleConfig());
+        long startTime = (actionMetrics != null ? System.nanoTime() : 0);
+        // Released through this very delegate, even if the cache gets discarded in the meantime.
+        ActionDelegate delegate = getActionDelegate(mapping);
+        Action delegateAction = delegate.getAction();
+        try {
+            return delegateAction.execute(mapping, form, request, response);
+        } catch (Exception ex) {
+            if (actionMetrics != null) {
+                actionMetrics.recordError(mapping);
+            }
+            throw ex;
+        } finally {
+            if (actionMetrics != null) {
+                actionMetrics.recordInvocation(mapping, System.nanoTime() - startTime);
+            }
+            delegate.releaseAction(delegateAction);
+        }
+    }
+
+    /**
+     * Determine the {@link ActionBeanNameResolver} for the given servlet,
+     * and discard the cached delegates when the proxy gets released.
+     *
+     * @see DelegatingActionUtils#getActionBeanNameResolver
+     */
+    @Override
+    public void setServlet(ActionServlet actionServlet) {
+        super.setServlet(actionServlet);
+        if (actionServlet != null) {
+            this.actionBeanNameResolver = DelegatingActionUtils.getActionBeanNameResolver(actionServlet);
+        } else {
+            this.actionDelegateCache.clear();
+            this.actionMetrics.clear();
+        }
+    }
+
+    private ActionMetrics getActionMetrics(ModuleConfig moduleConfig) {
+        if (moduleConfig == null) {
+            return null;
+        }
+        return this.actionMetrics.computeIfAbsent(moduleConfig, key -> Optional.ofNullable(
+                DelegatingActionUtils.getActionMetrics(getServlet().getServletContext(), key.getPrefix()))).orElse(null);
     }
 
 
     /**
      * Return the delegate {@code Action} for the given {@code mapping}.
-     * <p>The default implementation determines a bean name from the
-     * given {@code ActionMapping} and looks up the corresponding bean in
-     * the {@link WebApplicationContext}.
+     * <p>The default implementation reads the delegate from the per-mapping
+     * cache, resolving it on first use. {@link #execute} obtains the delegate
+     * {@code Action} the same way, keeping hold of the {@link ActionDelegate}
+     * to release the {@code Action} to.
      *
      * @param mapping the Struts {@code ActionMapping}
      * @return the delegate {@code Action}
      * @throws BeansException if thrown by {@code WebApplicationContext} methods
-     * @see #determineActionBeanName
+     * @see #resolveActionDelegate
      */
     protected Action getDelegateAction(ActionMapping mapping) throws BeansException {
+        return getActionDelegate(mapping).getAction();
+    }
+
+    private ActionDelegate getActionDelegate(ActionMapping mapping) {
+        return this.actionDelegateCache.getActionDelegate(mapping, this::resolveActionDelegate);
+    }
+
+    /**
+     * Resolve the {@link ActionDelegate} for the given {@code mapping}.
+     * <p>The default implementation determines a bean name from the
+     * given {@code ActionMapping} and looks up the corresponding bean in
+     * the {@link WebApplicationContext}. The proxy registers a listener with
+     * that context, discarding the delegate cache on refresh or close, and
+     * no longer tracking the context once closed.
+     *
+     * @param mapping the Struts {@code ActionMapping}
+     * @return the {@code ActionDelegate}
+     * @throws BeansException if thrown by {@code WebApplicationContext} methods,
+     * in particular if there is no bean with the determined name
+     * @see #determineActionBeanName
+     */
+    protected ActionDelegate resolveActionDelegate(ActionMapping mapping) throws BeansException {
         WebApplicationContext wac = getWebApplicationContext(getServlet(), mapping.getModuleConfig());
+        if (wac instanceof ConfigurableApplicationContext && this.observedContexts.add(wac)) {
+            ((ConfigurableApplicationContext) wac).addApplicationListener(this.observedContextListener);
+        }
         String beanName = determineActionBeanName(mapping);
-        return wac.getBean(beanName, Action.class);
+        return ActionDelegate.forBean(wac, beanName);
     }
 
     /**
@@ -147,8 +251,10 @@ public class DelegatingActionProxy extends Action {
 
     /**
      * Determine the name of the {@code Action} bean, to be looked up in
-     * the {@code WebApplicationContext}.
-     * <p>The default implementation takes the
+     * the {@code WebApplicationContext}. Called once per mapping, as the
+     * resolved delegate gets cached.
+     * <p>The default implementation asks the {@link ActionBeanNameResolver}
+     * of the ActionServlet. By default, this takes the
      * {@link org.apache.struts.action.ActionMapping#getPath mapping path} and
      * prepends the
      * {@link org.apache.struts.config.ModuleConfig#getPrefix module prefix},
@@ -156,12 +262,27 @@ public class DelegatingActionProxy extends Action {
      *
      * @param mapping the Struts {@code ActionMapping}
      * @return the name of the Action bean
-     * @see DelegatingActionUtils#determineActionBeanName
-     * @see org.apache.struts.action.ActionMapping#getPath
-     * @see org.apache.struts.config.ModuleConfig#getPrefix
+     * @see DelegatingActionUtils#getActionBeanNameResolver
+     * @see DefaultActionBeanNameResolver
      */
     protected String determineActionBeanName(ActionMapping mapping) {
-        return DelegatingActionUtils.determineActionBeanName(mapping);
+        return this.actionBeanNameResolver.determineActionBeanName(mapping);
+    }
+
+
+    /**
+     * Discards the delegate cache when an observed context gets refreshed
+     * or closed, and stops tracking the context once closed.
+     */
+    private class ObservedContextListener implements ApplicationListener<ApplicationContextEvent> {
+
+        @Override
+        public void onApplicationEvent(ApplicationContextEvent event) {
+            actionDelegateCache.onApplicationEvent(event);
+            if (event instanceof ContextClosedEvent) {
+                observedContexts.remove(event.getApplicationContext());
+            }
+        }
     }
 
 }
@@ -20,12 +20,27 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.struts.action.ActionMapping;
 import org.apache.struts.action.ActionServlet;
+import org.apache.struts.config.ActionConfig;
 import org.apache.struts.config.ModuleConfig;
 
+import org.springframework.beans.BeanInstantiationException;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ObjectUtils;
 import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.context.support.WebApplicationContextUtils;
 
+import javax.servlet.ServletContext;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
 /**
  * Common methods for letting Struts Actions work with a
  * Spring WebApplicationContext.
@@ -68,14 +83,84 @@ public abstract class DelegatingActionUtils {
      */
     public static final String AUTOWIRE_BY_TYPE = "byType";
 
+    /**
+     * Value of the autowire init-param that indicates injection of annotated
+     * fields and methods ({@code @Autowired}, {@code @Value}, {@code @Inject},
+     * {@code @Resource}) instead of setter autowiring: "annotation"
+     */
+    public static final String AUTOWIRE_ANNOTATION = "annotation";
+
+    /**
+     * Value of the "spring.autowire" property of a Struts mapping that
+     * switches off wiring for the Actions of that mapping: "no"
+     * @see #determineAutowirePolicies
+     */
+    public static final String AUTOWIRE_NO = "no";
+
+    /**
+     * The name of the init-param specified on the Struts ActionServlet that
+     * turns on precomputed Action delegate tables: "spring.precomputeDelegates"
+     */
+    public static final String PARAM_PRECOMPUTE_DELEGATES = "spring.precomputeDelegates";
+
+    /**
+     * The name of the init-param specified on the Struts ActionServlet that
+     * turns off caching of Action delegates per mapping, with the value
+     * "false", for a lookup on each request: "spring.cacheDelegates"
+     */
+    public static final String PARAM_CACHE_DELEGATES = "spring.cacheDelegates";
+
+    /**
+     * The name of the init-param specified on the Struts ActionServlet that
+     * turns on the concurrent cache for Struts-created Action instances:
+     * "spring.concurrentActionCache"
+     */
+    public static final String PARAM_CONCURRENT_ACTION_CACHE = "spring.concurrentActionCache";
+
+    /**
+     * The name of the init-param specified on the Struts ActionServlet that
+     * holds the class name of a custom ActionBeanNameResolver:
+     * "spring.actionBeanNameResolver"
+     */
+    public static final String PARAM_ACTION_BEAN_NAME_RESOLVER = "spring.actionBeanNameResolver";
+
+    /**
+     * The name of the init-param specified on the Struts ActionServlet that
+     * turns on cached per-class injection plans for autowired Actions:
+     * "spring.injectionPlans"
+     */
+    public static final String PARAM_INJECTION_PLANS = "spring.injectionPlans";
+
+    /**
+     * The name of the init-param specified on the Struts ActionServlet that
+     * turns on ActionForms obtained from the WebApplicationContext:
+     * "spring.managedForms"
+     */
+    public static final String PARAM_MANAGED_FORMS = "spring.managedForms";
+
+    /**
+     * The name of the init-param specified on the Struts ActionServlet that
+     * turns on locale resolution without creating an HTTP session in
+     * SpringBindingActionForm: "spring.sessionFreeLocale"
+     */
+    public static final String PARAM_SESSION_FREE_LOCALE = "spring.sessionFreeLocale";
+
 
     private static final Log logger = LogFactory.getLog(DelegatingActionUtils.class);
 
+    private static final ActionBeanNameResolver defaultActionBeanNameResolver = new DefaultActionBeanNameResolver();
+
+    private static final Map<ActionConfig, Boolean> delegatingActionProxyMappings =
+            new ConcurrentReferenceHashMap<>(64, ConcurrentReferenceHashMap.ReferenceType.WEAK);
+
 
     /**
      * Fetch ContextLoaderPlugIn's WebApplicationContext from the ServletContext.
      * <p>Checks for a module-specific context first, falling back to the
-     * context for the default module else.
+     * context for the default module else. Once ContextLoaderPlugIn has
+     * registered a context for the ServletContext, all modules are resolved
+     * from an in-memory registry, without reading ServletContext attributes;
+     * otherwise the ServletContext attributes are checked.
      *
      * @param actionServlet the associated ActionServlet
      * @param moduleConfig  the associated ModuleConfig (can be {@code null})
@@ -85,20 +170,24 @@ public abstract class DelegatingActionUtils {
     public static WebApplicationContext getWebApplicationContext(
             ActionServlet actionServlet, ModuleConfig moduleConfig) {
 
-        WebApplicationContext wac = null;
-        String modulePrefix = null;
+        ServletContext servletContext = actionServlet.getServletContext();
+        String modulePrefix = (moduleConfig != null ? moduleConfig.getPrefix() : null);
+
+        if (ModuleContextRegistry.isRegistered(servletContext)) {
+            // Resolve contexts registered by ContextLoaderPlugIn, falling back to the default module.
+            return ModuleContextRegistry.resolveContext(servletContext, modulePrefix);
+        }
 
-        // Try module-specific attribute.
-        if (moduleConfig != null) {
-            modulePrefix = moduleConfig.getPrefix();
-            wac = (WebApplicationContext) actionServlet.getServletContext().getAttribute(
+        WebApplicationContext wac = null;
+        if (modulePrefix != null) {
+            // Try module-specific attribute.
+            wac = (WebApplicationContext) servletContext.getAttribute(
                     ContextLoaderPlugIn.SERVLET_CONTEXT_PREFIX + modulePrefix);
         }
 
         // If not found, try attribute for default module.
         if (wac == null && !"".equals(modulePrefix)) {
-            wac = (WebApplicationContext) actionServlet.getServletContext().getAttribute(
-                    ContextLoaderPlugIn.SERVLET_CONTEXT_PREFIX);
+            wac = (WebApplicationContext) servletContext.getAttribute(ContextLoaderPlugIn.SERVLET_CONTEXT_PREFIX);
         }
 
         return wac;
@@ -147,6 +236,9 @@ public abstract class DelegatingActionUtils {
 
         WebApplicationContext wac = getWebApplicationContext(actionServlet, moduleConfig);
         // If no Struts-specific context found, fall back to root context.
+        if (wac == null) {
+            wac = ModuleContextRegistry.getRootContext(actionServlet.getServletContext());
+        }
         if (wac == null) {
             wac = WebApplicationContextUtils.getRequiredWebApplicationContext(actionServlet.getServletContext());
         }
@@ -156,6 +248,8 @@ public abstract class DelegatingActionUtils {
     /**
      * Default implementation of Action bean determination, taking
      * the mapping path and prepending the module prefix, if any.
+     * <p>Applies the default strategy only; use {@link #getActionBeanNameResolver}
+     * to honor a custom strategy specified for the ActionServlet.
      *
      * @param mapping the Struts ActionMapping
      * @return the name of the Action bean
@@ -163,25 +257,335 @@ public abstract class DelegatingActionUtils {
      * @see org.apache.struts.config.ModuleConfig#getPrefix
      */
     public static String determineActionBeanName(ActionMapping mapping) {
-        String prefix = mapping.getModuleConfig().getPrefix();
-        String path = mapping.getPath();
-        String beanName = prefix + path;
+        return defaultActionBeanNameResolver.determineActionBeanName(mapping);
+    }
+
+    /**
+     * Determine the ActionBeanNameResolver to use from the "actionBeanNameResolver"
+     * init-param of the Struts ActionServlet, falling back to a
+     * DefaultActionBeanNameResolver as default.
+     *
+     * @param actionServlet the Struts ActionServlet
+     * @return the ActionBeanNameResolver to use
+     * @throws IllegalArgumentException if the specified class could not be instantiated
+     * @see #PARAM_ACTION_BEAN_NAME_RESOLVER
+     * @see DefaultActionBeanNameResolver
+     */
+    public static ActionBeanNameResolver getActionBeanNameResolver(ActionServlet actionServlet)
+            throws IllegalArgumentException {
+
+        // An ActionServlet that has not been initialized does not have init-params.
+        String resolverClassName = (actionServlet.getServletConfig() != null ?
+                actionServlet.getInitParameter(PARAM_ACTION_BEAN_NAME_RESOLVER) : null);
+        if (resolverClassName == null) {
+            return defaultActionBeanNameResolver;
+        }
+        try {
+            Class<?> resolverClass = ClassUtils.forName(resolverClassName, ClassUtils.getDefaultClassLoader());
+            if (!ActionBeanNameResolver.class.isAssignableFrom(resolverClass)) {
+                throw new IllegalArgumentException("ActionServlet 'actionBeanNameResolver' parameter [" +
+                        resolverClassName + "] does not implement ActionBeanNameResolver");
+            }
+            return (ActionBeanNameResolver) BeanUtils.instantiateClass(resolverClass);
+        } catch (ClassNotFoundException | BeanInstantiationException ex) {
+            throw new IllegalArgumentException("ActionServlet 'actionBeanNameResolver' parameter [" +
+                    resolverClassName + "] could not be instantiated", ex);
+        }
+    }
+
+    /**
+     * Determine the Action bean names for all mappings of the given module.
+     *
+     * @param resolver     the ActionBeanNameResolver to use
+     * @param moduleConfig the ModuleConfig whose mappings to evaluate
+     * @return the identity-keyed table from ActionConfig to bean name
+     */
+    public static Map<ActionConfig, String> determineActionBeanNames(
+            ActionBeanNameResolver resolver, ModuleConfig moduleConfig) {
+
+        Map<ActionConfig, String> beanNames = new IdentityHashMap<>();
+        for (ActionConfig actionConfig : moduleConfig.findActionConfigs()) {
+            beanNames.put(actionConfig, resolver.determineActionBeanName(actionConfig));
+        }
+        return Collections.unmodifiableMap(beanNames);
+    }
+
+    /**
+     * Determine the autowire policies of all mappings of the given module
+     * that override the settings of the Struts ActionServlet, through the
+     * "spring.autowire" and "spring.dependencyCheck" properties specified
+     * as {@code <set-property>} of the mapping.
+     * <p>Logs a warning for mappings of the same Action type with differing
+     * policies, as Struts shares a single Action instance between them.
+     *
+     * @param moduleConfig  the ModuleConfig whose mappings to evaluate
+     * @param defaultPolicy the policy derived from the ActionServlet init-params
+     * @return the identity-keyed table from ActionConfig to overriding policy,
+     * not containing mappings without overrides
+     * @throws IllegalArgumentException if a property has an unsupported value
+     * @see #PARAM_AUTOWIRE
+     * @see #PARAM_DEPENDENCY_CHECK
+     * @see ActionAutowirePolicy
+     */
+    public static Map<ActionConfig, ActionAutowirePolicy> determineAutowirePolicies(
+            ModuleConfig moduleConfig, ActionAutowirePolicy defaultPolicy) throws IllegalArgumentException {
+
+        Map<ActionConfig, ActionAutowirePolicy> policies = new IdentityHashMap<>();
+        Map<String, ActionConfig> mappingsByType = new HashMap<>();
+        for (ActionConfig actionConfig : moduleConfig.findActionConfigs()) {
+            ActionAutowirePolicy policy = determineAutowirePolicy(actionConfig, defaultPolicy);
+            if (policy != null) {
+                policies.put(actionConfig, policy);
+            }
+            if (actionConfig.getType() != null) {
+                ActionConfig otherConfig = mappingsByType.putIfAbsent(actionConfig.getType(), actionConfig);
+                if (otherConfig != null && !ObjectUtils.nullSafeEquals(policies.get(otherConfig), policy)) {
+                    logger.warn("Mappings '" + otherConfig.getPath() + "' and '" + actionConfig.getPath() +
+                            "' share Action type [" + actionConfig.getType() + "] but specify different " +
+                            "autowire policies: the mapping that first creates the Action instance wins");
+                }
+            }
+        }
+        return (policies.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(policies));
+    }
+
+    private static ActionAutowirePolicy determineAutowirePolicy(
+            ActionConfig actionConfig, ActionAutowirePolicy defaultPolicy) {
+
+        String autowire = actionConfig.getProperty(PARAM_AUTOWIRE);
+        String dependencyCheck = actionConfig.getProperty(PARAM_DEPENDENCY_CHECK);
+        if (autowire == null && dependencyCheck == null) {
+            return null;
+        }
+        int autowireMode = defaultPolicy.getAutowireMode();
+        boolean annotationInjection = defaultPolicy.isAnnotationInjection();
+        if (autowire != null) {
+            annotationInjection = AUTOWIRE_ANNOTATION.equals(autowire);
+            if (AUTOWIRE_BY_NAME.equals(autowire)) {
+                autowireMode = AutowireCapableBeanFactory.AUTOWIRE_BY_NAME;
+            } else if (AUTOWIRE_BY_TYPE.equals(autowire)) {
+                autowireMode = AutowireCapableBeanFactory.AUTOWIRE_BY_TYPE;
+            } else if (annotationInjection || AUTOWIRE_NO.equals(autowire)) {
+                autowireMode = AutowireCapableBeanFactory.AUTOWIRE_NO;
+            } else {
+                throw new IllegalArgumentException("Mapping '" + actionConfig.getPath() +
+                        "': 'spring.autowire' property must be 'no', 'byName', 'byType' or 'annotation'");
+            }
+        }
+        boolean check = (dependencyCheck != null ? Boolean.valueOf(dependencyCheck) : defaultPolicy.isDependencyCheck());
+        ActionAutowirePolicy policy = new ActionAutowirePolicy(autowireMode, annotationInjection, check);
+        return (policy.equals(defaultPolicy) ? null : policy);
+    }
+
+    /**
+     * Resolve the ActionDelegate for the given Action bean name.
+     *
+     * @param beanFactory the bean factory to look up the Action bean in
+     * @param beanName    the name of the Action bean
+     * @return the ActionDelegate, or {@code null} if the bean factory does
+     * not contain a bean with the given name
+     * @throws BeansException if the Action bean could not be resolved
+     * @see ActionDelegate#forBean
+     */
+    public static ActionDelegate resolveActionDelegate(BeanFactory beanFactory, String beanName)
+            throws BeansException {
+
+        if (!beanFactory.containsBean(beanName)) {
+            return null;
+        }
+        return ActionDelegate.forBean(beanFactory, beanName);
+    }
+
+    /**
+     * Resolve every Action mapping of the given module to its Spring-managed
+     * Action bean, if any, and return the result as an immutable table.
+     * <p>Singleton beans are resolved right away; beans of other scopes are
+     * kept as lookup delegates. Mappings without a corresponding bean are
+     * not contained in the table.
+     *
+     * @param beanFactory      the bean factory to look up the Action beans in
+     * @param moduleConfig     the ModuleConfig whose mappings to resolve
+     * @param beanNameResolver the function determining the bean name for a mapping
+     * @return the identity-keyed table from ActionConfig to ActionDelegate
+     * @throws BeansException if an Action bean could not be resolved
+     * @see ActionDelegate#forBean
+     */
+    public static Map<ActionConfig, ActionDelegate> buildActionDelegateTable(
+            BeanFactory beanFactory, ModuleConfig moduleConfig, Function<ActionMapping, String> beanNameResolver)
+            throws BeansException {
+
+        Map<ActionConfig, ActionDelegate> delegates = new IdentityHashMap<>();
+        for (ActionConfig actionConfig : moduleConfig.findActionConfigs()) {
+            if (actionConfig instanceof ActionMapping) {
+                ActionDelegate delegate =
+                        resolveActionDelegate(beanFactory, beanNameResolver.apply((ActionMapping) actionConfig));
+                if (delegate != null) {
+                    delegates.put(actionConfig, delegate);
+                }
+            }
+        }
         if (logger.isDebugEnabled()) {
-            logger.debug("DelegatingActionProxy with mapping path '" + path + "' and module prefix '" +
-                    prefix + "' delegating to Spring bean with name [" + beanName + "]");
+            logger.debug("Precomputed " + delegates.size() + " Action delegates for module '" +
+                    moduleConfig.getPrefix() + "': " + delegates.values());
+        }
+        return Collections.unmodifiableMap(delegates);
+    }
+
+    /**
+     * Determine whether the type of the given mapping is {@link DelegatingActionProxy}
+     * or a subclass of it: such mappings record their {@link ActionMetrics}
+     * themselves. The outcome is cached per mapping.
+     *
+     * @param mapping the Struts ActionConfig
+     * @return whether Struts executes a DelegatingActionProxy for the mapping
+     */
+    public static boolean isDelegatingActionProxy(ActionConfig mapping) {
+        Boolean result = delegatingActionProxyMappings.get(mapping);
+        if (result == null) {
+            result = isDelegatingActionProxyType(mapping.getType());
+            delegatingActionProxyMappings.put(mapping, result);
         }
-        return beanName;
+        return result;
+    }
+
+    private static boolean isDelegatingActionProxyType(String type) {
+        if (type == null) {
+            return false;
+        }
+        if (DelegatingActionProxy.class.getName().equals(type)) {
+            return true;
+        }
+        try {
+            return DelegatingActionProxy.class.isAssignableFrom(
+                    ClassUtils.forName(type, ClassUtils.getDefaultClassLoader()));
+        } catch (ClassNotFoundException | LinkageError ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Fetch the {@link ActionMetrics} that ContextLoaderPlugIn publishes for
+     * the given module, falling back to the metrics of the default module.
+     *
+     * @param servletContext the ServletContext
+     * @param modulePrefix   the Struts module prefix (can be {@code null})
+     * @return the ActionMetrics, or {@code null} if metrics are not collected
+     * @see ActionMetrics#SERVLET_CONTEXT_PREFIX
+     * @see ContextLoaderPlugIn#setCollectActionMetrics
+     */
+    public static ActionMetrics getActionMetrics(ServletContext servletContext, String modulePrefix) {
+        ActionMetrics actionMetrics = null;
+        if (modulePrefix != null) {
+            actionMetrics = (ActionMetrics) servletContext.getAttribute(ActionMetrics.SERVLET_CONTEXT_PREFIX + modulePrefix);
+        }
+        if (actionMetrics == null && !"".equals(modulePrefix)) {
+            actionMetrics = (ActionMetrics) servletContext.getAttribute(ActionMetrics.SERVLET_CONTEXT_PREFIX);
+        }
+        return actionMetrics;
+    }
+
+    /**
+     * Determine whether to cache Action delegates per mapping from the
+     * "cacheDelegates" init-param of the Struts ActionServlet, caching them
+     * until the context gets refreshed or closed as default.
+     *
+     * @param actionServlet the Struts ActionServlet
+     * @return whether to cache Action delegates per mapping
+     * @see #PARAM_CACHE_DELEGATES
+     * @see ActionDelegateCache
+     */
+    public static boolean getCacheDelegates(ActionServlet actionServlet) {
+        String cacheDelegates = actionServlet.getInitParameter(PARAM_CACHE_DELEGATES);
+        return (cacheDelegates == null || Boolean.valueOf(cacheDelegates));
+    }
+
+    /**
+     * Determine whether to precompute Action delegate tables from the
+     * "precomputeDelegates" init-param of the Struts ActionServlet,
+     * falling back to lookups per request as default.
+     *
+     * @param actionServlet the Struts ActionServlet
+     * @return whether to precompute Action delegate tables
+     * @see #PARAM_PRECOMPUTE_DELEGATES
+     * @see #buildActionDelegateTable
+     */
+    public static boolean getPrecomputeDelegates(ActionServlet actionServlet) {
+        String precomputeDelegates = actionServlet.getInitParameter(PARAM_PRECOMPUTE_DELEGATES);
+        return Boolean.valueOf(precomputeDelegates);
+    }
+
+    /**
+     * Determine whether to keep Struts-created Action instances in a concurrent
+     * cache from the "concurrentActionCache" init-param of the Struts ActionServlet,
+     * falling back to Struts' own synchronized action map as default.
+     *
+     * @param actionServlet the Struts ActionServlet
+     * @return whether to use the concurrent Action instance cache
+     * @see #PARAM_CONCURRENT_ACTION_CACHE
+     * @see ActionInstanceRegistry
+     */
+    public static boolean getConcurrentActionCache(ActionServlet actionServlet) {
+        String concurrentActionCache = actionServlet.getInitParameter(PARAM_CONCURRENT_ACTION_CACHE);
+        return Boolean.valueOf(concurrentActionCache);
+    }
+
+    /**
+     * Determine whether to autowire Struts-created Actions through cached
+     * per-class injection plans from the "injectionPlans" init-param of the
+     * Struts ActionServlet, falling back to
+     * {@code AutowireCapableBeanFactory.autowireBeanProperties} as default.
+     *
+     * @param actionServlet the Struts ActionServlet
+     * @return whether to use cached injection plans
+     * @see #PARAM_INJECTION_PLANS
+     * @see ActionInjectionPlans
+     */
+    public static boolean getInjectionPlans(ActionServlet actionServlet) {
+        String injectionPlans = actionServlet.getInitParameter(PARAM_INJECTION_PLANS);
+        return Boolean.valueOf(injectionPlans);
+    }
+
+    /**
+     * Determine whether to obtain ActionForms from the WebApplicationContext
+     * from the "managedForms" init-param of the Struts ActionServlet, falling
+     * back to Struts' reflective instantiation as default.
+     *
+     * @param actionServlet the Struts ActionServlet
+     * @return whether to obtain ActionForms from the WebApplicationContext
+     * @see #PARAM_MANAGED_FORMS
+     * @see ActionFormBeans
+     */
+    public static boolean getManagedForms(ActionServlet actionServlet) {
+        String managedForms = actionServlet.getInitParameter(PARAM_MANAGED_FORMS);
+        return Boolean.valueOf(managedForms);
+    }
+
+    /**
+     * Determine whether SpringBindingActionForms resolve the locale without
+     * creating an HTTP session from the "sessionFreeLocale" init-param of the
+     * Struts ActionServlet, falling back to the session-based lookup as default.
+     *
+     * @param actionServlet the Struts ActionServlet
+     * @return whether to resolve the locale without creating a session
+     * @see #PARAM_SESSION_FREE_LOCALE
+     * @see SpringBindingActionForm#setSessionFreeLocale
+     */
+    public static boolean getSessionFreeLocale(ActionServlet actionServlet) {
+        String sessionFreeLocale = actionServlet.getInitParameter(PARAM_SESSION_FREE_LOCALE);
+        return Boolean.valueOf(sessionFreeLocale);
     }
 
     /**
      * Determine the autowire mode from the "autowire" init-param of the
      * Struts ActionServlet, falling back to "AUTOWIRE_BY_TYPE" as default.
+     * Returns "AUTOWIRE_NO" for annotation-driven injection.
      *
      * @param actionServlet the Struts ActionServlet
      * @return the autowire mode to use
      * @see #PARAM_AUTOWIRE
      * @see #AUTOWIRE_BY_NAME
      * @see #AUTOWIRE_BY_TYPE
+     * @see #AUTOWIRE_ANNOTATION
      * @see org.springframework.beans.factory.config.AutowireCapableBeanFactory#autowireBeanProperties
      * @see org.springframework.beans.factory.config.AutowireCapableBeanFactory#AUTOWIRE_BY_TYPE
      * @see org.springframework.beans.factory.config.AutowireCapableBeanFactory#AUTOWIRE_BY_NAME
@@ -191,13 +595,31 @@ public abstract class DelegatingActionUtils {
         if (autowire != null) {
             if (AUTOWIRE_BY_NAME.equals(autowire)) {
                 return AutowireCapableBeanFactory.AUTOWIRE_BY_NAME;
+            } else if (AUTOWIRE_ANNOTATION.equals(autowire)) {
+                return AutowireCapableBeanFactory.AUTOWIRE_NO;
             } else if (!AUTOWIRE_BY_TYPE.equals(autowire)) {
-                throw new IllegalArgumentException("ActionServlet 'autowire' parameter must be 'byName' or 'byType'");
+                throw new IllegalArgumentException(
+                        "ActionServlet 'autowire' parameter must be 'byName', 'byType' or 'annotation'");
             }
         }
         return AutowireCapableBeanFactory.AUTOWIRE_BY_TYPE;
     }
 
+    /**
+     * Determine whether to inject annotated fields and methods instead of
+     * autowiring setters, that is, whether the "autowire" init-param of the
+     * Struts ActionServlet is set to "annotation".
+     *
+     * @param actionServlet the Struts ActionServlet
+     * @return whether to inject annotated fields and methods
+     * @see #PARAM_AUTOWIRE
+     * @see #AUTOWIRE_ANNOTATION
+     * @see AnnotationActionInjector
+     */
+    public static boolean getAnnotationInjection(ActionServlet actionServlet) {
+        return AUTOWIRE_ANNOTATION.equals(actionServlet.getInitParameter(PARAM_AUTOWIRE));
+    }
+
     /**
      * Determine the dependency check to use from the "dependencyCheck" init-param
      * of the Struts ActionServlet, falling back to no dependency check as default.
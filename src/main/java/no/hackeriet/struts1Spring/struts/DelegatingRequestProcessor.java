@@ -17,17 +17,23 @@
 package no.hackeriet.struts1Spring.struts;
 
 import org.apache.struts.action.Action;
+import org.apache.struts.action.ActionForm;
+import org.apache.struts.action.ActionForward;
 import org.apache.struts.action.ActionMapping;
 import org.apache.struts.action.ActionServlet;
 import org.apache.struts.action.RequestProcessor;
+import org.apache.struts.config.ActionConfig;
 import org.apache.struts.config.ModuleConfig;
 import org.springframework.beans.BeansException;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.web.context.WebApplicationContext;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
 
 /**
  * Subclass of Struts's default {@link RequestProcessor} that looks up
@@ -48,7 +54,9 @@ import java.io.IOException;
  *
  * The name of the {@code Action} bean in the
  * {@code WebApplicationContext} will be determined from the mapping path
- * and module prefix. This can be customized by overriding the
+ * and module prefix. This can be customized through a custom
+ * {@link ActionBeanNameResolver}, specified as "spring.actionBeanNameResolver"
+ * init-param for the Struts ActionServlet, or by overriding the
  * {@link #determineActionBeanName} method.
  *
  * <p>Example:
@@ -74,6 +82,28 @@ import java.io.IOException;
  * "contextConfigLocation" parameters. In both cases, the Spring bean name has
  * to include the module prefix.
  *
+ * <p>By default, the {@code Action} bean of a mapping is resolved on first
+ * access, and the outcome is cached per mapping until the
+ * {@code WebApplicationContext} gets refreshed or closed: singleton beans
+ * are handed out without a lookup per request, and bean definitions added
+ * to the context without a refresh are not seen. Specify the
+ * "spring.cacheDelegates" init-param for the Struts ActionServlet with the
+ * value "false" to look up the {@code Action} bean on each request instead,
+ * as before 1.0.1. Specify the "spring.precomputeDelegates" init-param with
+ * the value "true" to resolve all mappings of the module once on
+ * initialization; singleton {@code Action} beans are then handed out from
+ * an immutable table without touching the bean factory.
+ *
+ * <p>Specify the "spring.managedForms" init-param with the value "true"
+ * to obtain {@code ActionForms} from the {@code WebApplicationContext}
+ * as well, where defined there as prototype or pooled beans named like
+ * the form bean; see {@link ActionFormBeans}.
+ *
+ * <p>When ContextLoaderPlugIn reloads its context, this processor switches
+ * to the reloaded context, counting each request as in flight against the
+ * context it started on, so that the replaced context only gets closed once
+ * those requests have completed; see {@link InFlightRequests}.
+ *
  * <p>If you also need the Tiles setup functionality of the original
  * {@code TilesRequestProcessor}, use
  * {@code DelegatingTilesRequestProcessor}. As there is just a
@@ -103,14 +133,48 @@ import java.io.IOException;
  */
 public class DelegatingRequestProcessor extends RequestProcessor {
 
-    private WebApplicationContext webApplicationContext;
+    /**
+     * Request attribute that holds the ActionDelegate that the Action of the
+     * current request has been obtained from, until the Action has been executed.
+     */
+    private static final String ACTION_DELEGATE_ATTRIBUTE =
+            DelegatingRequestProcessor.class.getName() + ".ACTION_DELEGATE";
+
+    private volatile ActionInstanceRegistry actionInstanceRegistry;
+
+    private volatile ActionMetrics actionMetrics;
+
+    private volatile ActionFormBeans actionFormBeans;
+
+    private ActionBeanNameResolver actionBeanNameResolver = new DefaultActionBeanNameResolver();
+
+    private Map<ActionConfig, String> actionBeanNames = Collections.emptyMap();
+
+    private volatile Map<ActionConfig, ActionDelegate> actionDelegates;
+
+    private boolean cacheDelegates = true;
+
+    private final ActionDelegateCache actionDelegateCache = new ActionDelegateCache();
+
+    private final ModuleContextBinding moduleContext =
+            new ModuleContextBinding(this::replaceWebApplicationContext, this.actionDelegateCache);
+
 
 
     @Override
     public void init(ActionServlet actionServlet, ModuleConfig moduleConfig) throws ServletException {
         super.init(actionServlet, moduleConfig);
         if (actionServlet != null) {
-            this.webApplicationContext = initWebApplicationContext(actionServlet, moduleConfig);
+            this.moduleContext.setWebApplicationContext(initWebApplicationContext(actionServlet, moduleConfig));
+            this.actionInstanceRegistry = initActionInstanceRegistry(actionServlet, moduleConfig);
+            this.actionMetrics = initActionMetrics(actionServlet, moduleConfig);
+            this.actionFormBeans = initActionFormBeans(actionServlet, moduleConfig);
+            this.actionBeanNameResolver = initActionBeanNameResolver(actionServlet, moduleConfig);
+            this.actionBeanNames =
+                    DelegatingActionUtils.determineActionBeanNames(this.actionBeanNameResolver, moduleConfig);
+            this.cacheDelegates = DelegatingActionUtils.getCacheDelegates(actionServlet);
+            this.actionDelegates = initActionDelegates(actionServlet, moduleConfig);
+            this.moduleContext.observe();
         }
     }
 
@@ -134,38 +198,290 @@ public class DelegatingRequestProcessor extends RequestProcessor {
         return DelegatingActionUtils.findRequiredWebApplicationContext(actionServlet, moduleConfig);
     }
 
+    /**
+     * Determine the {@link ActionBeanNameResolver} to use for this module.
+     * Bean names get resolved for all mappings of the module right away.
+     * <p>The default implementation checks the "actionBeanNameResolver"
+     * init-param of the Struts ActionServlet, falling back to a
+     * {@link DefaultActionBeanNameResolver} as default.
+     *
+     * @param actionServlet the associated {@code ActionServlet}
+     * @param moduleConfig  the associated {@code ModuleConfig}
+     * @return the {@code ActionBeanNameResolver} to use
+     * @see DelegatingActionUtils#getActionBeanNameResolver
+     */
+    protected ActionBeanNameResolver initActionBeanNameResolver(
+            ActionServlet actionServlet, ModuleConfig moduleConfig) {
+
+        return DelegatingActionUtils.getActionBeanNameResolver(actionServlet);
+    }
+
+    /**
+     * Build the table of {@link ActionDelegate ActionDelegates} for all
+     * mappings of the given module, if precomputed delegates are turned on
+     * through the "precomputeDelegates" init-param of the Struts ActionServlet.
+     * <p>With such a table in place, {@link #getDelegateAction} resolves the
+     * delegate {@code Action} through a single table read, without any bean
+     * factory access for singleton beans.
+     *
+     * @param actionServlet the associated {@code ActionServlet}
+     * @param moduleConfig  the associated {@code ModuleConfig}
+     * @return the delegate table, or {@code null} to look up delegates per request
+     * @throws BeansException if an {@code Action} bean could not be resolved
+     * @see DelegatingActionUtils#getPrecomputeDelegates
+     * @see DelegatingActionUtils#buildActionDelegateTable
+     */
+    protected Map<ActionConfig, ActionDelegate> initActionDelegates(
+            ActionServlet actionServlet, ModuleConfig moduleConfig) throws BeansException {
+
+        if (!DelegatingActionUtils.getPrecomputeDelegates(actionServlet)) {
+            return null;
+        }
+        return DelegatingActionUtils.buildActionDelegateTable(
+                getWebApplicationContext(), moduleConfig, this::determineActionBeanName);
+    }
+
+    /**
+     * Create the registry for {@code Action} instances that Struts creates
+     * itself, if turned on through the "concurrentActionCache" init-param
+     * of the Struts ActionServlet.
+     *
+     * @param actionServlet the associated {@code ActionServlet}
+     * @param moduleConfig  the associated {@code ModuleConfig}
+     * @return the registry, or {@code null} to keep Struts' own synchronized action map
+     * @see DelegatingActionUtils#getConcurrentActionCache
+     */
+    protected ActionInstanceRegistry initActionInstanceRegistry(
+            ActionServlet actionServlet, ModuleConfig moduleConfig) {
+
+        return (DelegatingActionUtils.getConcurrentActionCache(actionServlet) ?
+                new ActionInstanceRegistry(actionServlet) : null);
+    }
+
+    /**
+     * Fetch the {@link ActionMetrics} to record the performed actions in,
+     * as published by ContextLoaderPlugIn if "collectActionMetrics" is set.
+     *
+     * @param actionServlet the associated {@code ActionServlet}
+     * @param moduleConfig  the associated {@code ModuleConfig}
+     * @return the {@code ActionMetrics}, or {@code null} to not record metrics
+     * @see DelegatingActionUtils#getActionMetrics
+     */
+    protected ActionMetrics initActionMetrics(ActionServlet actionServlet, ModuleConfig moduleConfig) {
+        return DelegatingActionUtils.getActionMetrics(actionServlet.getServletContext(), moduleConfig.getPrefix());
+    }
+
+    /**
+     * Build the table of {@link ActionFormBeans} for the form beans of the
+     * given module, if turned on through the "managedForms" init-param of the
+     * Struts ActionServlet. ActionForms then get obtained from the
+     * {@code WebApplicationContext} where defined as non-singleton beans there,
+     * or instantiated through a constructor resolved once per form class.
+     *
+     * @param actionServlet the associated {@code ActionServlet}
+     * @param moduleConfig  the associated {@code ModuleConfig}
+     * @return the form bean table, or {@code null} to let Struts create ActionForms
+     * @throws BeansException if a form bean type could not be determined
+     * @see DelegatingActionUtils#getManagedForms
+     */
+    protected ActionFormBeans initActionFormBeans(ActionServlet actionServlet, ModuleConfig moduleConfig)
+            throws BeansException {
+
+        return (DelegatingActionUtils.getManagedForms(actionServlet) ?
+                new ActionFormBeans(getWebApplicationContext(), actionServlet, moduleConfig) : null);
+    }
+
     /**
      * Return the {@code WebApplicationContext} that this processor
      * delegates to.
      * @return the WebApplicationContext that this processor delegates to
      */
     protected final WebApplicationContext getWebApplicationContext() {
-        return this.webApplicationContext;
+        return this.moduleContext.getWebApplicationContext();
     }
 
 
     /**
-     * Override the base class method to return the delegate action.
+     * Switch this processor to the given context, which ContextLoaderPlugIn
+     * has published in place of the current one on a reload: the state derived
+     * from the context gets rebuilt, and requests get counted against the
+     * replacement from then on. The replaced context stays open until the
+     * requests still being processed against it have completed.
+     * <p>The state gets derived from the replacement before any of it is
+     * published: if that fails, this processor stays on the current context.
+     * <p>Can be extended in subclasses that derive state of their own
+     * from the {@code WebApplicationContext}.
      *
-     * @see #getDelegateAction
+     * @param replacement the replacement {@code WebApplicationContext}
+     * @throws BeansException if the derived state could not be rebuilt
+     * @see ModuleContextReplacedEvent
+     * @see InFlightRequests
+     */
+    protected synchronized void replaceWebApplicationContext(WebApplicationContext replacement)
+            throws BeansException {
+
+        this.moduleContext.replace(replacement, () -> {
+            ActionInstanceRegistry actionInstanceRegistry = initActionInstanceRegistry(this.servlet, this.moduleConfig);
+            ActionMetrics actionMetrics = initActionMetrics(this.servlet, this.moduleConfig);
+            ActionFormBeans actionFormBeans = initActionFormBeans(this.servlet, this.moduleConfig);
+            Map<ActionConfig, ActionDelegate> actionDelegates = initActionDelegates(this.servlet, this.moduleConfig);
+            return () -> {
+                // Action instances of the replaced registry may still be in use: not destroyed.
+                this.actionInstanceRegistry = actionInstanceRegistry;
+                this.actionMetrics = actionMetrics;
+                this.actionFormBeans = actionFormBeans;
+                this.actionDelegates = actionDelegates;
+                this.actionDelegateCache.clear();
+            };
+        });
+    }
+
+
+    /**
+     * Extend the base class method to count the request as in flight against
+     * the {@code WebApplicationContext}, if tracked, and to return pooled ActionForms
+     * to their pools once the request has been processed.
+     *
+     * @see InFlightRequests
+     * @see ActionFormBeans#releaseActionForms
+     */
+    @Override
+    public void process(HttpServletRequest request, HttpServletResponse response)
+            throws IOException, ServletException {
+
+        InFlightRequests inFlightRequests = this.moduleContext.enterRequest();
+        try {
+            super.process(request, response);
+        } finally {
+            if (this.actionFormBeans != null) {
+                this.actionFormBeans.releaseActionForms(request);
+            }
+            if (inFlightRequests != null) {
+                inFlightRequests.exit();
+            }
+        }
+    }
+
+    /**
+     * Override the base class method to obtain the ActionForm through the
+     * {@link ActionFormBeans} table, if any, falling back to Struts'
+     * reflective instantiation for form beans not covered by the table.
+     *
+     * @see #initActionFormBeans
+     */
+    @Override
+    protected ActionForm processActionForm(
+            HttpServletRequest request, HttpServletResponse response, ActionMapping mapping) {
+
+        if (this.actionFormBeans != null) {
+            ActionForm form = this.actionFormBeans.processActionForm(request, mapping);
+            if (form != null) {
+                return form;
+            }
+        }
+        return super.processActionForm(request, response, mapping);
+    }
+
+    /**
+     * Override the base class method to return the delegate action, obtained
+     * the same way as through {@link #getDelegateAction}, keeping hold of its
+     * {@link ActionDelegate} to release it to once executed.
+     *
+     * @see #releaseDelegateAction
      */
     @Override
     protected Action processActionCreate(
             HttpServletRequest request, HttpServletResponse response, ActionMapping mapping)
             throws IOException {
 
-        Action action = getDelegateAction(mapping);
-        if (action != null) {
+        ActionDelegate delegate = getActionDelegate(mapping);
+        if (delegate != null) {
+            Action action = delegate.getAction();
+            // Released through this very delegate, even if the delegates get replaced in the meantime.
+            request.setAttribute(ACTION_DELEGATE_ATTRIBUTE, delegate);
             return action;
         }
+        if (this.actionInstanceRegistry != null) {
+            return this.actionInstanceRegistry.getAction(mapping, response);
+        }
         return super.processActionCreate(request, response, mapping);
     }
 
+    /**
+     * Override the base class method to record the invocation in the
+     * {@link ActionMetrics}, if any, and to release the delegate action
+     * once it has been executed.
+     *
+     * @see #releaseDelegateAction
+     */
+    @Override
+    protected ActionForward processActionPerform(
+            HttpServletRequest request, HttpServletResponse response,
+            Action action, ActionForm form, ActionMapping mapping)
+            throws IOException, ServletException {
+
+        ActionDelegate delegate = (ActionDelegate) request.getAttribute(ACTION_DELEGATE_ATTRIBUTE);
+        boolean recordMetrics = (this.actionMetrics != null && !isRecordedByProxy(request, mapping));
+        long startTime = (recordMetrics ? System.nanoTime() : 0);
+        try {
+            return super.processActionPerform(request, response, action, form, mapping);
+        } finally {
+            if (recordMetrics) {
+                this.actionMetrics.recordInvocation(mapping, System.nanoTime() - startTime);
+            }
+            if (delegate != null) {
+                request.removeAttribute(ACTION_DELEGATE_ATTRIBUTE);
+                releaseDelegateAction(delegate, action);
+            }
+        }
+    }
+
+    /**
+     * Extend the base class method to record the failure in the
+     * {@link ActionMetrics}, if any. Failures of {@link DelegatingActionProxy}
+     * mappings are recorded by the proxy itself.
+     */
+    @Override
+    protected ActionForward processException(
+            HttpServletRequest request, HttpServletResponse response,
+            Exception exception, ActionForm form, ActionMapping mapping)
+            throws IOException, ServletException {
+
+        if (this.actionMetrics != null && !isRecordedByProxy(request, mapping)) {
+            this.actionMetrics.recordError(mapping);
+        }
+        return super.processException(request, response, exception, form, mapping);
+    }
+
+    /**
+     * Determine whether the metrics of the current request get recorded by a
+     * DelegatingActionProxy: if the mapping is of that type, and no delegate
+     * bean has been found for it, in which case Struts executes the proxy.
+     */
+    private boolean isRecordedByProxy(HttpServletRequest request, ActionMapping mapping) {
+        return (request.getAttribute(ACTION_DELEGATE_ATTRIBUTE) == null &&
+                DelegatingActionUtils.isDelegatingActionProxy(mapping));
+    }
+
+    /**
+     * Release the Action instances of the concurrent registry, if any,
+     * and remove the listeners of this processor from its context.
+     */
+    @Override
+    public void destroy() {
+        this.moduleContext.unbind();
+        if (this.actionInstanceRegistry != null) {
+            this.actionInstanceRegistry.destroy();
+        }
+        super.destroy();
+    }
+
     /**
      * Return the delegate {@code Action} for the given mapping.
      * <p>The default implementation determines a bean name from the
      * given {@code ActionMapping} and looks up the corresponding
-     * bean in the {@code WebApplicationContext}.
+     * bean in the {@code WebApplicationContext}, caching the outcome
+     * per mapping, or reads the precomputed delegate table if there is one.
      *
      * @param mapping the Struts {@code ActionMapping}
      * @return the delegate {@code Action}, or {@code null} if none found
@@ -173,17 +489,59 @@ public class DelegatingRequestProcessor extends RequestProcessor {
      * @see #determineActionBeanName
      */
     protected Action getDelegateAction(ActionMapping mapping) throws BeansException {
-        String beanName = determineActionBeanName(mapping);
-        if (!getWebApplicationContext().containsBean(beanName)) {
-            return null;
+        ActionDelegate delegate = getActionDelegate(mapping);
+        return (delegate != null ? delegate.getAction() : null);
+    }
+
+    /**
+     * Signal that the given {@code Action}, obtained from the given
+     * {@link ActionDelegate}, has been executed, for example to return
+     * a pooled delegate {@code Action} to its pool.
+     * <p>Called with the delegate that {@link #processActionCreate} has
+     * obtained the {@code Action} from, rather than the current delegate of
+     * the mapping, which may belong to a reloaded context by then.
+     *
+     * @param delegate the {@code ActionDelegate} that the {@code Action} has been obtained from
+     * @param action   the {@code Action} that has been executed
+     * @see ActionDelegate#releaseAction
+     * @see PooledActionScope
+     */
+    protected void releaseDelegateAction(ActionDelegate delegate, Action action) {
+        delegate.releaseAction(action);
+    }
+
+    private ActionDelegate getActionDelegate(ActionMapping mapping) {
+        if (this.actionDelegates != null) {
+            return this.actionDelegates.get(mapping);
         }
-        return getWebApplicationContext().getBean(beanName, Action.class);
+        return (this.cacheDelegates ? this.actionDelegateCache.getActionDelegate(mapping, this::resolveActionDelegate) :
+                resolveActionDelegate(mapping));
+    }
+
+    /**
+     * Resolve the {@link ActionDelegate} for the given mapping.
+     * <p>Called once per mapping; the result, including the absence of a
+     * corresponding bean, is cached until the {@code WebApplicationContext}
+     * gets refreshed or closed. Called on each request if caching is turned
+     * off through the "cacheDelegates" init-param of the Struts ActionServlet.
+     *
+     * @param mapping the Struts {@code ActionMapping}
+     * @return the {@code ActionDelegate}, or {@code null} if none found
+     * @throws BeansException if thrown by {@code WebApplicationContext} methods
+     * @see #determineActionBeanName
+     * @see ActionDelegateCache
+     * @see DelegatingActionUtils#getCacheDelegates
+     */
+    protected ActionDelegate resolveActionDelegate(ActionMapping mapping) throws BeansException {
+        return DelegatingActionUtils.resolveActionDelegate(getWebApplicationContext(), determineActionBeanName(mapping));
     }
 
     /**
      * Determine the name of the {@code Action} bean, to be looked up in
      * the {@code WebApplicationContext}.
-     * <p>The default implementation takes the
+     * <p>The default implementation returns the name that the
+     * {@link ActionBeanNameResolver} has determined for the mapping on
+     * initialization. By default, this takes the
      * {@link org.apache.struts.action.ActionMapping#getPath mapping path} and
      * prepends the
      * {@link org.apache.struts.config.ModuleConfig#getPrefix module prefix},
@@ -191,12 +549,12 @@ public class DelegatingRequestProcessor extends RequestProcessor {
      *
      * @param mapping the Struts {@code ActionMapping}
      * @return the name of the Action bean
-     * @see DelegatingActionUtils#determineActionBeanName
-     * @see org.apache.struts.action.ActionMapping#getPath
-     * @see org.apache.struts.config.ModuleConfig#getPrefix
+     * @see #initActionBeanNameResolver
+     * @see DefaultActionBeanNameResolver
      */
     protected String determineActionBeanName(ActionMapping mapping) {
-        return DelegatingActionUtils.determineActionBeanName(mapping);
+        String beanName = this.actionBeanNames.get(mapping);
+        return (beanName != null ? beanName : this.actionBeanNameResolver.determineActionBeanName(mapping));
     }
 
 }
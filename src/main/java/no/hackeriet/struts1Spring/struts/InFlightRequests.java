@@ -0,0 +1,159 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Counter of the requests that are currently being processed against a
+ * WebApplicationContext of ContextLoaderPlugIn, allowing the PlugIn to wait
+ * for them to complete before closing the context.
+ *
+ * <p>The request processors count every request they process against the
+ * context they delegate to. Entries and exits are counted separately, each
+ * in a {@link LongAdder}, so that requests do not contend on a single
+ * counter; the difference is exact as long as exits are read first.
+ *
+ * <p>ContextLoaderPlugIn registers an instance for each context it
+ * publishes; contexts not managed by the PlugIn are not tracked.
+ *
+ * @see ContextLoaderPlugIn#setReloadOnChange
+ * @see DelegatingRequestProcessor
+ * @see AutowiringRequestProcessor
+ * @since 1.0.1
+ */
+public class InFlightRequests {
+
+    private static final Map<WebApplicationContext, InFlightRequests> instances =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private static final long MAX_POLL_INTERVAL_MILLIS = 50;
+
+
+    private final LongAdder entries = new LongAdder();
+
+    private final LongAdder exits = new LongAdder();
+
+
+    /**
+     * Register a new counter for the given context.
+     *
+     * @param wac the WebApplicationContext to track
+     * @return the new counter
+     */
+    static InFlightRequests register(WebApplicationContext wac) {
+        InFlightRequests inFlightRequests = new InFlightRequests();
+        instances.put(wac, inFlightRequests);
+        return inFlightRequests;
+    }
+
+    /**
+     * Remove the counter for the given context.
+     *
+     * @param wac the tracked WebApplicationContext
+     */
+    static void unregister(WebApplicationContext wac) {
+        instances.remove(wac);
+    }
+
+    /**
+     * Return the counter for the given context.
+     *
+     * @param wac the WebApplicationContext (can be {@code null})
+     * @return the counter, or {@code null} if the context is not tracked
+     */
+    public static InFlightRequests getInstance(WebApplicationContext wac) {
+        return (wac != null ? instances.get(wac) : null);
+    }
+
+    /**
+     * Enter a request on the current counter, as returned by the given
+     * supplier, retrying if the counter gets replaced in the meantime:
+     * once this method returns, the returned counter is guaranteed to
+     * include the request for as long as the counter is awaited.
+     *
+     * @param current supplier of the counter of the current context
+     * @return the counter that the request was entered on,
+     * or {@code null} if the current context is not tracked
+     */
+    public static InFlightRequests enterCurrent(Supplier<InFlightRequests> current) {
+        InFlightRequests inFlightRequests = current.get();
+        while (inFlightRequests != null) {
+            inFlightRequests.enter();
+            InFlightRequests recheck = current.get();
+            if (recheck == inFlightRequests) {
+                return inFlightRequests;
+            }
+            inFlightRequests.exit();
+            inFlightRequests = recheck;
+        }
+        return null;
+    }
+
+    /**
+     * Count a request entering.
+     */
+    public void enter() {
+        this.entries.increment();
+    }
+
+    /**
+     * Count a request exiting.
+     */
+    public void exit() {
+        this.exits.increment();
+    }
+
+    /**
+     * Return the number of requests currently in flight.
+     * @return the number of requests currently in flight
+     */
+    public long getCount() {
+        // Exits first: a request in flight at that point is included in both sums or in entries only.
+        long exits = this.exits.sum();
+        return this.entries.sum() - exits;
+    }
+
+    /**
+     * Wait for all requests in flight to complete.
+     *
+     * @param timeout the maximum time to wait, or 0 to wait indefinitely
+     * @param unit    the unit of the timeout
+     * @return whether all requests completed in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = (timeout > 0 ? System.nanoTime() + unit.toNanos(timeout) : 0);
+        long interval = 1;
+        while (getCount() > 0) {
+            if (deadline != 0 && System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            Thread.sleep(interval);
+            interval = Math.min(interval * 2, MAX_POLL_INTERVAL_MILLIS);
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import org.apache.struts.util.MessageResources;
+import org.springframework.util.ConcurrentReferenceHashMap;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Cache of the message codes that SpringBindingActionForm resolves against
+ * Struts {@link MessageResources}, per (locale, message codes): the effective
+ * message key of an error, and the message text of an argument, including
+ * the negative result for codes that none are present for.
+ *
+ * <p>There is one cache per MessageResources instance, so that reloaded
+ * resources published as new instance start out with an empty cache.
+ * Resources reloaded in place need to be cleared explicitly. Each cache is
+ * bounded: once it holds {@link #MAX_ENTRIES} entries, it discards them all.
+ * Callers are supposed to look up the cache for their resources once, and
+ * keep hold of it while resolving the codes of a request.
+ *
+ * @see SpringBindingActionForm#clearMessageKeyCache
+ * @since 1.0.1
+ */
+class MessageKeyCache {
+
+    /**
+     * Maximum number of entries per MessageResources instance: 1024.
+     */
+    static final int MAX_ENTRIES = 1024;
+
+    private static final ConcurrentMap<MessageResources, MessageKeyCache> instances =
+            new ConcurrentReferenceHashMap<>(16, ConcurrentReferenceHashMap.ReferenceType.WEAK);
+
+
+    private volatile ConcurrentMap<Key, Optional<String>> entries = new ConcurrentHashMap<>();
+
+
+    /**
+     * Return the cache for the given MessageResources, creating it on first access.
+     *
+     * @param messageResources the MessageResources to look up codes in
+     * @return the cache for the MessageResources
+     */
+    static MessageKeyCache getInstance(MessageResources messageResources) {
+        return instances.computeIfAbsent(messageResources, key -> new MessageKeyCache());
+    }
+
+    /**
+     * Discard the caches for all MessageResources.
+     */
+    static void clearAll() {
+        instances.clear();
+    }
+
+    /**
+     * Return the effective message key for the given codes, resolving and
+     * caching it through the given resolver on first access.
+     *
+     * @param locale   the locale to look up the codes for (can be {@code null})
+     * @param codes    the message codes, most specific first
+     * @param resolver the resolver to call for codes not cached yet,
+     *                 returning {@code null} if none of the codes is present
+     * @return the effective message key, or {@code null} if none of the codes is present
+     */
+    String getEffectiveKey(Locale locale, String[] codes, Function<String[], String> resolver) {
+        return get(new Key(locale, codes, false), codes, resolver);
+    }
+
+    /**
+     * Return the message text for the given codes, resolving and caching it
+     * through the given resolver on first access. Only for messages without
+     * arguments, which the text does not depend on.
+     *
+     * @param locale   the locale to look up the codes for (can be {@code null})
+     * @param codes    the message codes, most specific first
+     * @param resolver the resolver to call for codes not cached yet,
+     *                 returning {@code null} if none of the codes is present
+     * @return the message text, or {@code null} if none of the codes is present
+     */
+    String getMessage(Locale locale, String[] codes, Function<String[], String> resolver) {
+        return get(new Key(locale, codes, true), codes, resolver);
+    }
+
+    private String get(Key key, String[] codes, Function<String[], String> resolver) {
+        // Entries resolved concurrently with a discard end up in the discarded map.
+        ConcurrentMap<Key, Optional<String>> entries = this.entries;
+        Optional<String> result = entries.get(key);
+        if (result == null) {
+            result = Optional.ofNullable(resolver.apply(codes));
+            if (entries.size() >= MAX_ENTRIES) {
+                entries = new ConcurrentHashMap<>();
+                this.entries = entries;
+            }
+            entries.put(key, result);
+        }
+        return result.orElse(null);
+    }
+
+
+    /**
+     * Identifies the codes to resolve: locale, codes in order, and
+     * whether the message text or the message key is cached.
+     */
+    private static class Key {
+
+        private final Locale locale;
+
+        private final List<String> codes;
+
+        private final boolean message;
+
+        Key(Locale locale, String[] codes, boolean message) {
+            this.locale = locale;
+            this.codes = Arrays.asList(codes.clone());
+            this.message = message;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key otherKey = (Key) other;
+            return (Objects.equals(this.locale, otherKey.locale) && this.codes.equals(otherKey.codes) &&
+                    this.message == otherKey.message);
+        }
+
+        @Override
+        public int hashCode() {
+            return (Objects.hashCode(this.locale) * 31 + this.codes.hashCode()) * 31 + (this.message ? 1 : 0);
+        }
+    }
+
+}
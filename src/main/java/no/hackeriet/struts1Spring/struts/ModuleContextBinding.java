@@ -0,0 +1,172 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ApplicationEventMulticaster;
+import org.springframework.context.support.AbstractApplicationContext;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Binding of a request processor to the WebApplicationContext that it
+ * delegates to, shared by the request processors of this package: follows
+ * the reloads of ContextLoaderPlugIn through {@link ModuleContextReplacedEvent},
+ * and counts the requests processed against the context in {@link InFlightRequests}.
+ *
+ * <p>A switch to a replacement context takes two steps. The processor first
+ * derives its state from the replacement, which it sees as its context on the
+ * switching thread only, and then publishes that state. If deriving the state
+ * fails, the processor stays on the current context with its current state,
+ * and the exception propagates to ContextLoaderPlugIn, which keeps the
+ * current context then.
+ *
+ * @see DelegatingRequestProcessor
+ * @see AutowiringRequestProcessor
+ * @since 1.0.1
+ */
+class ModuleContextBinding {
+
+    private final ApplicationListener<ModuleContextReplacedEvent> replacementListener;
+
+    private final ApplicationListener<?>[] contextListeners;
+
+    private volatile WebApplicationContext webApplicationContext;
+
+    private volatile InFlightRequests inFlightRequests;
+
+    private volatile Thread switchingThread;
+
+    private volatile WebApplicationContext switchingContext;
+
+
+    /**
+     * Create a new ModuleContextBinding.
+     *
+     * @param replacementCallback the callback to switch the processor to a
+     *                            replacement context, usually going through
+     *                            {@link #replace}
+     * @param contextListeners    further listeners to register with each
+     *                            context that the processor gets bound to
+     */
+    ModuleContextBinding(Consumer<WebApplicationContext> replacementCallback,
+                         ApplicationListener<?>... contextListeners) {
+
+        // A single listener instance, registered once with a context that the processor returns to.
+        this.replacementListener = ModuleContextReplacedEvent.listener(replacementCallback);
+        this.contextListeners = contextListeners;
+    }
+
+
+    /**
+     * Set the context on initialization of the processor, to derive the
+     * initial state from. The processor gets bound through {@link #observe}.
+     *
+     * @param wac the WebApplicationContext
+     */
+    void setWebApplicationContext(WebApplicationContext wac) {
+        this.webApplicationContext = wac;
+    }
+
+    /**
+     * Return the context of the processor: the replacement while the
+     * processor derives its state from it on the switching thread,
+     * the current context otherwise.
+     *
+     * @return the WebApplicationContext
+     */
+    WebApplicationContext getWebApplicationContext() {
+        if (this.switchingThread == Thread.currentThread()) {
+            return this.switchingContext;
+        }
+        return this.webApplicationContext;
+    }
+
+    /**
+     * Bind the processor to its current context: register the listeners
+     * with the context, and count requests against it from then on.
+     */
+    void observe() {
+        WebApplicationContext wac = this.webApplicationContext;
+        if (wac instanceof ConfigurableApplicationContext) {
+            ConfigurableApplicationContext cac = (ConfigurableApplicationContext) wac;
+            for (ApplicationListener<?> listener : this.contextListeners) {
+                cac.addApplicationListener(listener);
+            }
+            cac.addApplicationListener(this.replacementListener);
+        }
+        // Published last: requests counted against the new context see the state derived from it.
+        this.inFlightRequests = InFlightRequests.getInstance(wac);
+    }
+
+    /**
+     * Unbind the processor from its current context on destruction: remove
+     * the listeners from the event multicaster of the context, if still active,
+     * so that the context does not notify the processor any further.
+     */
+    void unbind() {
+        WebApplicationContext wac = this.webApplicationContext;
+        if (wac instanceof ConfigurableApplicationContext && ((ConfigurableApplicationContext) wac).isActive()) {
+            Object multicaster = ((ConfigurableApplicationContext) wac).getBeanFactory().getSingleton(
+                    AbstractApplicationContext.APPLICATION_EVENT_MULTICASTER_BEAN_NAME);
+            if (multicaster instanceof ApplicationEventMulticaster) {
+                for (ApplicationListener<?> listener : this.contextListeners) {
+                    ((ApplicationEventMulticaster) multicaster).removeApplicationListener(listener);
+                }
+                ((ApplicationEventMulticaster) multicaster).removeApplicationListener(this.replacementListener);
+            }
+        }
+    }
+
+    /**
+     * Switch the processor to the given replacement context.
+     *
+     * @param replacement the replacement WebApplicationContext
+     * @param deriveState derives the state of the processor from the
+     *                    replacement, returned by {@link #getWebApplicationContext}
+     *                    meanwhile, and returns the callback to publish it
+     */
+    synchronized void replace(WebApplicationContext replacement, Supplier<Runnable> deriveState) {
+        Runnable publishState;
+        this.switchingContext = replacement;
+        this.switchingThread = Thread.currentThread();
+        try {
+            publishState = deriveState.get();
+            this.webApplicationContext = replacement;
+        } finally {
+            this.switchingThread = null;
+            this.switchingContext = null;
+        }
+        publishState.run();
+        observe();
+    }
+
+    /**
+     * Count a request as in flight against the current context, if tracked.
+     *
+     * @return the counter to exit the request on,
+     * or {@code null} if the current context is not tracked
+     * @see InFlightRequests#enterCurrent
+     */
+    InFlightRequests enterRequest() {
+        return InFlightRequests.enterCurrent(() -> this.inFlightRequests);
+    }
+
+}
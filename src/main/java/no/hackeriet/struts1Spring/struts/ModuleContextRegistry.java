@@ -0,0 +1,257 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import org.springframework.context.ApplicationContextException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.servlet.ServletContext;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory registry of the WebApplicationContexts published by
+ * ContextLoaderPlugIn, keyed by ServletContext and Struts module prefix.
+ *
+ * <p>Mirrors the ServletContext attributes written by ContextLoaderPlugIn,
+ * so that the per-module context, or the default module's context for a
+ * module without one, can be resolved without going through the attribute
+ * map of the servlet container. Reads are lock-free; the registrations
+ * themselves are copy-on-write.
+ *
+ * <p>Module contexts can also be registered while their refresh is still
+ * pending on a bounded executor shared by all modules of the ServletContext.
+ * Lookups of such a context block until its refresh has completed, and
+ * rethrow a refresh failure.
+ *
+ * @see ContextLoaderPlugIn#initWebApplicationContext
+ * @see DelegatingActionUtils#getWebApplicationContext
+ * @since 1.0.1
+ */
+abstract class ModuleContextRegistry {
+
+    private static final ConcurrentMap<ServletContext, ModuleContexts> registrations = new ConcurrentHashMap<>();
+
+
+    /**
+     * Register the given module context.
+     *
+     * @param servletContext the ServletContext the context is published in
+     * @param modulePrefix   the Struts module prefix ("" for the default module)
+     * @param wac            the WebApplicationContext of the module
+     * @param rootContext    the root WebApplicationContext (can be {@code null})
+     */
+    static void registerContext(ServletContext servletContext, String modulePrefix,
+                                WebApplicationContext wac, WebApplicationContext rootContext) {
+
+        registrations.compute(servletContext, (key, contexts) -> {
+            ModuleContexts result = (contexts != null ? contexts : new ModuleContexts());
+            result.register(modulePrefix, wac, rootContext);
+            return result;
+        });
+    }
+
+    /**
+     * Register the given module context, running the given refresh task in
+     * the background. Lookups of the context wait for the refresh task to
+     * complete.
+     *
+     * @param servletContext the ServletContext the context is published in
+     * @param modulePrefix   the Struts module prefix ("" for the default module)
+     * @param wac            the WebApplicationContext of the module
+     * @param rootContext    the root WebApplicationContext (can be {@code null})
+     * @param refreshTask    the task that refreshes the context
+     * @param maxThreads     the maximum number of concurrent refreshes (more than 0)
+     * @return the Future of the refresh task
+     */
+    static Future<?> registerPendingContext(ServletContext servletContext, String modulePrefix,
+                                            WebApplicationContext wac, WebApplicationContext rootContext,
+                                            Runnable refreshTask, int maxThreads) {
+
+        FutureTask<?> refresh = new FutureTask<>(refreshTask, null);
+        ModuleContexts contexts = registrations.compute(servletContext, (key, existing) -> {
+            ModuleContexts result = (existing != null ? existing : new ModuleContexts());
+            result.registerPending(modulePrefix, wac, rootContext, refresh);
+            return result;
+        });
+        contexts.getRefreshExecutor(maxThreads).execute(refresh);
+        return refresh;
+    }
+
+    /**
+     * Remove the given module context, if it is still the registered one.
+     *
+     * @param servletContext the ServletContext the context is published in
+     * @param modulePrefix   the Struts module prefix ("" for the default module)
+     * @param wac            the WebApplicationContext of the module
+     */
+    static void unregisterContext(ServletContext servletContext, String modulePrefix, WebApplicationContext wac) {
+        registrations.computeIfPresent(servletContext,
+                (key, contexts) -> (contexts.unregister(modulePrefix, wac) ? null : contexts));
+    }
+
+    /**
+     * Return whether any module context is registered for the given
+     * ServletContext, in which case the registry resolves all modules
+     * of it, including those without a context of their own.
+     *
+     * @param servletContext the ServletContext
+     * @return whether module contexts are registered
+     * @see #resolveContext
+     */
+    static boolean isRegistered(ServletContext servletContext) {
+        return registrations.containsKey(servletContext);
+    }
+
+    /**
+     * Resolve the context registered for the given module, falling back to
+     * the context registered for the default module.
+     *
+     * @param servletContext the ServletContext
+     * @param modulePrefix   the Struts module prefix ("" for the default module,
+     *                       {@code null} for the default module only)
+     * @return the WebApplicationContext, or {@code null} if none registered
+     */
+    static WebApplicationContext resolveContext(ServletContext servletContext, String modulePrefix) {
+        ModuleContexts contexts = registrations.get(servletContext);
+        if (contexts == null) {
+            return null;
+        }
+        WebApplicationContext wac = (modulePrefix != null ? contexts.getContext(modulePrefix) : null);
+        if (wac == null && !"".equals(modulePrefix)) {
+            wac = contexts.getContext("");
+        }
+        return wac;
+    }
+
+    /**
+     * Return the root context that the registered module contexts refer to.
+     *
+     * @param servletContext the ServletContext
+     * @return the root WebApplicationContext, or {@code null} if not known
+     */
+    static WebApplicationContext getRootContext(ServletContext servletContext) {
+        ModuleContexts contexts = registrations.get(servletContext);
+        return (contexts != null ? contexts.rootContext : null);
+    }
+
+
+    /**
+     * Module contexts of a single ServletContext.
+     */
+    private static class ModuleContexts {
+
+        private volatile Map<String, WebApplicationContext> contexts = Collections.emptyMap();
+
+        private volatile WebApplicationContext rootContext;
+
+        private volatile Map<String, Future<?>> pendingRefreshes = Collections.emptyMap();
+
+        private ThreadPoolExecutor refreshExecutor;
+
+        WebApplicationContext getContext(String modulePrefix) {
+            WebApplicationContext wac = this.contexts.get(modulePrefix);
+            if (wac != null && !this.pendingRefreshes.isEmpty()) {
+                awaitRefresh(modulePrefix);
+            }
+            return wac;
+        }
+
+        private void awaitRefresh(String modulePrefix) {
+            Future<?> refresh = this.pendingRefreshes.get(modulePrefix);
+            if (refresh == null) {
+                return;
+            }
+            try {
+                refresh.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new ApplicationContextException(
+                        "Interrupted while waiting for refresh of context of module '" + modulePrefix + "'", ex);
+            } catch (ExecutionException ex) {
+                throw new ApplicationContextException(
+                        "Refresh of context of module '" + modulePrefix + "' failed", ex.getCause());
+            }
+            removePending(modulePrefix, refresh);
+        }
+
+        synchronized void registerPending(String modulePrefix, WebApplicationContext wac,
+                                          WebApplicationContext rootContext, Future<?> refresh) {
+
+            register(modulePrefix, wac, rootContext);
+            Map<String, Future<?>> pendingRefreshes = new HashMap<>(this.pendingRefreshes);
+            pendingRefreshes.put(modulePrefix, refresh);
+            this.pendingRefreshes = Collections.unmodifiableMap(pendingRefreshes);
+        }
+
+        private synchronized void removePending(String modulePrefix, Future<?> refresh) {
+            if (this.pendingRefreshes.get(modulePrefix) == refresh) {
+                Map<String, Future<?>> pendingRefreshes = new HashMap<>(this.pendingRefreshes);
+                pendingRefreshes.remove(modulePrefix);
+                this.pendingRefreshes = Collections.unmodifiableMap(pendingRefreshes);
+            }
+        }
+
+        synchronized ThreadPoolExecutor getRefreshExecutor(int maxThreads) {
+            if (this.refreshExecutor == null) {
+                CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("struts-context-refresh-");
+                threadFactory.setDaemon(true);
+                this.refreshExecutor = new ThreadPoolExecutor(maxThreads, maxThreads, 10, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<>(), threadFactory);
+                this.refreshExecutor.allowCoreThreadTimeOut(true);
+            }
+            return this.refreshExecutor;
+        }
+
+        synchronized void register(String modulePrefix, WebApplicationContext wac, WebApplicationContext rootContext) {
+            Map<String, WebApplicationContext> contexts = new HashMap<>(this.contexts);
+            contexts.put(modulePrefix, wac);
+            this.contexts = Collections.unmodifiableMap(contexts);
+            if (rootContext != null) {
+                this.rootContext = rootContext;
+            }
+        }
+
+        /**
+         * @return whether no module context is left
+         */
+        synchronized boolean unregister(String modulePrefix, WebApplicationContext wac) {
+            if (this.contexts.get(modulePrefix) == wac) {
+                Map<String, WebApplicationContext> contexts = new HashMap<>(this.contexts);
+                contexts.remove(modulePrefix);
+                this.contexts = Collections.unmodifiableMap(contexts);
+                removePending(modulePrefix, this.pendingRefreshes.get(modulePrefix));
+            }
+            if (this.contexts.isEmpty() && this.refreshExecutor != null) {
+                this.refreshExecutor.shutdown();
+                this.refreshExecutor = null;
+            }
+            return this.contexts.isEmpty();
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ApplicationContextEvent;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.function.Consumer;
+
+/**
+ * Event that ContextLoaderPlugIn publishes on a module context once a
+ * reloaded context has been published in its place, before the replaced
+ * context gets closed. Components that hold on to the replaced context,
+ * such as the request processors, switch to the replacement on this event.
+ *
+ * <p>A component that fails to switch throws an exception, which makes
+ * ContextLoaderPlugIn keep the replaced context: the PlugIn then publishes
+ * this event the other way round on the reloaded context, to switch back
+ * the components that did switch, before closing the reloaded context.
+ *
+ * @see ContextLoaderPlugIn#setReloadOnChange
+ * @since 1.0.1
+ */
+@SuppressWarnings("serial")
+public class ModuleContextReplacedEvent extends ApplicationContextEvent {
+
+    private final WebApplicationContext replacement;
+
+
+    /**
+     * Create a new ModuleContextReplacedEvent.
+     *
+     * @param replaced    the context that has been replaced
+     * @param replacement the context that replaces it
+     */
+    public ModuleContextReplacedEvent(ApplicationContext replaced, WebApplicationContext replacement) {
+        super(replaced);
+        this.replacement = replacement;
+    }
+
+
+    /**
+     * Return the context that replaces the context of this event.
+     * @return the replacement WebApplicationContext
+     */
+    public WebApplicationContext getReplacement() {
+        return this.replacement;
+    }
+
+    /**
+     * Create a listener that runs the given callback on this event.
+     *
+     * @param callback the callback, receiving the replacement context
+     * @return the ApplicationListener to register with the replaced context
+     */
+    public static ApplicationListener<ModuleContextReplacedEvent> listener(Consumer<WebApplicationContext> callback) {
+        return new Listener(callback);
+    }
+
+
+    /**
+     * Declares the event type for Spring's listener type matching.
+     */
+    private static class Listener implements ApplicationListener<ModuleContextReplacedEvent> {
+
+        private final Consumer<WebApplicationContext> callback;
+
+        Listener(Consumer<WebApplicationContext> callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public void onApplicationEvent(ModuleContextReplacedEvent event) {
+            this.callback.accept(event.getReplacement());
+        }
+    }
+
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.struts.action.Action;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.config.Scope;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.util.Assert;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * {@link Scope} for Struts {@code Action} beans that hold per-request state,
+ * recycling instances through a bounded pool per bean name instead of creating
+ * a new instance for every request like the "prototype" scope does.
+ *
+ * <p>ContextLoaderPlugIn registers this scope under the name "pooled":
+ *
+ * <pre class="code">
+ * &lt;bean name="/login" class="myapp.MyAction" scope="pooled"/&gt;</pre>
+ *
+ * Each {@link #get} call hands out an idle instance if there is one, creating
+ * a new one otherwise. Instances are returned through {@link #release}, which
+ * the delegating request processors and {@link DelegatingActionProxy} call
+ * after the {@code Action} has executed; instances implementing
+ * {@link ResettableAction} get reset at that point. Instances beyond the
+ * maximum number of idle instances are discarded.
+ *
+ * <p>The idle instances of a bean are kept in a fixed number of slots that are
+ * claimed through compare-and-set, with each thread starting its search at a
+ * different slot, so that concurrent requests do not contend for the same slot.
+ *
+ * <p>As with prototypes, the container does not track the instances: destruction
+ * callbacks are not supported. Discarded instances, and all idle instances on
+ * context close, get released by passing {@code null} as their servlet.
+ *
+ * @see ResettableAction
+ * @see ActionDelegate#releaseAction
+ * @see ContextLoaderPlugIn#setMaxPooledActions
+ * @since 1.0.1
+ */
+public class PooledActionScope implements Scope, ApplicationListener<ContextClosedEvent> {
+
+    /**
+     * Name that ContextLoaderPlugIn registers this scope under: "pooled".
+     */
+    public static final String SCOPE_NAME = "pooled";
+
+    /**
+     * Default maximum number of idle instances per bean: twice the number of processors.
+     */
+    public static final int DEFAULT_MAX_IDLE = Runtime.getRuntime().availableProcessors() * 2;
+
+
+    private static final Log logger = LogFactory.getLog(PooledActionScope.class);
+
+    private final int maxIdle;
+
+    private final ConcurrentMap<String, ActionPool> pools = new ConcurrentHashMap<>();
+
+
+    /**
+     * Create a new PooledActionScope with the default maximum of idle instances.
+     *
+     * @see #DEFAULT_MAX_IDLE
+     */
+    public PooledActionScope() {
+        this(DEFAULT_MAX_IDLE);
+    }
+
+    /**
+     * Create a new PooledActionScope.
+     *
+     * @param maxIdle the maximum number of idle instances to keep per bean
+     */
+    public PooledActionScope(int maxIdle) {
+        Assert.isTrue(maxIdle > 0, "maxIdle must be greater than 0");
+        this.maxIdle = maxIdle;
+    }
+
+
+    /**
+     * Hand out an idle instance of the given bean, or create a new one.
+     */
+    @Override
+    public Object get(String name, ObjectFactory<?> objectFactory) {
+        ActionPool pool = this.pools.get(name);
+        Object bean = (pool != null ? pool.borrow() : null);
+        return (bean != null ? bean : objectFactory.getObject());
+    }
+
+    /**
+     * Return the given instance to the pool of the given bean, resetting it
+     * first if it implements {@link ResettableAction}. The instance gets
+     * discarded if the pool is full or if the reset fails.
+     *
+     * @param name the name of the bean
+     * @param bean the instance obtained from {@link #get}
+     */
+    public void release(String name, Object bean) {
+        if (bean instanceof ResettableAction) {
+            try {
+                ((ResettableAction) bean).reset();
+            } catch (RuntimeException ex) {
+                logger.warn("Discarding instance of pooled bean '" + name + "' after failed reset", ex);
+                discard(bean);
+                return;
+            }
+        }
+        if (!this.pools.computeIfAbsent(name, key -> new ActionPool(this.maxIdle)).offer(bean)) {
+            discard(bean);
+        }
+    }
+
+    /**
+     * Discard the idle instances of the given bean.
+     */
+    @Override
+    public Object remove(String name) {
+        ActionPool pool = this.pools.remove(name);
+        if (pool != null) {
+            pool.drain();
+        }
+        return null;
+    }
+
+    /**
+     * Pooled instances are not tracked by the container; the callback is ignored.
+     */
+    @Override
+    public void registerDestructionCallback(String name, Runnable callback) {
+        if (logger.isTraceEnabled()) {
+            logger.trace("PooledActionScope does not support destruction callbacks: ignoring callback for bean '" +
+                    name + "'");
+        }
+    }
+
+    @Override
+    public Object resolveContextualObject(String key) {
+        return null;
+    }
+
+    @Override
+    public String getConversationId() {
+        return null;
+    }
+
+    /**
+     * Discard all idle instances when the context gets closed.
+     */
+    @Override
+    public void onApplicationEvent(ContextClosedEvent event) {
+        for (String name : this.pools.keySet()) {
+            remove(name);
+        }
+    }
+
+    private static void discard(Object bean) {
+        if (bean instanceof Action) {
+            ((Action) bean).setServlet(null);
+        }
+    }
+
+
+    /**
+     * Fixed-size set of slots holding the idle instances of a single bean.
+     */
+    private static class ActionPool {
+
+        private final AtomicReferenceArray<Object> slots;
+
+        ActionPool(int size) {
+            this.slots = new AtomicReferenceArray<>(size);
+        }
+
+        Object borrow() {
+            int size = this.slots.length();
+            int start = startIndex(size);
+            for (int i = 0; i < size; i++) {
+                int index = (start + i) % size;
+                Object bean = this.slots.get(index);
+                if (bean != null && this.slots.compareAndSet(index, bean, null)) {
+                    return bean;
+                }
+            }
+            return null;
+        }
+
+        boolean offer(Object bean) {
+            int size = this.slots.length();
+            int start = startIndex(size);
+            for (int i = 0; i < size; i++) {
+                int index = (start + i) % size;
+                if (this.slots.get(index) == null && this.slots.compareAndSet(index, null, bean)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void drain() {
+            for (int i = 0; i < this.slots.length(); i++) {
+                Object bean = this.slots.getAndSet(i, null);
+                if (bean != null) {
+                    discard(bean);
+                }
+            }
+        }
+
+        private static int startIndex(int size) {
+            return (int) (Thread.currentThread().getId() % size);
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import org.springframework.web.context.support.XmlWebApplicationContext;
+
+import java.io.IOException;
+
+/**
+ * XmlWebApplicationContext that loads the bean definitions of each config
+ * location in a {@link StartupReport} phase of its own. ContextLoaderPlugIn
+ * uses it in place of the default context class while collecting a startup
+ * report.
+ *
+ * @see ContextLoaderPlugIn#setCollectStartupReport
+ * @since 1.0.1
+ */
+class ProfilingXmlWebApplicationContext extends XmlWebApplicationContext {
+
+    private final StartupReport startupReport;
+
+
+    ProfilingXmlWebApplicationContext(StartupReport startupReport) {
+        this.startupReport = startupReport;
+    }
+
+
+    @Override
+    protected void loadBeanDefinitions(XmlBeanDefinitionReader reader) throws IOException {
+        String[] configLocations = getConfigLocations();
+        if (configLocations != null) {
+            for (String configLocation : configLocations) {
+                this.startupReport.startConfigLocationPhase(configLocation);
+                reader.loadBeanDefinitions(configLocation);
+            }
+            this.startupReport.endConfigLocationPhases();
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import org.apache.struts.config.ActionConfig;
+import org.springframework.util.Assert;
+
+/**
+ * {@link ActionBeanNameResolver} implementation that takes the bean name
+ * from a property of the Action mapping, falling back to another strategy
+ * (by default, {@link DefaultActionBeanNameResolver}) for mappings that do
+ * not specify the property.
+ *
+ * <pre class="code">
+ * &lt;action path="/login"&gt;
+ *   &lt;set-property key="spring.beanName" value="loginAction"/&gt;
+ * &lt;/action&gt;</pre>
+ *
+ * @see #BEAN_NAME_PROPERTY
+ * @see org.apache.struts.config.ActionConfig#getProperty
+ * @since 1.0.1
+ */
+public class PropertyActionBeanNameResolver implements ActionBeanNameResolver {
+
+    /**
+     * Default key of the mapping property that holds the bean name: "spring.beanName"
+     */
+    public static final String BEAN_NAME_PROPERTY = "spring.beanName";
+
+
+    private String propertyKey = BEAN_NAME_PROPERTY;
+
+    private ActionBeanNameResolver fallbackResolver = new DefaultActionBeanNameResolver();
+
+
+    /**
+     * Set the key of the mapping property that holds the bean name.
+     * Default is "spring.beanName".
+     *
+     * @param propertyKey the key of the mapping property
+     */
+    public void setPropertyKey(String propertyKey) {
+        Assert.hasText(propertyKey, "'propertyKey' must not be empty");
+        this.propertyKey = propertyKey;
+    }
+
+    /**
+     * Set the strategy to use for mappings without the bean name property.
+     * Default is a {@link DefaultActionBeanNameResolver}.
+     *
+     * @param fallbackResolver the strategy to fall back to
+     */
+    public void setFallbackResolver(ActionBeanNameResolver fallbackResolver) {
+        Assert.notNull(fallbackResolver, "'fallbackResolver' must not be null");
+        this.fallbackResolver = fallbackResolver;
+    }
+
+
+    @Override
+    public String determineActionBeanName(ActionConfig actionConfig) {
+        String beanName = actionConfig.getProperty(this.propertyKey);
+        return (beanName != null ? beanName : this.fallbackResolver.determineActionBeanName(actionConfig));
+    }
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+/**
+ * Callback interface for pooled Struts {@code Action} beans that hold
+ * per-request state, to be cleared before the instance is handed out again.
+ *
+ * @see PooledActionScope
+ * @since 1.0.1
+ */
+public interface ResettableAction {
+
+    /**
+     * Clear all per-request state of this instance.
+     * <p>Called each time the instance is returned to its pool. If this method
+     * throws an exception, the instance gets discarded instead of pooled.
+     */
+    void reset();
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.servlet.ServletContext;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Reference-counted registry of the shared parent contexts that
+ * ContextLoaderPlugIns create for their "sharedContextConfigLocation",
+ * keyed by ServletContext and config locations.
+ *
+ * <p>The first PlugIn to ask for a given set of locations creates the shared
+ * context; all others, of any module or ActionServlet of the same web
+ * application, get the same instance. The context gets closed once the last
+ * PlugIn referring to it has released it.
+ *
+ * @see ContextLoaderPlugIn#setSharedContextConfigLocation
+ * @since 1.0.1
+ */
+abstract class SharedContextRegistry {
+
+    private static final Map<Key, SharedContext> sharedContexts = new HashMap<>();
+
+
+    /**
+     * Obtain the shared context for the given config locations, creating it
+     * through the given factory if there is none yet, and add a reference to it.
+     * Contexts for different locations may get created concurrently.
+     *
+     * @param servletContext  the ServletContext of the web application
+     * @param configLocations the config locations of the shared context
+     * @param factory         the factory that creates and refreshes the context
+     * @return the shared WebApplicationContext
+     */
+    static WebApplicationContext obtainContext(ServletContext servletContext, String[] configLocations,
+                                               Supplier<WebApplicationContext> factory) {
+
+        SharedContext sharedContext;
+        synchronized (sharedContexts) {
+            sharedContext = sharedContexts.computeIfAbsent(
+                    new Key(servletContext, Arrays.asList(configLocations)), key -> new SharedContext());
+            sharedContext.referenceCount++;
+        }
+        try {
+            return sharedContext.getContext(factory);
+        } catch (RuntimeException | Error ex) {
+            release(sharedContext);
+            throw ex;
+        }
+    }
+
+    /**
+     * Release a reference to the given shared context, closing it if that
+     * was the last one.
+     *
+     * @param servletContext the ServletContext of the web application
+     * @param wac            the shared WebApplicationContext
+     * @return the number of references left
+     */
+    static int releaseContext(ServletContext servletContext, WebApplicationContext wac) {
+        SharedContext sharedContext = null;
+        synchronized (sharedContexts) {
+            for (Map.Entry<Key, SharedContext> entry : sharedContexts.entrySet()) {
+                if (entry.getKey().servletContext == servletContext && entry.getValue().context == wac) {
+                    sharedContext = entry.getValue();
+                    break;
+                }
+            }
+        }
+        return (sharedContext != null ? release(sharedContext) : 0);
+    }
+
+    private static int release(SharedContext sharedContext) {
+        WebApplicationContext toClose;
+        synchronized (sharedContexts) {
+            int referenceCount = --sharedContext.referenceCount;
+            if (referenceCount > 0) {
+                return referenceCount;
+            }
+            Iterator<SharedContext> it = sharedContexts.values().iterator();
+            while (it.hasNext()) {
+                if (it.next() == sharedContext) {
+                    it.remove();
+                }
+            }
+            toClose = sharedContext.context;
+        }
+        if (toClose instanceof ConfigurableApplicationContext) {
+            ((ConfigurableApplicationContext) toClose).close();
+        }
+        return 0;
+    }
+
+
+    /**
+     * A shared context and the number of PlugIns referring to it.
+     */
+    private static class SharedContext {
+
+        private volatile WebApplicationContext context;
+
+        private int referenceCount;
+
+        synchronized WebApplicationContext getContext(Supplier<WebApplicationContext> factory) {
+            if (this.context == null) {
+                this.context = factory.get();
+            }
+            return this.context;
+        }
+    }
+
+
+    /**
+     * Identifies a shared context: the ServletContext, by identity,
+     * and the config locations, in order.
+     */
+    private static class Key {
+
+        private final ServletContext servletContext;
+
+        private final List<String> configLocations;
+
+        Key(ServletContext servletContext, List<String> configLocations) {
+            this.servletContext = servletContext;
+            this.configLocations = configLocations;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key otherKey = (Key) other;
+            return (this.servletContext == otherKey.servletContext &&
+                    this.configLocations.equals(otherKey.configLocations));
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this.servletContext) * 31 + this.configLocations.hashCode();
+        }
+    }
+
+}
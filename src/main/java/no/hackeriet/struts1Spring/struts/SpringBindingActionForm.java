@@ -30,8 +30,10 @@ import org.springframework.context.MessageSourceResolvable;
 import org.springframework.validation.Errors;
 import org.springframework.validation.FieldError;
 import org.springframework.validation.ObjectError;
+import org.springframework.web.servlet.support.RequestContextUtils;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Locale;
 
@@ -72,7 +74,16 @@ import java.util.Locale;
  *   return actionMapping.findForward("success");
  * }</pre>
  *
- * This class is compatible with both Struts 1.2.x and Struts 1.1.
+ * By default, {@code expose} takes the locale from the HTTP session, creating
+ * a session if there is none. Set the "spring.sessionFreeLocale" init-param of
+ * the ActionServlet, or the "sessionFreeLocale" property of the form, to "true"
+ * to resolve the locale without creating a session instead.
+ *
+ * <p>The most specific message key present for the codes of an error, and
+ * the message text of an argument, are cached per MessageResources instance
+ * and locale; see {@link #clearMessageKeyCache()}.
+ *
+ * <p>This class is compatible with both Struts 1.2.x and Struts 1.1.
  * On Struts 1.2, default messages registered with Spring binding errors
  * are exposed when none of the error codes could be resolved.
  * On Struts 1.1, this is not possible due to a limitation in the Struts
@@ -118,6 +129,10 @@ public class SpringBindingActionForm extends ActionForm {
 
     private MessageResources messageResources;
 
+    private transient MessageKeyCache messageKeyCache;
+
+    private boolean sessionFreeLocale = false;
+
 
     /**
      * Set the Errors object that this SpringBindingActionForm is supposed
@@ -132,11 +147,12 @@ public class SpringBindingActionForm extends ActionForm {
     public void expose(Errors errors, HttpServletRequest request) {
         this.errors = errors;
 
-        // Obtain the locale from Struts well-known location.
-        this.locale = (Locale) request.getSession().getAttribute(Globals.LOCALE_KEY);
+        this.locale = resolveLocale(request);
 
         // Obtain the MessageResources from Struts' well-known location.
         this.messageResources = (MessageResources) request.getAttribute(Globals.MESSAGES_KEY);
+        this.messageKeyCache =
+                (this.messageResources != null ? MessageKeyCache.getInstance(this.messageResources) : null);
 
         if (errors != null && errors.hasErrors()) {
             // Add global ActionError instances from the Spring Errors object.
@@ -150,6 +166,50 @@ public class SpringBindingActionForm extends ActionForm {
     }
 
 
+    /**
+     * Set whether to resolve the locale without creating an HTTP session.
+     * Default is "false", unless the "spring.sessionFreeLocale" init-param
+     * of the ActionServlet that created this form is set to "true".
+     * <p>The locale is then taken from the session only if there already is one
+     * that holds the Struts locale, and resolved through the Spring LocaleResolver
+     * of the request, if any, or from the request's "Accept-Language" header
+     * otherwise. Saves creating a session for stateless requests.
+     *
+     * @param sessionFreeLocale whether to resolve the locale without creating a session
+     * @see DelegatingActionUtils#PARAM_SESSION_FREE_LOCALE
+     * @see org.springframework.web.servlet.support.RequestContextUtils#getLocale
+     */
+    public void setSessionFreeLocale(boolean sessionFreeLocale) {
+        this.sessionFreeLocale = sessionFreeLocale;
+    }
+
+    /**
+     * Return whether to resolve the locale without creating an HTTP session.
+     * @return whether to resolve the locale without creating a session
+     */
+    public boolean isSessionFreeLocale() {
+        return (this.sessionFreeLocale ||
+                (getServlet() != null && DelegatingActionUtils.getSessionFreeLocale(getServlet())));
+    }
+
+    /**
+     * Resolve the locale to look up messages for.
+     *
+     * @param request the current HttpServletRequest
+     * @return the locale, or {@code null} for the default locale of the MessageResources
+     * @see #setSessionFreeLocale
+     */
+    private Locale resolveLocale(HttpServletRequest request) {
+        if (!isSessionFreeLocale()) {
+            // Obtain the locale from Struts well-known location.
+            return (Locale) request.getSession().getAttribute(Globals.LOCALE_KEY);
+        }
+        HttpSession session = request.getSession(false);
+        Locale locale = (session != null ? (Locale) session.getAttribute(Globals.LOCALE_KEY) : null);
+        return (locale != null ? locale : RequestContextUtils.getLocale(request));
+    }
+
+
     /**
      * Return an ActionMessages representation of this SpringBindingActionForm,
      * exposing all errors contained in the underlying Spring Errors object.
@@ -190,51 +250,78 @@ public class SpringBindingActionForm extends ActionForm {
             if (arg instanceof MessageSourceResolvable) {
                 MessageSourceResolvable resolvable = (MessageSourceResolvable) arg;
                 String[] codes = resolvable.getCodes();
-                boolean resolved = false;
-                if (this.messageResources != null) {
-                    for (String code : codes) {
-                        if (this.messageResources.isPresent(this.locale, code)) {
-                            arguments[i] = this.messageResources.getMessage(this.locale, code, resolveArguments(resolvable.getArguments()));
-                            resolved = true;
-                            break;
-                        }
+                String message = null;
+                if (this.messageResources != null && codes != null) {
+                    Object[] nestedArguments = resolvable.getArguments();
+                    if (nestedArguments == null || nestedArguments.length == 0) {
+                        // The text does not depend on any arguments: cacheable.
+                        message = this.messageKeyCache.getMessage(
+                                this.locale, codes, key -> lookUpMessage(key, nestedArguments));
+                    } else {
+                        message = lookUpMessage(codes, nestedArguments);
                     }
                 }
-                if (!resolved) {
-                    arguments[i] = resolvable.getDefaultMessage();
-                }
+                arguments[i] = (message != null ? message : resolvable.getDefaultMessage());
             }
         }
         return arguments;
     }
 
+    private String lookUpMessage(String[] codes, Object[] arguments) {
+        for (String code : codes) {
+            if (this.messageResources.isPresent(this.locale, code)) {
+                return this.messageResources.getMessage(this.locale, code, resolveArguments(arguments));
+            }
+        }
+        return null;
+    }
+
     /**
      * Find the most specific message key for the given error.
+     * The key found for the codes of an error gets cached per locale.
      *
      * @param error the ObjectError to find a message key for
      * @return the most specific message key found
+     * @see #clearMessageKeyCache
      */
     private String findEffectiveMessageKey(ObjectError error) {
-        if (this.messageResources != null) {
-            String[] possibleMatches = error.getCodes();
-            for (String possibleMatch : possibleMatches) {
+        String effectiveMessageKey = null;
+        if (this.messageResources != null && error.getCodes() != null) {
+            effectiveMessageKey = this.messageKeyCache.getEffectiveKey(
+                    this.locale, error.getCodes(), this::lookUpMessageKey);
+        }
+        if (effectiveMessageKey == null && logger.isDebugEnabled()) {
+            logger.debug("Could not find a suitable message error code, returning default message");
+        }
+        return effectiveMessageKey;
+    }
+
+    private String lookUpMessageKey(String[] possibleMatches) {
+        for (String possibleMatch : possibleMatches) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Looking for error code '" + possibleMatch + "'");
+            }
+            if (this.messageResources.isPresent(this.locale, possibleMatch)) {
                 if (logger.isDebugEnabled()) {
-                    logger.debug("Looking for error code '" + possibleMatch + "'");
-                }
-                if (this.messageResources.isPresent(this.locale, possibleMatch)) {
-                    if (logger.isDebugEnabled()) {
-                        logger.debug("Found error code '" + possibleMatch + "' in resource bundle");
-                    }
-                    return possibleMatch;
+                    logger.debug("Found error code '" + possibleMatch + "' in resource bundle");
                 }
+                return possibleMatch;
             }
         }
-        if (logger.isDebugEnabled()) {
-            logger.debug("Could not find a suitable message error code, returning default message");
-        }
         return null;
     }
 
+    /**
+     * Discard the message keys and argument texts that SpringBindingActionForms
+     * have resolved against Struts MessageResources so far.
+     * <p>The codes get resolved once per MessageResources instance and locale;
+     * resources that get reloaded as new instance start out with an empty cache.
+     * Call this method after reloading the messages of an existing instance.
+     */
+    public static void clearMessageKeyCache() {
+        MessageKeyCache.clearAll();
+    }
+
 
     /**
      * Get the formatted value for the property at the provided path.
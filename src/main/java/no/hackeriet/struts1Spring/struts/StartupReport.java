@@ -0,0 +1,474 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessorAdapter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup profile of a ContextLoaderPlugIn: the duration of each startup
+ * phase, plus the time spent instantiating each bean while the report is
+ * being recorded, of which the slowest beans are kept.
+ *
+ * <p>Bean timings are taken by a {@link BeanPostProcessor} that
+ * ContextLoaderPlugIn registers first: from before instantiation to after
+ * initialization of each bean, which covers property population and init
+ * methods, but not the after-initialization callbacks of other post-processors.
+ * Both the total time of each bean and its own time, excluding the
+ * dependencies created along the way, are reported. Once the report is
+ * {@link #complete() complete}, the post-processor stops recording.
+ *
+ * <p>The post-processor overhead adds up the "postProcessBeanFactory" phase,
+ * which instantiates and invokes the bean factory post-processors, the
+ * instantiation of bean post-processors, and the after-initialization
+ * callbacks of the bean post-processors, as timed by a second post-processor
+ * that ContextLoaderPlugIn registers after the ones defined in the context.
+ *
+ * <p>ContextLoaderPlugIn creates an instance per Struts module when
+ * "collectStartupReport" is set, publishing it as ServletContext attribute
+ * and as JMX MBean, and optionally writing it as JSON file.
+ *
+ * @see ContextLoaderPlugIn#setCollectStartupReport
+ * @since 1.0.1
+ */
+public class StartupReport implements StartupReportMXBean {
+
+    /**
+     * Prefix for the ServletContext attribute for the StartupReport.
+     * The completion is the Struts module name.
+     */
+    public static final String SERVLET_CONTEXT_PREFIX = StartupReport.class.getName() + ".REPORT.";
+
+    /**
+     * Default number of slowest beans to keep: 20.
+     */
+    public static final int DEFAULT_MAX_BEANS = 20;
+
+    /**
+     * Phase of instantiating and invoking the bean factory post-processors.
+     */
+    static final String POST_PROCESS_BEAN_FACTORY_PHASE = "postProcessBeanFactory";
+
+    private static final String LOAD_BEAN_DEFINITIONS_PHASE = "loadBeanDefinitions";
+
+
+    private final String servletName;
+
+    private final String modulePrefix;
+
+    private final int maxBeans;
+
+    private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+
+    private final List<BeanTiming> beanTimings = new ArrayList<>();
+
+    private final ThreadLocal<Deque<BeanFrame>> beansInCreation = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final ThreadLocal<Map<String, Long>> callbacksInProgress = ThreadLocal.withInitial(HashMap::new);
+
+    private String currentPhase;
+
+    private long currentPhaseStart;
+
+    private int instantiatedBeanCount;
+
+    private long postProcessorNanos;
+
+    private long postProcessorCallbackNanos;
+
+    private volatile boolean complete;
+
+
+    /**
+     * Create a new StartupReport.
+     *
+     * @param servletName  the name of the Struts ActionServlet
+     * @param modulePrefix the Struts module prefix
+     * @param maxBeans     the number of slowest beans to keep
+     */
+    public StartupReport(String servletName, String modulePrefix, int maxBeans) {
+        this.servletName = servletName;
+        this.modulePrefix = modulePrefix;
+        this.maxBeans = maxBeans;
+    }
+
+
+    /**
+     * Return the name of the Struts ActionServlet.
+     * @return the name of the Struts ActionServlet
+     */
+    public String getServletName() {
+        return this.servletName;
+    }
+
+    /**
+     * Return the Struts module prefix.
+     * @return the Struts module prefix
+     */
+    public String getModulePrefix() {
+        return this.modulePrefix;
+    }
+
+    /**
+     * End the current phase, if any, and start the given one.
+     *
+     * @param phase the name of the phase
+     */
+    public synchronized void startPhase(String phase) {
+        long now = System.nanoTime();
+        endCurrentPhase(now);
+        this.currentPhase = phase;
+        this.currentPhaseStart = now;
+    }
+
+    /**
+     * Start the phase of loading the bean definitions of the given config
+     * location, named "loadBeanDefinitions:" plus the location, unless the
+     * report is complete already.
+     *
+     * @param configLocation the config location
+     */
+    void startConfigLocationPhase(String configLocation) {
+        if (!this.complete) {
+            startPhase(LOAD_BEAN_DEFINITIONS_PHASE + ":" + configLocation);
+        }
+    }
+
+    /**
+     * Start the "postProcessBeanFactory" phase once the bean definitions of
+     * all config locations have been loaded, unless the report is complete
+     * already.
+     */
+    void endConfigLocationPhases() {
+        if (!this.complete) {
+            startPhase(POST_PROCESS_BEAN_FACTORY_PHASE);
+        }
+    }
+
+    private void endCurrentPhase(long now) {
+        if (this.currentPhase != null) {
+            this.phaseNanos.merge(this.currentPhase, now - this.currentPhaseStart, Long::sum);
+            this.currentPhase = null;
+        }
+    }
+
+    /**
+     * End the current phase and stop recording bean timings,
+     * keeping only the slowest beans.
+     */
+    public synchronized void complete() {
+        endCurrentPhase(System.nanoTime());
+        this.complete = true;
+        this.beanTimings.sort((t1, t2) -> Long.compare(t2.selfNanos, t1.selfNanos));
+        if (this.beanTimings.size() > this.maxBeans) {
+            this.beanTimings.subList(this.maxBeans, this.beanTimings.size()).clear();
+        }
+    }
+
+    /**
+     * Return whether the report is complete.
+     * @return whether the report is complete
+     */
+    public boolean isComplete() {
+        return this.complete;
+    }
+
+    /**
+     * Create the post-processor that records bean timings for this report,
+     * to be registered with the bean factory before any bean gets created.
+     *
+     * @return the recording BeanPostProcessor
+     */
+    public BeanPostProcessor createBeanTimingPostProcessor() {
+        return new BeanTimingPostProcessor();
+    }
+
+    /**
+     * Create the post-processor that records the time spent in the
+     * after-initialization callbacks of the post-processors registered
+     * in between, to be registered after the ones defined in the context.
+     *
+     * @return the recording BeanPostProcessor
+     * @see #createBeanTimingPostProcessor
+     */
+    public BeanPostProcessor createCallbackTimingPostProcessor() {
+        return new CallbackTimingPostProcessor();
+    }
+
+    private synchronized void recordBean(String beanName, Object bean, long totalNanos, long selfNanos) {
+        if (this.complete) {
+            return;
+        }
+        this.instantiatedBeanCount++;
+        boolean postProcessor = (bean instanceof BeanPostProcessor || bean instanceof BeanFactoryPostProcessor);
+        if (bean instanceof BeanPostProcessor && !(bean instanceof BeanFactoryPostProcessor)) {
+            // Bean factory post-processors are covered by their phase.
+            this.postProcessorNanos += totalNanos;
+        }
+        this.beanTimings.add(new BeanTiming(beanName, bean.getClass().getName(), totalNanos, selfNanos, postProcessor));
+    }
+
+    @Override
+    public synchronized long getTotalTimeMillis() {
+        long total = 0;
+        for (long nanos : this.phaseNanos.values()) {
+            total += nanos;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(total);
+    }
+
+    @Override
+    public synchronized Map<String, Long> getPhaseTimesMillis() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : this.phaseNanos.entrySet()) {
+            result.put(entry.getKey(), TimeUnit.NANOSECONDS.toMillis(entry.getValue()));
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized int getInstantiatedBeanCount() {
+        return this.instantiatedBeanCount;
+    }
+
+    private synchronized void recordCallbacks(long nanos) {
+        if (!this.complete) {
+            this.postProcessorCallbackNanos += nanos;
+        }
+    }
+
+    @Override
+    public synchronized long getPostProcessorTimeMillis() {
+        long phaseNanos = this.phaseNanos.getOrDefault(POST_PROCESS_BEAN_FACTORY_PHASE, 0L);
+        return TimeUnit.NANOSECONDS.toMillis(phaseNanos + this.postProcessorNanos + this.postProcessorCallbackNanos);
+    }
+
+    @Override
+    public synchronized List<BeanTiming> getSlowestBeans() {
+        if (!this.complete) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(this.beanTimings);
+    }
+
+    @Override
+    public String toJson() {
+        StringBuilder json = new StringBuilder(512);
+        json.append("{\"servletName\":").append(quote(this.servletName));
+        json.append(",\"modulePrefix\":").append(quote(this.modulePrefix));
+        json.append(",\"totalTimeMillis\":").append(getTotalTimeMillis());
+        json.append(",\"phases\":{");
+        Iterator<Map.Entry<String, Long>> phases = getPhaseTimesMillis().entrySet().iterator();
+        while (phases.hasNext()) {
+            Map.Entry<String, Long> phase = phases.next();
+            json.append(quote(phase.getKey())).append(':').append(phase.getValue());
+            if (phases.hasNext()) {
+                json.append(',');
+            }
+        }
+        json.append("},\"instantiatedBeanCount\":").append(getInstantiatedBeanCount());
+        json.append(",\"postProcessorTimeMillis\":").append(getPostProcessorTimeMillis());
+        json.append(",\"slowestBeans\":[");
+        Iterator<BeanTiming> beans = getSlowestBeans().iterator();
+        while (beans.hasNext()) {
+            BeanTiming bean = beans.next();
+            json.append("{\"beanName\":").append(quote(bean.getBeanName()));
+            json.append(",\"beanType\":").append(quote(bean.getBeanType()));
+            json.append(",\"totalTimeMicros\":").append(bean.getTotalTimeMicros());
+            json.append(",\"selfTimeMicros\":").append(bean.getSelfTimeMicros());
+            json.append(",\"postProcessor\":").append(bean.isPostProcessor()).append('}');
+            if (beans.hasNext()) {
+                json.append(',');
+            }
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+
+    /**
+     * A bean currently being created on the current thread.
+     */
+    private static class BeanFrame {
+
+        private final String beanName;
+
+        private final long startTime;
+
+        private long dependencyNanos;
+
+        BeanFrame(String beanName, long startTime) {
+            this.beanName = beanName;
+            this.startTime = startTime;
+        }
+    }
+
+
+    /**
+     * Records the time from before instantiation to after initialization of
+     * each bean. Frames of beans whose creation failed get discarded once an
+     * enclosing bean completes.
+     */
+    private class BeanTimingPostProcessor extends InstantiationAwareBeanPostProcessorAdapter {
+
+        @Override
+        public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) {
+            if (!complete) {
+                beansInCreation.get().push(new BeanFrame(beanName, System.nanoTime()));
+            }
+            return null;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (complete) {
+                beansInCreation.remove();
+                callbacksInProgress.remove();
+                return bean;
+            }
+            Deque<BeanFrame> frames = beansInCreation.get();
+            if (frames.stream().noneMatch(frame -> frame.beanName.equals(beanName))) {
+                // An object exposed by a FactoryBean, or a bean created before recording started.
+                return bean;
+            }
+            BeanFrame frame = frames.pop();
+            while (!frame.beanName.equals(beanName)) {
+                frame = frames.pop();
+            }
+            long totalNanos = System.nanoTime() - frame.startTime;
+            BeanFrame enclosing = frames.peek();
+            if (enclosing != null) {
+                enclosing.dependencyNanos += totalNanos;
+            }
+            recordBean(beanName, bean, totalNanos, totalNanos - frame.dependencyNanos);
+            callbacksInProgress.get().put(beanName, System.nanoTime());
+            return bean;
+        }
+    }
+
+
+    /**
+     * Records the time from the after-initialization callback of the
+     * BeanTimingPostProcessor to its own, for each bean recorded by the
+     * former. Beans created before this post-processor got registered are
+     * discarded once the report is complete.
+     */
+    private class CallbackTimingPostProcessor extends InstantiationAwareBeanPostProcessorAdapter {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (complete) {
+                callbacksInProgress.remove();
+                return bean;
+            }
+            Long callbacksStart = callbacksInProgress.get().remove(beanName);
+            if (callbacksStart != null) {
+                recordCallbacks(System.nanoTime() - callbacksStart);
+            }
+            return bean;
+        }
+    }
+
+
+    /**
+     * Instantiation time of a single bean.
+     */
+    public static class BeanTiming {
+
+        private final String beanName;
+
+        private final String beanType;
+
+        private final long totalNanos;
+
+        private final long selfNanos;
+
+        private final boolean postProcessor;
+
+        BeanTiming(String beanName, String beanType, long totalNanos, long selfNanos, boolean postProcessor) {
+            this.beanName = beanName;
+            this.beanType = beanType;
+            this.totalNanos = totalNanos;
+            this.selfNanos = selfNanos;
+            this.postProcessor = postProcessor;
+        }
+
+        /**
+         * @return the name of the bean
+         */
+        public String getBeanName() {
+            return this.beanName;
+        }
+
+        /**
+         * @return the class name of the bean instance
+         */
+        public String getBeanType() {
+            return this.beanType;
+        }
+
+        /**
+         * @return the time from before instantiation to after initialization,
+         * in microseconds, including the dependencies created along the way
+         */
+        public long getTotalTimeMicros() {
+            return TimeUnit.NANOSECONDS.toMicros(this.totalNanos);
+        }
+
+        /**
+         * @return the time spent on the bean itself, in microseconds,
+         * excluding the dependencies created along the way
+         */
+        public long getSelfTimeMicros() {
+            return TimeUnit.NANOSECONDS.toMicros(this.selfNanos);
+        }
+
+        /**
+         * @return whether the bean is a bean (factory) post-processor
+         */
+        public boolean isPostProcessor() {
+            return this.postProcessor;
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JMX management interface of {@link StartupReport}, registered per
+ * Struts module by ContextLoaderPlugIn.
+ *
+ * @see ContextLoaderPlugIn#setCollectStartupReport
+ * @since 1.0.1
+ */
+public interface StartupReportMXBean {
+
+    /**
+     * Return the accumulated duration of all startup phases, in milliseconds.
+     * @return the total startup time
+     */
+    long getTotalTimeMillis();
+
+    /**
+     * Return the duration of each startup phase, in milliseconds,
+     * in the order the phases ran.
+     * @return the duration per phase
+     */
+    Map<String, Long> getPhaseTimesMillis();
+
+    /**
+     * Return the number of beans instantiated while the report was recorded.
+     * @return the number of instantiated beans
+     */
+    int getInstantiatedBeanCount();
+
+    /**
+     * Return the time spent on post-processors, in milliseconds: instantiating
+     * and invoking bean factory post-processors, instantiating bean
+     * post-processors, and running their after-initialization callbacks.
+     * @return the post-processor time
+     */
+    long getPostProcessorTimeMillis();
+
+    /**
+     * Return the beans that took longest to instantiate, slowest first.
+     * @return the timings of the slowest beans
+     */
+    List<StartupReport.BeanTiming> getSlowestBeans();
+
+    /**
+     * Render the report as JSON document.
+     * @return the JSON representation of the report
+     */
+    String toJson();
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares a Struts {@code Action} class as Spring-managed Action bean for
+ * the given mapping path and module, without any XML bean definition.
+ *
+ * <pre class="code">
+ * &#064;StrutsActionBean(path = "/login", module = "/mymodule")
+ * public class MyAction extends Action {
+ *     ...
+ * }</pre>
+ *
+ * The {@link StrutsActionBeanIndexer} annotation processor records annotated
+ * classes in a {@code META-INF/struts-actions.properties} index when they get
+ * compiled. ContextLoaderPlugIn registers the indexed Action beans of its
+ * module when "registerIndexedActions" is set, reading that index instead of
+ * scanning the classpath.
+ *
+ * <p>The Action bean is named after the module prefix plus the mapping path,
+ * as {@link DefaultActionBeanNameResolver} expects it. Modules that resolve
+ * bean names through a different {@link ActionBeanNameResolver} need to
+ * define their Action beans in the context configuration instead.
+ *
+ * @see StrutsActionBeanIndex
+ * @see ContextLoaderPlugIn#setRegisterIndexedActions
+ * @since 1.0.1
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface StrutsActionBean {
+
+    /**
+     * The mapping path of the action, e.g. "/login".
+     * @return the mapping path
+     */
+    String path();
+
+    /**
+     * The prefix of the Struts module the action belongs to,
+     * e.g. "/mymodule"; "" for the default module.
+     * @return the module prefix
+     */
+    String module() default "";
+
+    /**
+     * The scope of the Action bean, e.g. "prototype" or "pooled".
+     * Default is "singleton".
+     * @return the scope of the Action bean
+     */
+    String scope() default "singleton";
+
+}
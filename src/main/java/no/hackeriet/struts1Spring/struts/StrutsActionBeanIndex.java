@@ -0,0 +1,193 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.core.io.UrlResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Index of the {@link StrutsActionBean} classes found on the classpath, read
+ * from the {@code META-INF/struts-actions.properties} files that the
+ * {@link StrutsActionBeanIndexer} writes at build time.
+ *
+ * <p>Each entry maps a bean name (module prefix plus mapping path) to the Action
+ * class name, the module prefix and the bean scope, separated by commas:
+ *
+ * <pre class="code">/mymodule/login=myapp.MyAction,/mymodule,singleton</pre>
+ *
+ * Indexes are loaded once per ClassLoader, merging all index files found.
+ *
+ * @see ContextLoaderPlugIn#setRegisterIndexedActions
+ * @since 1.0.1
+ */
+public class StrutsActionBeanIndex {
+
+    /**
+     * Location of the index files, relative to the classpath root.
+     */
+    public static final String INDEX_LOCATION = "META-INF/struts-actions.properties";
+
+
+    private static final Log logger = LogFactory.getLog(StrutsActionBeanIndex.class);
+
+    private static final ConcurrentMap<ClassLoader, StrutsActionBeanIndex> cache = new ConcurrentReferenceHashMap<>();
+
+    private final List<Entry> entries;
+
+
+    private StrutsActionBeanIndex(List<Entry> entries) {
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+
+    /**
+     * Load the index for the given ClassLoader, merging all index files
+     * visible to it. The result is cached per ClassLoader.
+     *
+     * @param classLoader the ClassLoader to load the index files with
+     * @return the index (never {@code null}, but possibly empty)
+     * @throws IllegalArgumentException if an index file could not be read
+     */
+    public static StrutsActionBeanIndex loadIndex(ClassLoader classLoader) throws IllegalArgumentException {
+        return cache.computeIfAbsent(classLoader, StrutsActionBeanIndex::doLoadIndex);
+    }
+
+    private static StrutsActionBeanIndex doLoadIndex(ClassLoader classLoader) {
+        List<Entry> entries = new ArrayList<>();
+        try {
+            Enumeration<URL> urls = classLoader.getResources(INDEX_LOCATION);
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+                Properties properties = PropertiesLoaderUtils.loadProperties(new UrlResource(url));
+                for (Map.Entry<Object, Object> property : properties.entrySet()) {
+                    entries.add(parseEntry((String) property.getKey(), (String) property.getValue(), url));
+                }
+            }
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Unable to load Struts Action index from location [" +
+                    INDEX_LOCATION + "]", ex);
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Loaded " + entries.size() + " indexed Struts Action beans");
+        }
+        return new StrutsActionBeanIndex(entries);
+    }
+
+    private static Entry parseEntry(String beanName, String value, URL url) {
+        String[] fields = StringUtils.commaDelimitedListToStringArray(value);
+        if (fields.length != 3 || !StringUtils.hasText(fields[0])) {
+            throw new IllegalArgumentException("Invalid Struts Action index entry '" + beanName + "=" + value +
+                    "' in [" + url + "]");
+        }
+        return new Entry(beanName, fields[0].trim(), fields[1].trim(), fields[2].trim());
+    }
+
+
+    /**
+     * Return all indexed Action beans.
+     * @return the indexed Action beans
+     */
+    public List<Entry> getActionBeans() {
+        return this.entries;
+    }
+
+    /**
+     * Return the indexed Action beans of the given Struts module.
+     *
+     * @param modulePrefix the module prefix ("" for the default module)
+     * @return the indexed Action beans of the module
+     */
+    public List<Entry> getActionBeans(String modulePrefix) {
+        List<Entry> result = new ArrayList<>();
+        for (Entry entry : this.entries) {
+            if (entry.getModule().equals(modulePrefix)) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * A single indexed Action bean.
+     */
+    public static class Entry {
+
+        private final String beanName;
+
+        private final String className;
+
+        private final String module;
+
+        private final String scope;
+
+        Entry(String beanName, String className, String module, String scope) {
+            this.beanName = beanName;
+            this.className = className;
+            this.module = module;
+            this.scope = scope;
+        }
+
+        /**
+         * @return the bean name: module prefix plus mapping path
+         */
+        public String getBeanName() {
+            return this.beanName;
+        }
+
+        /**
+         * @return the fully qualified name of the Action class
+         */
+        public String getClassName() {
+            return this.className;
+        }
+
+        /**
+         * @return the module prefix ("" for the default module)
+         */
+        public String getModule() {
+            return this.module;
+        }
+
+        /**
+         * @return the scope of the Action bean
+         */
+        public String getScope() {
+            return this.scope;
+        }
+
+        @Override
+        public String toString() {
+            return this.beanName + "=" + this.className + "," + this.module + "," + this.scope;
+        }
+    }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2002-2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package no.hackeriet.struts1Spring.struts;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Annotation processor that writes the {@link StrutsActionBeanIndex} for all
+ * classes annotated with {@link StrutsActionBean} in the current compilation.
+ *
+ * <p>An index already present in the class output, as left by a previous
+ * incremental compilation, gets merged: its entries are kept for classes
+ * that still exist and have not been compiled again, so that compiling a
+ * subset of the sources does not drop the Action beans of the others.
+ *
+ * <p>Bean names are indexed as module prefix plus mapping path, the names
+ * that {@link DefaultActionBeanNameResolver} determines for the mappings.
+ * Modules that use a different {@link ActionBeanNameResolver} do not find
+ * indexed Action beans under the names they look up.
+ *
+ * <p>Registered through {@code META-INF/services}, so that the Java compiler
+ * picks it up automatically when this library is on the classpath. Annotated
+ * classes have to be concrete top-level or static nested classes, and the
+ * mapping path has to start with a slash.
+ *
+ * @see StrutsActionBeanIndex#INDEX_LOCATION
+ * @since 1.0.1
+ */
+public class StrutsActionBeanIndexer extends AbstractProcessor {
+
+    private final TreeMap<String, String> entries = new TreeMap<>();
+
+    private final Set<String> compiledTypes = new HashSet<>();
+
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(StrutsActionBean.class.getName());
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getRootElements()) {
+            addCompiledTypes(element);
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(StrutsActionBean.class)) {
+            addEntry(element, element.getAnnotation(StrutsActionBean.class));
+        }
+        if (roundEnv.processingOver()) {
+            Properties previous = readIndex();
+            if (previous != null) {
+                mergeEntries(previous);
+            }
+            if (previous != null || !this.entries.isEmpty()) {
+                writeIndex();
+            }
+        }
+        return false;
+    }
+
+    private void addCompiledTypes(Element element) {
+        if (element instanceof TypeElement) {
+            this.compiledTypes.add(processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString());
+            for (Element enclosed : element.getEnclosedElements()) {
+                addCompiledTypes(enclosed);
+            }
+        }
+    }
+
+    private void addEntry(Element element, StrutsActionBean annotation) {
+        if (element.getKind() != ElementKind.CLASS || element.getModifiers().contains(Modifier.ABSTRACT) ||
+                (element.getEnclosingElement().getKind() != ElementKind.PACKAGE &&
+                        !element.getModifiers().contains(Modifier.STATIC))) {
+            error(element, "@StrutsActionBean is only supported on concrete top-level or static nested classes");
+            return;
+        }
+        if (!annotation.path().startsWith("/")) {
+            error(element, "@StrutsActionBean path must start with '/': " + annotation.path());
+            return;
+        }
+        String beanName = annotation.module() + annotation.path();
+        String className = processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString();
+        String previous = this.entries.put(
+                beanName, className + "," + annotation.module() + "," + annotation.scope());
+        if (previous != null) {
+            error(element, "Duplicate @StrutsActionBean for bean name '" + beanName + "': " + previous);
+        }
+    }
+
+    private void mergeEntries(Properties previous) {
+        for (Map.Entry<Object, Object> entry : previous.entrySet()) {
+            String beanName = (String) entry.getKey();
+            String value = (String) entry.getValue();
+            String className = value.split(",", 2)[0];
+            // Compiled again: up to date in this compilation. Not found anymore: removed since.
+            if (this.compiledTypes.contains(className) ||
+                    processingEnv.getElementUtils().getTypeElement(className.replace('$', '.')) == null) {
+                continue;
+            }
+            String current = this.entries.putIfAbsent(beanName, value);
+            if (current != null) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Duplicate @StrutsActionBean for bean name '" + beanName + "': " + value);
+            }
+        }
+    }
+
+    private Properties readIndex() {
+        try {
+            FileObject file = processingEnv.getFiler().getResource(
+                    StandardLocation.CLASS_OUTPUT, "", StrutsActionBeanIndex.INDEX_LOCATION);
+            Properties properties = new Properties();
+            try (InputStream in = file.openInputStream()) {
+                properties.load(in);
+            }
+            return properties;
+        } catch (IOException ex) {
+            // No index from a previous compilation.
+            return null;
+        }
+    }
+
+    private void writeIndex() {
+        Properties properties = new Properties();
+        properties.putAll(this.entries);
+        try {
+            FileObject file = processingEnv.getFiler().createResource(
+                    StandardLocation.CLASS_OUTPUT, "", StrutsActionBeanIndex.INDEX_LOCATION);
+            try (OutputStream out = file.openOutputStream()) {
+                properties.store(out, null);
+            }
+        } catch (IOException ex) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to write Struts Action index: " + ex);
+        }
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+}
@@ -16,26 +16,88 @@
 
 package no.hackeriet.struts1Spring.struts;
 
+import org.apache.struts.Globals;
+import org.apache.struts.action.Action;
+import org.apache.struts.action.ActionForm;
 import org.apache.struts.action.ActionForward;
 import org.apache.struts.action.ActionMapping;
+import org.apache.struts.action.ActionMessage;
+import org.apache.struts.action.ActionMessages;
 import org.apache.struts.action.ActionServlet;
+import org.apache.struts.config.ActionConfig;
+import org.apache.struts.config.FormBeanConfig;
+import org.apache.struts.config.ForwardConfig;
 import org.apache.struts.config.ModuleConfig;
+import org.apache.struts.config.impl.ModuleConfigImpl;
+import org.apache.struts.util.MessageResources;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.FatalBeanException;
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.UnsatisfiedDependencyException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.ApplicationContextException;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockServletContext;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.Errors;
+import org.springframework.validation.MapBindingResult;
 import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
 import org.springframework.web.context.support.StaticWebApplicationContext;
 
+import javax.annotation.Resource;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.servlet.ServletContext;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -333,4 +395,1518 @@ public class StrutsSupportTest {
         plugin.destroy();
         assertNull(testAction.getServlet());
     }
+
+    @Test
+    public void delegatingActionProxyCachesDelegatesUntilRefresh() throws Exception {
+        final MockServletContext servletContext = new MockServletContext();
+        ActionServlet actionServlet = new ActionServlet() {
+            @Override
+            public String getInitParameter(String name) {
+                return null;
+            }
+
+            @Override
+            public ServletContext getServletContext() {
+                return servletContext;
+            }
+        };
+        StaticWebApplicationContext wac = new StaticWebApplicationContext();
+        wac.setServletContext(servletContext);
+        wac.registerSingleton("/test", TestAction.class);
+        wac.refresh();
+        servletContext.setAttribute(ContextLoaderPlugIn.SERVLET_CONTEXT_PREFIX, wac);
+        DelegatingActionProxy proxy = new DelegatingActionProxy();
+        proxy.setServlet(actionServlet);
+        ActionMapping mapping = new ActionMapping();
+        mapping.setPath("/test");
+        mapping.setModuleConfig(new ModuleConfigImpl(""));
+
+        // Resolved once, and kept until the context gets refreshed.
+        Action delegate = proxy.getDelegateAction(mapping);
+        assertSame(wac.getBean("/test"), delegate);
+        wac.removeBeanDefinition("/test");
+        wac.registerSingleton("/test", ResettableTestAction.class);
+        assertSame(delegate, proxy.getDelegateAction(mapping));
+        wac.publishEvent(new ContextRefreshedEvent(wac));
+        Action refreshed = proxy.getDelegateAction(mapping);
+        assertTrue(refreshed instanceof ResettableTestAction);
+        assertSame(refreshed, proxy.getDelegateAction(mapping));
+
+        // Resolved against the context published in place of a closed one.
+        wac.close();
+        StaticWebApplicationContext replacement = new StaticWebApplicationContext();
+        replacement.setServletContext(servletContext);
+        replacement.registerSingleton("/test", TestAction.class);
+        replacement.refresh();
+        servletContext.setAttribute(ContextLoaderPlugIn.SERVLET_CONTEXT_PREFIX, replacement);
+        assertSame(replacement.getBean("/test"), proxy.getDelegateAction(mapping));
+        proxy.setServlet(null);
+        replacement.close();
+    }
+
+    @Test
+    public void delegatingRequestProcessorWithPrecomputedDelegates() throws Exception {
+        final MockServletContext servletContext = new MockServletContext("/org/springframework/web/struts/");
+        ContextLoaderPlugIn plugin = new ContextLoaderPlugIn();
+        ActionServlet actionServlet = new ActionServlet() {
+            @Override
+            public String getServletName() {
+                return "action";
+            }
+
+            @Override
+            public String getInitParameter(String name) {
+                return (DelegatingActionUtils.PARAM_PRECOMPUTE_DELEGATES.equals(name) ? "true" : null);
+            }
+
+            @Override
+            public ServletContext getServletContext() {
+                return servletContext;
+            }
+        };
+
+        ModuleConfig moduleConfig = mock(ModuleConfig.class);
+        when(moduleConfig.getPrefix()).thenReturn("");
+        ActionMapping mapping = new ActionMapping();
+        mapping.setPath("/test");
+        mapping.setModuleConfig(moduleConfig);
+        ActionMapping unmapped = new ActionMapping();
+        unmapped.setPath("/unmapped");
+        unmapped.setModuleConfig(moduleConfig);
+        when(moduleConfig.findActionConfigs()).thenReturn(new ActionConfig[] {mapping, unmapped});
+
+        plugin.init(actionServlet, moduleConfig);
+        DelegatingRequestProcessor processor = new DelegatingRequestProcessor();
+        processor.init(actionServlet, moduleConfig);
+
+        assertSame(plugin.getWebApplicationContext().getBean("/test"), processor.getDelegateAction(mapping));
+        assertNull(processor.getDelegateAction(unmapped));
+
+        processor.destroy();
+        plugin.destroy();
+    }
+
+    @Test
+    public void delegatingRequestProcessorReleasesToObtainingDelegate() throws Exception {
+        final MockServletContext servletContext = new MockServletContext();
+        ActionServlet actionServlet = new ActionServlet() {
+            @Override
+            public String getInitParameter(String name) {
+                return null;
+            }
+
+            @Override
+            public ServletContext getServletContext() {
+                return servletContext;
+            }
+        };
+        StaticWebApplicationContext wac = new StaticWebApplicationContext();
+        wac.setServletContext(servletContext);
+        PooledActionScope scope = new PooledActionScope(1);
+        wac.getBeanFactory().registerScope(PooledActionScope.SCOPE_NAME, scope);
+        RootBeanDefinition bd = new RootBeanDefinition(ResettableTestAction.class);
+        bd.setScope(PooledActionScope.SCOPE_NAME);
+        wac.registerBeanDefinition("/pooled", bd);
+        wac.refresh();
+        servletContext.setAttribute(ContextLoaderPlugIn.SERVLET_CONTEXT_PREFIX, wac);
+        ModuleConfig moduleConfig = new ModuleConfigImpl("");
+        ActionMapping mapping = new ActionMapping();
+        mapping.setPath("/pooled");
+        mapping.setModuleConfig(moduleConfig);
+        DelegatingRequestProcessor processor = new DelegatingRequestProcessor();
+        processor.init(actionServlet, moduleConfig);
+
+        // The bean is gone by the time the Action has been executed: released all the same.
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ResettableTestAction action = (ResettableTestAction) processor.processActionCreate(request, response, mapping);
+        wac.removeBeanDefinition("/pooled");
+        wac.publishEvent(new ContextRefreshedEvent(wac));
+        processor.processActionPerform(request, response, action, null, mapping);
+        assertEquals(1, action.resets);
+        assertNull(processor.getDelegateAction(mapping));
+
+        processor.destroy();
+        wac.close();
+    }
+
+    @Test
+    public void delegatingRequestProcessorWithoutDelegateCache() throws Exception {
+        final MockServletContext servletContext = new MockServletContext();
+        ActionServlet actionServlet = new ActionServlet() {
+            @Override
+            public String getInitParameter(String name) {
+                return (DelegatingActionUtils.PARAM_CACHE_DELEGATES.equals(name) ? "false" : null);
+            }
+
+            @Override
+            public ServletContext getServletContext() {
+                return servletContext;
+            }
+        };
+        StaticWebApplicationContext wac = new StaticWebApplicationContext();
+        wac.setServletContext(servletContext);
+        wac.refresh();
+        servletContext.setAttribute(ContextLoaderPlugIn.SERVLET_CONTEXT_PREFIX, wac);
+        ModuleConfig moduleConfig = new ModuleConfigImpl("");
+        ActionMapping mapping = new ActionMapping();
+        mapping.setPath("/test");
+        mapping.setModuleConfig(moduleConfig);
+        DelegatingRequestProcessor processor = new DelegatingRequestProcessor();
+        processor.init(actionServlet, moduleConfig);
+
+        // Looked up on each request: a bean registered without a refresh is seen right away.
+        assertNull(processor.getDelegateAction(mapping));
+        wac.registerSingleton("/test", TestAction.class);
+        assertSame(wac.getBean("/test"), processor.getDelegateAction(mapping));
+
+        // A destroyed processor does not follow reloads of its context any further.
+        processor.destroy();
+        StaticWebApplicationContext replacement = new StaticWebApplicationContext();
+        replacement.setServletContext(servletContext);
+        replacement.refresh();
+        wac.publishEvent(new ModuleContextReplacedEvent(wac, replacement));
+        assertSame(wac, processor.getWebApplicationContext());
+        replacement.close();
+        wac.close();
+    }
+
+    @Test
+    public void actionDelegateCacheRemembersUnmappedActions() {
+        StaticWebApplicationContext wac = new StaticWebApplicationContext();
+        wac.setServletContext(new MockServletContext());
+        ActionDelegateCache cache = new ActionDelegateCache();
+        wac.addApplicationListener(cache);
+        wac.refresh();
+
+        ActionMapping mapping = new ActionMapping();
+        mapping.setPath("/unmapped");
+        int[] resolutions = new int[1];
+        for (int i = 0; i < 3; i++) {
+            assertNull(cache.getActionDelegate(mapping, m -> {
+                resolutions[0]++;
+                return DelegatingActionUtils.resolveActionDelegate(wac, m.getPath());
+            }));
+        }
+        assertEquals(1, resolutions[0]);
+
+        wac.registerSingleton("/unmapped", TestAction.class);
+        wac.publishEvent(new ContextRefreshedEvent(wac));
+        ActionDelegate delegate = cache.getActionDelegate(
+                mapping, m -> DelegatingActionUtils.resolveActionDelegate(wac, m.getPath()));
+        assertSame(wac.getBean("/unmapped"), delegate.getAction());
+        wac.close();
+    }
+
+    @Test
+    public void actionInstanceRegistryCreatesEachActionOnce() throws Exception {
+        ActionServlet actionServlet = new ActionServlet() {
+            @Override
+            public MessageResources getInternal() {
+                return MessageResources.getMessageResources("org.apache.struts.action.ActionResources");
+            }
+        };
+        ActionInstanceRegistry registry = new ActionInstanceRegistry(actionServlet);
+        ActionMapping mapping = new ActionMapping();
+        mapping.setPath("/test");
+        mapping.setType(TestAction.class.getName());
+
+        Action action = registry.getAction(mapping, new MockHttpServletResponse());
+        assertSame(actionServlet, action.getServlet());
+        assertSame(action, registry.getAction(mapping, new MockHttpServletResponse()));
+
+        ActionMapping invalid = new ActionMapping();
+        invalid.setPath("/invalid");
+        invalid.setType("no.hackeriet.struts1Spring.struts.NoSuchAction");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertNull(registry.getAction(invalid, response));
+        assertEquals(500, response.getStatus());
+
+        registry.destroy();
+        assertNull(action.getServlet());
+    }
+
+    @Test
+    public void webApplicationContextResolvedFromRegistry() throws Exception {
+        final MockServletContext servletContext = new MockServletContext("/org/springframework/web/struts/");
+        ContextLoaderPlugIn plugin = new ContextLoaderPlugIn();
+        ActionServlet actionServlet = new ActionServlet() {
+            @Override
+            public String getServletName() {
+                return "action";
+            }
+
+            @Override
+            public ServletContext getServletContext() {
+                return servletContext;
+            }
+        };
+
+        ModuleConfig defaultModuleConfig = mock(ModuleConfig.class);
+        when(defaultModuleConfig.getPrefix()).thenReturn("");
+        ModuleConfig moduleConfig = mock(ModuleConfig.class);
+        when(moduleConfig.getPrefix()).thenReturn("/module");
+
+        plugin.init(actionServlet, defaultModuleConfig);
+        servletContext.removeAttribute(ContextLoaderPlugIn.SERVLET_CONTEXT_PREFIX);
+
+        WebApplicationContext wac = plugin.getWebApplicationContext();
+        assertSame(wac, DelegatingActionUtils.getWebApplicationContext(actionServlet, defaultModuleConfig));
+        assertSame(wac, DelegatingActionUtils.getWebApplicationContext(actionServlet, moduleConfig));
+        assertSame(wac, DelegatingActionUtils.getWebApplicationContext(actionServlet, null));
+
+        // Attributes are not read while contexts are registered for the ServletContext.
+        StaticWebApplicationContext moduleContext = new StaticWebApplicationContext();
+        servletContext.setAttribute(ContextLoaderPlugIn.SERVLET_CONTEXT_PREFIX + "/module", moduleContext);
+        assertSame(wac, DelegatingActionUtils.getWebApplicationContext(actionServlet, moduleConfig));
+
+        plugin.destroy();
+        assertSame(moduleContext, DelegatingActionUtils.getWebApplicationContext(actionServlet, moduleConfig));
+        servletContext.removeAttribute(ContextLoaderPlugIn.SERVLET_CONTEXT_PREFIX + "/module");
+        assertNull(DelegatingActionUtils.getWebApplicationContext(actionServlet, moduleConfig));
+    }
+
+    @Test
+    public void propertyActionBeanNameResolver() {
+        ModuleConfig moduleConfig = mock(ModuleConfig.class);
+        when(moduleConfig.getPrefix()).thenReturn("/module");
+        ActionMapping mapping = new ActionMapping();
+        mapping.setPath("/login");
+        mapping.setModuleConfig(moduleConfig);
+        ActionMapping named = new ActionMapping();
+        named.setPath("/logout");
+        named.setModuleConfig(moduleConfig);
+        named.setProperty(PropertyActionBeanNameResolver.BEAN_NAME_PROPERTY, "logoutAction");
+        when(moduleConfig.findActionConfigs()).thenReturn(new ActionConfig[] {mapping, named});
+
+        Map<ActionConfig, String> beanNames =
+                DelegatingActionUtils.determineActionBeanNames(new PropertyActionBeanNameResolver(), moduleConfig);
+        assertEquals("/module/login", beanNames.get(mapping));
+        assertEquals("logoutAction", beanNames.get(named));
+    }
+
+    @Test
+    public void classNameAndAnnotationActionBeanNameResolvers() {
+        ModuleConfig moduleConfig = new ModuleConfigImpl("/module");
+        ActionMapping plain = new ActionMapping();
+        plain.setPath("/plain");
+        plain.setType(TestAction.class.getName());
+        plain.setModuleConfig(moduleConfig);
+        ActionMapping named = new ActionMapping();
+        named.setPath("/named");
+        named.setType(NamedTestAction.class.getName());
+        named.setModuleConfig(moduleConfig);
+        ActionMapping proxied = new ActionMapping();
+        proxied.setPath("/proxied");
+        proxied.setType(DelegatingActionProxy.class.getName());
+        proxied.setModuleConfig(moduleConfig);
+        moduleConfig.addActionConfig(plain);
+        moduleConfig.addActionConfig(named);
+        moduleConfig.addActionConfig(proxied);
+
+        Map<ActionConfig, String> beanNames =
+                DelegatingActionUtils.determineActionBeanNames(new ClassNameActionBeanNameResolver(), moduleConfig);
+        assertEquals("testAction", beanNames.get(plain));
+        assertEquals("strutsSupportTest.NamedTestAction", beanNames.get(named));
+        assertEquals("/module/proxied", beanNames.get(proxied));
+
+        AnnotationActionBeanNameResolver annotationResolver = new AnnotationActionBeanNameResolver();
+        annotationResolver.setFallbackResolver(new ClassNameActionBeanNameResolver());
+        beanNames = DelegatingActionUtils.determineActionBeanNames(annotationResolver, moduleConfig);
+        assertEquals("testAction", beanNames.get(plain));
+        assertEquals("namedAction", beanNames.get(named));
+        assertEquals("/module/proxied", beanNames.get(proxied));
+
+        ActionMapping unknown = new ActionMapping();
+        unknown.setPath("/unknown");
+        unknown.setType("myapp.UnknownAction");
+        unknown.setModuleConfig(moduleConfig);
+        assertThrows(IllegalArgumentException.class, () -> annotationResolver.determineActionBeanName(unknown));
+    }
+
+    @Test
+    public void contextLoaderPlugInWarmsUpActions() throws Exception {
+        final MockServletContext servletContext = new MockServletContext("/org/springframework/web/struts/");
+        ActionServlet actionServlet = new ActionServlet() {
+            @Override
+            public String getServletName() {
+                return "action";
+            }
+
+            @Override
+            public ServletContext getServletContext() {
+                return servletContext;
+            }
+        };
+        servletContext.setAttribute(Globals.SERVLET_KEY, "*.do");
+        ModuleConfig moduleConfig = new ModuleConfigImpl("");
+        ForwardConfig home = new ForwardConfig("home", "/plain.do", false);
+        moduleConfig.addForwardConfig(home);
+        ActionConfig mapping = new ActionConfig();
+        mapping.setPath("/test");
+        mapping.setType(SubclassedActionProxy.class.getName());
+        ForwardConfig forward = new ForwardConfig();
+        forward.setName("success");
+        mapping.addForwardConfig(forward);
+        mapping.addForwardConfig(new ForwardConfig("next", "/plain.do?step=2", false));
+        mapping.addForwardConfig(new ForwardConfig("page", "/page.jsp", false));
+        ForwardConfig inherited = new ForwardConfig();
+        inherited.setName("inherited");
+        inherited.setExtends("home");
+        mapping.addForwardConfig(inherited);
+        moduleConfig.addActionConfig(mapping);
+        ActionConfig missing = new ActionConfig();
+        missing.setPath("/missing");
+        missing.setType(SubclassedActionProxy.class.getName());
+        ForwardConfig unknown = new ForwardConfig();
+        unknown.setName("unknown");
+        unknown.setExtends("nowhere");
+        missing.addForwardConfig(unknown);
+        missing.addForwardConfig(new ForwardConfig("stale", "/removed.do", false));
+        moduleConfig.addActionConfig(missing);
+        ActionConfig plain = new ActionConfig();
+        plain.setPath("/plain");
+        plain.setType(TestAction.class.getName());
+        moduleConfig.addActionConfig(plain);
+        ActionConfig cyclic = new ActionConfig();
+        cyclic.setPath("/cyclic");
+        cyclic.setExtends("/cyclicParent");
+        moduleConfig.addActionConfig(cyclic);
+        ActionConfig cyclicParent = new ActionConfig();
+        cyclicParent.setPath("/cyclicParent");
+        cyclicParent.setExtends("/cyclic");
+        moduleConfig.addActionConfig(cyclicParent);
+
+        ContextLoaderPlugIn plugin = new ContextLoaderPlugIn();
+        plugin.setWarmUpActions(true);
+        plugin.init(actionServlet, moduleConfig);
+        List<String> problems = plugin.warmUpActions();
+        assertEquals(6, problems.size());
+        assertTrue(problems.get(0).contains("forward 'success' has no path"));
+        assertTrue(problems.get(1).contains("no Action bean named '/missing'"));
+        assertTrue(problems.subList(2, 4).stream().anyMatch(problem ->
+                problem.contains("forward 'unknown' extends unknown forward 'nowhere'")));
+        assertTrue(problems.subList(2, 4).stream().anyMatch(problem ->
+                problem.contains("forward 'stale' refers to unknown action path '/removed'")));
+        assertTrue(problems.get(4).contains("'/cyclic'") && problems.get(4).contains("cyclic extends"));
+        assertTrue(problems.get(5).contains("'/cyclicParent'") && problems.get(5).contains("cyclic extends"));
+        plugin.destroy();
+
+        ContextLoaderPlugIn failingPlugin = new ContextLoaderPlugIn();
+        failingPlugin.setWarmUpActions(true);
+        failingPlugin.setFailOnInvalidActions(true);
+        assertThrows(ApplicationContextException.class, () -> failingPlugin.init(actionServlet, moduleConfig));
+    }
+
+    @Test
+    public void contextLoaderPlugInRefreshesModuleContextsInParallel() throws Exception {
+        final MockServletContext servletContext = new MockServletContext("/org/springframework/web/struts/WEB-INF");
+        ActionServlet actionServlet = new ActionServlet() {
+            @Override
+            public String getServletName() {
+                return "action";
+            }
+
+            @Override
+            public ServletContext getServletContext() {
+                return servletContext;
+            }
+        };
+        List<ContextLoaderPlugIn> plugins = new ArrayList<>();
+        Map<String, WebApplicationContext> initLookups = Collections.synchronizedMap(new HashMap<>());
+        Thread initThread = Thread.currentThread();
+        for (String prefix : new String[] {"", "/module", "/broken"}) {
+            ContextLoaderPlugIn plugin = new ContextLoaderPlugIn() {
+                @Override
+                protected void onInit() {
+                    // On the calling thread, once the context has been refreshed.
+                    assertSame(initThread, Thread.currentThread());
+                    initLookups.put(getModulePrefix(),
+                            DelegatingActionUtils.getRequiredWebApplicationContext(actionServlet, getModuleConfig()));
+                }
+            };
+            assertThrows(IllegalArgumentException.class, () -> plugin.setMaxRefreshThreads(0));
+            plugin.setContextConfigLocation(prefix.equals("/broken") ? "missing.xml" : "action-servlet.xml");
+            plugin.setParallelRefresh(true);
+            plugin.setMaxRefreshThreads(2);
+            plugin.setCollectActionMetrics(true);
+            if (prefix.equals("/broken")) {
+                // A refresh failure fails the initialization of the PlugIn.
+                assertThrows(BeanDefinitionStoreException.class,
+                        () -> plugin.init(actionServlet, new ModuleConfigImpl(prefix)));
+                continue;
+            }
+            plugin.init(actionServlet, new ModuleConfigImpl(prefix));
+            assertNotNull(DelegatingActionUtils.getActionMetrics(servletContext, prefix));
+            plugins.add(plugin);
+        }
+
+        WebApplicationContext moduleContext =
+                DelegatingActionUtils.getRequiredWebApplicationContext(actionServlet, new ModuleConfigImpl("/module"));
+        assertSame(plugins.get(1).getWebApplicationContext(), moduleContext);
+        assertTrue(((ConfigurableApplicationContext) moduleContext).isActive());
+        assertNotNull(moduleContext.getBean("/test"));
+        assertSame(moduleContext, servletContext.getAttribute(ContextLoaderPlugIn.SERVLET_CONTEXT_PREFIX + "/module"));
+        assertSame(plugins.get(0).getWebApplicationContext(),
+                DelegatingActionUtils.getRequiredWebApplicationContext(actionServlet, new ModuleConfigImpl("/other")));
+        assertSame(plugins.get(0).getWebApplicationContext(),
+                DelegatingActionUtils.getRequiredWebApplicationContext(actionServlet, new ModuleConfigImpl("/broken")));
+        for (ContextLoaderPlugIn plugin : plugins) {
+            plugin.destroy();
+        }
+        assertSame(moduleContext, initLookups.get("/module"));
+        assertEquals(2, initLookups.size());
+        assertFalse(((ConfigurableApplicationContext) moduleContext).isActive());
+    }
+
+    @Test
+    public void contextLoaderPlugInWarmsUpLazySingletonsInBackground() throws Exception {
+        final MockServletContext servletContext = new MockServletContext("/org/springframework/web/struts/");
+        ActionServlet actionServlet = new ActionServlet() {
+            @Override
+            public String getServletName() {
+                return "action";
+            }
+
+            @Override
+            public ServletContext getServletContext() {
+                return servletContext;
+            }
+        };
+        ContextLoaderPlugIn plugin = new ContextLoaderPlugIn();
+        plugin.setLazyInit(true);
+        plugin.init(actionServlet, new ModuleConfigImpl(""));
+        ConfigurableListableBeanFactory beanFactory =
+                ((ConfigurableApplicationContext) plugin.getWebApplicationContext()).getBeanFactory();
+        assertTrue(beanFactory.getBeanDefinition("/test").isLazyInit());
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!(beanFactory.containsSingleton("/test") && beanFactory.containsSingleton("/module/test2")) &&
+                System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(beanFactory.containsSingleton("/test"));
+        assertTrue(beanFactory.containsSingleton("/module/test2"));
+        plugin.destroy();
+    }
+
+    @Test
+    public void contextLoaderPlugInPublishesStartupReport() throws Exception {
+        final MockServletContext servletContext = new MockServletContext("/org/springframework/web/struts/");
+        ActionServlet actionServlet = new ActionServlet() {
+            @Override
+            public String getServletName() {
+                return "action";
+            }
+
+            @Override
+            public ServletContext getServletContext() {
+                return servletContext;
+            }
+        };
+        ContextLoaderPlugIn plugin = new ContextLoaderPlugIn();
+        plugin.setCollectStartupReport(true);
+        plugin.setStartupReportBeans(1);
+        plugin.init(actionServlet, new ModuleConfigImpl(""));
+
+        StartupReport report = (StartupReport) servletContext.getAttribute(StartupReport.SERVLET_CONTEXT_PREFIX);
+        assertNotNull(report);
+        assertTrue(report.isComplete());
+        assertEquals(Arrays.asList("createContext", "loadBeanDefinitions",
+                "loadBeanDefinitions:/WEB-INF/action-servlet.xml", "postProcessBeanFactory",
+                "instantiateSingletons", "publishContext", "onInit"),
+                new ArrayList<>(report.getPhaseTimesMillis().keySet()));
+        assertEquals(2, report.getInstantiatedBeanCount());
+        assertEquals(1, report.getSlowestBeans().size());
+        assertTrue(report.getSlowestBeans().get(0).getBeanName().contains("test"));
+        assertTrue(report.toJson().startsWith("{\"servletName\":\"action\",\"modulePrefix\":\"\""));
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName("no.hackeriet.struts1Spring.struts:type=StartupReport," +
+                "context=\"\",servlet=\"action\",module=\"\"");
+        assertEquals(2, server.getAttribute(objectName, "InstantiatedBeanCount"));
+        plugin.destroy();
+        assertFalse(server.isRegistered(objectName));
+        assertNull(servletContext.getAttribute(StartupReport.SERVLET_CONTEXT_PREFIX));
+    }
+
+    @Test
+    public void contextLoaderPlugInSharesParentContextAcrossModules() throws Exception {
+        final MockServletContext servletContext = new MockServletContext("/org/springframework/web/struts/");
+        ActionServlet actionServlet = new ActionServlet() {
+            @Override
+            public String getServletName() {
+                return "action";
+            }
+
+            @Override
+            public ServletContext getServletContext() {
+                return servletContext;
+            }
+        };
+        ContextLoaderPlugIn plugin = new ContextLoaderPlugIn();
+        plugin.setContextConfigLocation("/WEB-INF/action-servlet.xml, /WEB-INF/shared-context.xml");
+        plugin.setSharedContextConfigLocation("/WEB-INF/shared-context.xml");
+        plugin.init(actionServlet, new ModuleConfigImpl(""));
+        ContextLoaderPlugIn modulePlugin = new ContextLoaderPlugIn();
+        modulePlugin.setSharedContextConfigLocation("/WEB-INF/shared-context.xml");
+        modulePlugin.init(actionServlet, new ModuleConfigImpl("/module"));
+
+        WebApplicationContext wac = plugin.getWebApplicationContext();
+        WebApplicationContext moduleWac = modulePlugin.getWebApplicationContext();
+        ConfigurableApplicationContext shared = (ConfigurableApplicationContext) wac.getParent();
+        assertNotNull(shared);
+        assertSame(shared, moduleWac.getParent());
+        assertFalse(wac.containsLocalBean("sharedList"));
+        assertTrue(wac.containsLocalBean("/test"));
+        assertSame(wac.getBean("sharedList"), moduleWac.getBean("sharedList"));
+
+        plugin.destroy();
+        assertTrue(shared.isActive());
+        modulePlugin.destroy();
+        assertFalse(shared.isActive());
+    }
+
+    @Test
+    public void springBindingActionFormResolvesLocaleWithoutSession() {
+        MessageResources messageResources = new MessageResources(null, null) {
+            @Override
+            public String getMessage(Locale locale, String key) {
+                return (Locale.FRENCH.equals(locale) && key.equals("required") ? "obligatoire" : null);
+            }
+        };
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addPreferredLocale(Locale.FRENCH);
+        request.setAttribute(Globals.MESSAGES_KEY, messageResources);
+        Errors errors = new MapBindingResult(new HashMap<>(), "form");
+        errors.reject("required");
+        SpringBindingActionForm form = new SpringBindingActionForm();
+        form.setSessionFreeLocale(true);
+        form.expose(errors, request);
+        assertNull(request.getSession(false));
+        ActionMessages actionMessages = (ActionMessages) request.getAttribute(Globals.ERROR_KEY);
+        ActionMessage message = (ActionMessage) actionMessages.get().next();
+        assertEquals("required", message.getKey());
+
+        // Through the init-param, and with the locale of an existing session.
+        ActionServlet actionServlet = new ActionServlet() {
+            @Override
+            public String getInitParameter(String name) {
+                return (DelegatingActionUtils.PARAM_SESSION_FREE_LOCALE.equals(name) ? "true" : null);
+            }
+        };
+        request = new MockHttpServletRequest();
+        request.setAttribute(Globals.MESSAGES_KEY, messageResources);
+        request.getSession().setAttribute(Globals.LOCALE_KEY, Locale.FRENCH);
+        form = new SpringBindingActionForm();
+        form.setServlet(actionServlet);
+        assertTrue(form.isSessionFreeLocale());
+        form.expose(errors, request);
+        actionMessages = (ActionMessages) request.getAttribute(Globals.ERROR_KEY);
+        assertEquals("required", ((ActionMessage) actionMessages.get().next()).getKey());
+    }
+
+    @Test
+    public void springBindingActionFormCachesMessageKeys() {
+        final List<String> lookups = new ArrayList<>();
+        MessageResources messageResources = new MessageResources(null, null) {
+            @Override
+            public String getMessage(Locale locale, String key) {
+                lookups.add(key);
+                return (key.equals("required") || key.equals("name") ? key + " message" : null);
+            }
+        };
+        for (int i = 0; i < 2; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest();
+            request.setAttribute(Globals.MESSAGES_KEY, messageResources);
+            new SpringBindingActionForm().expose(createNameErrors(), request);
+            ActionMessages actionMessages = (ActionMessages) request.getAttribute(Globals.ERROR_KEY);
+            ActionMessage message = (ActionMessage) actionMessages.get("name").next();
+            assertEquals("required", message.getKey());
+            assertEquals("name message", message.getValues()[0]);
+        }
+        // Looked up on the first request only, the argument code once for presence and once for the text.
+        assertEquals(Arrays.asList("required.form.name", "required.name", "required", "form.name", "name", "name"),
+                lookups);
+
+        SpringBindingActionForm.clearMessageKeyCache();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(Globals.MESSAGES_KEY, messageResources);
+        new SpringBindingActionForm().expose(createNameErrors(), request);
+        // Looked up again, the argument text from the message formats that MessageResources keeps itself.
+        assertEquals(Arrays.asList("required.form.name", "required.name", "required", "form.name", "name"),
+                lookups.subList(6, lookups.size()));
+    }
+
+    private static Errors createNameErrors() {
+        Errors errors = new MapBindingResult(new HashMap<>(), "form");
+        errors.rejectValue("name", "required",
+                new Object[] {new DefaultMessageSourceResolvable(new String[] {"form.name", "name"})}, null);
+        return errors;
+    }
+
+    @Test
+    public void contextLoaderPlugInCreatesAnnotationContextFromComponentsIndex() throws Exception {
+        Path dir = Files.createTempDirectory("struts-components-index");
+        Files.createDirectories(dir.resolve("META-INF"));
+        Files.write(dir.resolve("META-INF/spring.components"), Arrays.asList(
+                IndexedTestComponent.class.getName() + "=org.springframework.stereotype.Component"));
+        final MockServletContext servletContext = new MockServletContext("/org/springframework/web/struts/");
+        ActionServlet actionServlet = new ActionServlet() {
+            @Override
+            public String getServletName() {
+                return "action";
+            }
+
+            @Override
+            public ServletContext getServletContext() {
+                return servletContext;
+            }
+        };
+        ContextLoaderPlugIn plugin = new ContextLoaderPlugIn();
+        plugin.setAnnotatedClasses(AnnotationTestConfig.class.getName());
+        plugin.setBasePackages("no.hackeriet.struts1Spring.struts");
+        Thread thread = Thread.currentThread();
+        ClassLoader original = thread.getContextClassLoader();
+        thread.setContextClassLoader(new URLClassLoader(new URL[] {dir.toUri().toURL()}, original));
+        try {
+            plugin.init(actionServlet, new ModuleConfigImpl(""));
+        } finally {
+            thread.setContextClassLoader(original);
+        }
+
+        WebApplicationContext wac = plugin.getWebApplicationContext();
+        assertTrue(wac instanceof AnnotationConfigWebApplicationContext);
+        assertTrue(wac.getBean("configuredHelper") instanceof WiringHelper);
+        assertEquals(1, wac.getBeanNamesForType(IndexedTestComponent.class).length);
+        // Scanning the classpath would have found this one as well.
+        assertEquals(0, wac.getBeanNamesForType(UnindexedTestComponent.class).length);
+        plugin.destroy();
+
+        ContextLoaderPlugIn xmlPlugin = new ContextLoaderPlugIn();
+        xmlPlugin.setContextClass(CachingXmlWebApplicationContext.class);
+        xmlPlugin.setBasePackages("no.hackeriet.struts1Spring.struts");
+        assertThrows(ApplicationContextException.class,
+                () -> xmlPlugin.init(actionServlet, new ModuleConfigImpl("")));
+    }
+
+    @Test
+    public void contextLoaderPlugInDrainsRequestsOnDestroy() throws Exception {
+        final MockServletContext servletContext = new MockServletContext("/org/springframework/web/struts/");
+        ActionServlet actionServlet = new ActionServlet() {
+            @Override
+            public String getServletName() {
+                return "action";
+            }
+
+            @Override
+            public ServletContext getServletContext() {
+                return servletContext;
+            }
+        };
+        ContextLoaderPlugIn plugin = new ContextLoaderPlugIn();
+        plugin.init(actionServlet, new ModuleConfigImpl(""));
+        ConfigurableApplicationContext wac = (ConfigurableApplicationContext) plugin.getWebApplicationContext();
+        InFlightRequests inFlightRequests = InFlightRequests.getInstance((WebApplicationContext) wac);
+        inFlightRequests.enter();
+        Thread destroy = new Thread(plugin::destroy);
+        destroy.start();
+        destroy.join(200);
+        assertTrue(destroy.isAlive());
+        assertTrue(wac.isActive());
+        inFlightRequests.exit();
+        destroy.join(10000);
+        assertFalse(wac.isActive());
+        assertNull(InFlightRequests.getInstance((WebApplicationContext) wac));
+
+        // Once the timeout has elapsed, the context gets closed regardless.
+        plugin = new ContextLoaderPlugIn();
+        plugin.setDrainTimeout(100);
+        plugin.init(actionServlet, new ModuleConfigImpl(""));
+        wac = (ConfigurableApplicationContext) plugin.getWebApplicationContext();
+        InFlightRequests.getInstance((WebApplicationContext) wac).enter();
+        plugin.destroy();
+        assertFalse(wac.isActive());
+    }
+
+    @Test
+    public void contextLoaderPlugInReloadsContextAfterDrainingRequests() throws Exception {
+        Path dir = Files.createTempDirectory("struts-reload");
+        Path config = dir.resolve("action-servlet.xml");
+        writeReloadableConfig(config, "one");
+        final MockServletContext servletContext = new MockServletContext();
+        ActionServlet actionServlet = new ActionServlet() {
+            @Override
+            public String getServletName() {
+                return "action";
+            }
+
+            @Override
+            public String getInitParameter(String name) {
+                return null;
+            }
+
+            @Override
+            public ServletContext getServletContext() {
+                return servletContext;
+            }
+        };
+        ModuleConfig moduleConfig = new ModuleConfigImpl("");
+        ActionMapping mapping = new ActionMapping();
+        mapping.setPath("/test");
+        mapping.setModuleConfig(moduleConfig);
+        ContextLoaderPlugIn plugin = new ContextLoaderPlugIn();
+        plugin.setContextConfigLocation(config.toUri().toString());
+        plugin.setReloadOnChange(true);
+        plugin.setReloadDelay(50);
+        plugin.init(actionServlet, moduleConfig);
+        DelegatingRequestProcessor processor = new DelegatingRequestProcessor();
+        processor.init(actionServlet, moduleConfig);
+
+        // A reload waits for the requests in flight against the replaced context.
+        ConfigurableApplicationContext original = (ConfigurableApplicationContext) plugin.getWebApplicationContext();
+        InFlightRequests inFlightRequests = InFlightRequests.getInstance((WebApplicationContext) original);
+        inFlightRequests.enter();
+        Thread reload = new Thread(plugin::reloadWebApplicationContext);
+        reload.start();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (processor.getWebApplicationContext() == original && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        WebApplicationContext reloaded = plugin.getWebApplicationContext();
+        assertNotSame(original, reloaded);
+        assertSame(reloaded, processor.getWebApplicationContext());
+        assertSame(reloaded.getBean("/test"), processor.getDelegateAction(mapping));
+        assertSame(reloaded, servletContext.getAttribute(ContextLoaderPlugIn.SERVLET_CONTEXT_PREFIX));
+        Thread.sleep(50);
+        assertTrue(original.isActive());
+        inFlightRequests.exit();
+        reload.join(10000);
+        assertFalse(original.isActive());
+
+        // A config file change triggers a reload.
+        writeReloadableConfig(config, "two");
+        deadline = System.currentTimeMillis() + 10000;
+        while (processor.getWebApplicationContext() == reloaded && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("two", plugin.getWebApplicationContext().getBean("greeting"));
+        assertSame(plugin.getWebApplicationContext(), processor.getWebApplicationContext());
+
+        processor.destroy();
+        plugin.destroy();
+        assertFalse(((ConfigurableApplicationContext) plugin.getWebApplicationContext()).isActive());
+    }
+
+    @Test
+    public void contextLoaderPlugInKeepsContextIfProcessorFailsToSwitch() throws Exception {
+        Path dir = Files.createTempDirectory("struts-reload");
+        Path config = dir.resolve("action-servlet.xml");
+        writeReloadableConfig(config, "one");
+        final MockServletContext servletContext = new MockServletContext();
+        ActionServlet actionServlet = new ActionServlet() {
+            @Override
+            public String getServletName() {
+                return "action";
+            }
+
+            @Override
+            public String getInitParameter(String name) {
+                return null;
+            }
+
+            @Override
+            public ServletContext getServletContext() {
+                return servletContext;
+            }
+        };
+        ModuleConfig moduleConfig = new ModuleConfigImpl("");
+        ActionMapping mapping = new ActionMapping();
+        mapping.setPath("/test");
+        mapping.setModuleConfig(moduleConfig);
+        ContextLoaderPlugIn plugin = new ContextLoaderPlugIn();
+        plugin.setContextConfigLocation(config.toUri().toString());
+        plugin.init(actionServlet, moduleConfig);
+        AutowiringRequestProcessor switching = new AutowiringRequestProcessor();
+        switching.init(actionServlet, moduleConfig);
+        final List<WebApplicationContext> rejected = new ArrayList<>();
+        DelegatingRequestProcessor failing = new DelegatingRequestProcessor() {
+            @Override
+            protected ActionFormBeans initActionFormBeans(ActionServlet actionServlet, ModuleConfig moduleConfig) {
+                if (!rejected.isEmpty() && getWebApplicationContext() != rejected.get(0)) {
+                    rejected.add(getWebApplicationContext());
+                    throw new FatalBeanException("Cannot switch");
+                }
+                return super.initActionFormBeans(actionServlet, moduleConfig);
+            }
+        };
+        failing.init(actionServlet, moduleConfig);
+
+        // The processor that did switch gets switched back, and the reloaded context closed.
+        ConfigurableApplicationContext original = (ConfigurableApplicationContext) plugin.getWebApplicationContext();
+        Object delegate = failing.getDelegateAction(mapping);
+        rejected.add((WebApplicationContext) original);
+        assertFalse(plugin.reloadWebApplicationContext());
+        assertEquals(2, rejected.size());
+        assertSame(original, plugin.getWebApplicationContext());
+        assertSame(original, servletContext.getAttribute(ContextLoaderPlugIn.SERVLET_CONTEXT_PREFIX));
+        assertSame(original, switching.getWebApplicationContext());
+        assertSame(original, failing.getWebApplicationContext());
+        assertSame(delegate, failing.getDelegateAction(mapping));
+        assertTrue(original.isActive());
+        assertNotNull(InFlightRequests.getInstance((WebApplicationContext) original));
+        assertFalse(((ConfigurableApplicationContext) rejected.get(1)).isActive());
+        assertNull(InFlightRequests.getInstance(rejected.get(1)));
+
+        // Once the processor can switch again, a reload replaces the context for both processors.
+        rejected.clear();
+        assertTrue(plugin.reloadWebApplicationContext());
+        assertNotSame(original, plugin.getWebApplicationContext());
+        assertSame(plugin.getWebApplicationContext(), switching.getWebApplicationContext());
+        assertSame(plugin.getWebApplicationContext(), failing.getWebApplicationContext());
+        assertFalse(original.isActive());
+
+        switching.destroy();
+        failing.destroy();
+        plugin.destroy();
+    }
+
+    private static void writeReloadableConfig(Path config, String greeting) throws Exception {
+        Files.write(config, Arrays.asList(
+                "<!DOCTYPE beans PUBLIC \"-//SPRING//DTD BEAN 2.0//EN\" " +
+                        "\"http://www.springframework.org/dtd/spring-beans-2.0.dtd\">",
+                "<beans>",
+                "<bean name=\"/test\" class=\"no.hackeriet.struts1Spring.struts.TestAction\"/>",
+                "<bean name=\"greeting\" class=\"java.lang.String\"><constructor-arg value=\"" + greeting +
+                        "\"/></bean>",
+                "</beans>"));
+    }
+
+    @Test
+    public void cachingXmlWebApplicationContextRestoresParsedDefinitions() throws Exception {
+        Path dir = Files.createTempDirectory("struts-context");
+        String header = "<beans xmlns=\"http://www.springframework.org/schema/beans\" " +
+                "xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" " +
+                "xsi:schemaLocation=\"http://www.springframework.org/schema/beans " +
+                "http://www.springframework.org/schema/beans/spring-beans.xsd\">";
+        Files.write(dir.resolve("context.xml"), Arrays.asList(header,
+                "<import resource=\"imported.xml\"/>",
+                "<bean id=\"list\" class=\"java.util.ArrayList\"><constructor-arg><list>",
+                "<value>a</value><ref bean=\"name\"/>",
+                "<bean class=\"java.lang.String\"><constructor-arg value=\"inner\"/></bean>",
+                "</list></constructor-arg></bean>",
+                "<bean id=\"name\" class=\"java.lang.String\"><constructor-arg type=\"java.lang.String\" " +
+                        "value=\"cached\"/></bean>",
+                "<alias name=\"name\" alias=\"alias\"/>",
+                "</beans>"));
+        Path imported = dir.resolve("imported.xml");
+        Files.write(imported, Arrays.asList(header,
+                "<bean id=\"imported\" class=\"java.lang.String\"><constructor-arg value=\"one\"/></bean>",
+                "</beans>"));
+        File cacheDirectory = dir.resolve("cache").toFile();
+
+        CachingXmlWebApplicationContext wac = createCachingContext(dir, cacheDirectory);
+        assertTrue(wac.getRestoredResources().isEmpty());
+        assertEquals(1, cacheDirectory.list().length);
+        wac.close();
+
+        wac = createCachingContext(dir, cacheDirectory);
+        assertEquals(1, wac.getRestoredResources().size());
+        assertEquals(Arrays.asList("a", "cached", "inner"), wac.getBean("list"));
+        assertEquals("cached", wac.getBean("alias"));
+        assertEquals("one", wac.getBean("imported"));
+        wac.close();
+
+        Files.write(imported, Arrays.asList(header,
+                "<bean id=\"imported\" class=\"java.lang.String\"><constructor-arg value=\"two\"/></bean>",
+                "</beans>"));
+        wac = createCachingContext(dir, cacheDirectory);
+        assertTrue(wac.getRestoredResources().isEmpty());
+        assertEquals("two", wac.getBean("imported"));
+        wac.close();
+    }
+
+    @Test
+    public void cachingXmlWebApplicationContextKeepsAnnotationConfig() throws Exception {
+        Path dir = Files.createTempDirectory("struts-context");
+        Files.write(dir.resolve("context.xml"), Arrays.asList(
+                "<beans xmlns=\"http://www.springframework.org/schema/beans\" " +
+                        "xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" " +
+                        "xmlns:context=\"http://www.springframework.org/schema/context\" " +
+                        "xsi:schemaLocation=\"http://www.springframework.org/schema/beans " +
+                        "http://www.springframework.org/schema/beans/spring-beans.xsd " +
+                        "http://www.springframework.org/schema/context " +
+                        "http://www.springframework.org/schema/context/spring-context.xsd\">",
+                "<context:annotation-config/>",
+                "<bean id=\"first\" class=\"" + WiringHelper.class.getName() + "\"/>",
+                "<bean id=\"second\" class=\"" + WiringHelper.class.getName() + "\"/>",
+                "<bean id=\"valueBean\" class=\"" + AnnotationConfigTestBean.class.getName() + "\"/>",
+                "</beans>"));
+        File cacheDirectory = dir.resolve("cache").toFile();
+
+        for (int i = 0; i < 2; i++) {
+            CachingXmlWebApplicationContext wac = createCachingContext(dir, cacheDirectory);
+            assertEquals(i, wac.getRestoredResources().size());
+            AnnotationConfigTestBean bean = wac.getBean(AnnotationConfigTestBean.class);
+            assertEquals("forty-two", bean.value);
+            assertSame(wac.getBean("second"), bean.helper);
+            wac.close();
+        }
+    }
+
+    @Test
+    public void cachingXmlWebApplicationContextRejectsUntrustedCacheFiles() throws Exception {
+        Path dir = Files.createTempDirectory("struts-context");
+        Files.write(dir.resolve("context.xml"), Arrays.asList(
+                "<beans xmlns=\"http://www.springframework.org/schema/beans\" " +
+                        "xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" " +
+                        "xsi:schemaLocation=\"http://www.springframework.org/schema/beans " +
+                        "http://www.springframework.org/schema/beans/spring-beans.xsd\">",
+                "<bean id=\"name\" class=\"java.lang.String\"><constructor-arg value=\"parsed\"/></bean>",
+                "</beans>"));
+        File cacheDirectory = dir.resolve("cache").toFile();
+        createCachingContext(dir, cacheDirectory).close();
+        assertEquals(EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE,
+                PosixFilePermission.OWNER_EXECUTE), Files.getPosixFilePermissions(cacheDirectory.toPath()));
+
+        // Replace the definitions with another type, keeping the header intact.
+        File cacheFile = cacheDirectory.listFiles()[0];
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectInputStream in = new ObjectInputStream(
+                new GZIPInputStream(new FileInputStream(cacheFile)));
+             ObjectOutputStream out = new ObjectOutputStream(
+                     new GZIPOutputStream(bytes))) {
+            for (int i = 0; i < 4; i++) {
+                out.writeUTF(in.readUTF());
+            }
+            out.writeInt(in.readInt());
+            out.writeObject(new ArrayList<>(Collections.singletonList(new Date())));
+        }
+        Files.write(cacheFile.toPath(), bytes.toByteArray());
+        CachingXmlWebApplicationContext wac = createCachingContext(dir, cacheDirectory);
+        assertTrue(wac.getRestoredResources().isEmpty());
+        assertEquals("parsed", wac.getBean("name"));
+        wac.close();
+
+        // A cache directory that other users can write to is not used.
+        wac = createCachingContext(dir, cacheDirectory);
+        assertEquals(1, wac.getRestoredResources().size());
+        wac.close();
+        Files.setPosixFilePermissions(cacheDirectory.toPath(), PosixFilePermissions.fromString("rwxrwxrwx"));
+        wac = createCachingContext(dir, cacheDirectory);
+        assertTrue(wac.getRestoredResources().isEmpty());
+        wac.close();
+    }
+
+    private CachingXmlWebApplicationContext createCachingContext(Path dir, File cacheDirectory) {
+        CachingXmlWebApplicationContext wac = new CachingXmlWebApplicationContext();
+        wac.setServletContext(new MockServletContext());
+        wac.setConfigLocation(dir.resolve("context.xml").toUri().toString());
+        wac.setCacheDirectory(cacheDirectory);
+        wac.refresh();
+        return wac;
+    }
+
+    @Test
+    public void strutsActionBeanIndexRegisteredByContextLoaderPlugIn() throws Exception {
+        Path dir = Files.createTempDirectory("struts-actions");
+        Path source = dir.resolve("IndexedAction.java");
+        Files.write(source, Arrays.asList(
+                "@no.hackeriet.struts1Spring.struts.StrutsActionBean(path = \"/indexed\", scope = \"prototype\")",
+                "public class IndexedAction extends org.apache.struts.action.Action {}"));
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+        boolean compiled = compiler.getTask(null, fileManager, null,
+                Arrays.asList("-d", dir.toString(), "-proc:only", "-processor", StrutsActionBeanIndexer.class.getName()),
+                null, fileManager.getJavaFileObjects(source.toFile())).call();
+        assertTrue(compiled);
+        compiler.getTask(null, fileManager, null, Arrays.asList("-d", dir.toString(), "-proc:none"),
+                null, fileManager.getJavaFileObjects(source.toFile())).call();
+
+        ClassLoader classLoader = new URLClassLoader(new URL[] {dir.toUri().toURL()}, getClass().getClassLoader());
+        List<StrutsActionBeanIndex.Entry> entries = StrutsActionBeanIndex.loadIndex(classLoader).getActionBeans("");
+        assertEquals(1, entries.size());
+        assertEquals("/indexed", entries.get(0).getBeanName());
+        assertEquals("IndexedAction", entries.get(0).getClassName());
+
+        final MockServletContext servletContext = new MockServletContext("/org/springframework/web/struts/");
+        ActionServlet actionServlet = new ActionServlet() {
+            @Override
+            public String getServletName() {
+                return "action";
+            }
+
+            @Override
+            public ServletContext getServletContext() {
+                return servletContext;
+            }
+        };
+        ModuleConfig moduleConfig = mock(ModuleConfig.class);
+        when(moduleConfig.getPrefix()).thenReturn("");
+        ContextLoaderPlugIn plugin = new ContextLoaderPlugIn();
+        plugin.setRegisterIndexedActions(true);
+        Thread thread = Thread.currentThread();
+        ClassLoader original = thread.getContextClassLoader();
+        thread.setContextClassLoader(classLoader);
+        try {
+            plugin.init(actionServlet, moduleConfig);
+        } finally {
+            thread.setContextClassLoader(original);
+        }
+        WebApplicationContext wac = plugin.getWebApplicationContext();
+        assertTrue(wac.isPrototype("/indexed"));
+        assertEquals("IndexedAction", wac.getBean("/indexed").getClass().getName());
+        assertNotNull(((Action) wac.getBean("/indexed")).getServlet());
+        plugin.destroy();
+
+        // Compiling another class on its own keeps the entry of the class compiled before.
+        Path otherSource = dir.resolve("OtherAction.java");
+        Files.write(otherSource, Arrays.asList(
+                "@no.hackeriet.struts1Spring.struts.StrutsActionBean(path = \"/other\")",
+                "public class OtherAction extends org.apache.struts.action.Action {}"));
+        List<File> classPath = new ArrayList<>();
+        fileManager.getLocation(StandardLocation.CLASS_PATH).forEach(classPath::add);
+        classPath.add(dir.toFile());
+        fileManager.setLocation(StandardLocation.CLASS_PATH, classPath);
+        compiled = compiler.getTask(null, fileManager, null,
+                Arrays.asList("-d", dir.toString(), "-proc:only", "-processor", StrutsActionBeanIndexer.class.getName()),
+                null, fileManager.getJavaFileObjects(otherSource.toFile())).call();
+        assertTrue(compiled);
+        classLoader = new URLClassLoader(new URL[] {dir.toUri().toURL()}, getClass().getClassLoader());
+        entries = StrutsActionBeanIndex.loadIndex(classLoader).getActionBeans("");
+        assertEquals(2, entries.size());
+    }
+
+    @Test
+    public void delegatingActionProxyMappingsIncludeSubclasses() {
+        ActionMapping proxyMapping = new ActionMapping();
+        proxyMapping.setType(DelegatingActionProxy.class.getName());
+        ActionMapping subclassMapping = new ActionMapping();
+        subclassMapping.setType(SubclassedActionProxy.class.getName());
+        ActionMapping plainMapping = new ActionMapping();
+        plainMapping.setType(TestAction.class.getName());
+        assertTrue(DelegatingActionUtils.isDelegatingActionProxy(proxyMapping));
+        assertTrue(DelegatingActionUtils.isDelegatingActionProxy(subclassMapping));
+        assertFalse(DelegatingActionUtils.isDelegatingActionProxy(plainMapping));
+        assertFalse(DelegatingActionUtils.isDelegatingActionProxy(new ActionMapping()));
+    }
+
+    @Test
+    public void delegatingActionProxyRecordsActionMetrics() throws Exception {
+        final MockServletContext servletContext = new MockServletContext("/org/springframework/web/struts/");
+        ActionServlet actionServlet = new ActionServlet() {
+            @Override
+            public String getServletName() {
+                return "action";
+            }
+
+            @Override
+            public ServletContext getServletContext() {
+                return servletContext;
+            }
+        };
+        ModuleConfig moduleConfig = new ModuleConfigImpl("");
+        ContextLoaderPlugIn plugin = new ContextLoaderPlugIn();
+        plugin.setCollectActionMetrics(true);
+        plugin.init(actionServlet, moduleConfig);
+
+        DelegatingActionProxy proxy = new DelegatingActionProxy();
+        proxy.setServlet(actionServlet);
+        ActionMapping mapping = new ActionMapping();
+        mapping.setPath("/test");
+        mapping.setModuleConfig(moduleConfig);
+        for (int i = 0; i < 3; i++) {
+            proxy.execute(mapping, null, new MockHttpServletRequest(servletContext), new MockHttpServletResponse());
+        }
+
+        ActionMetrics actionMetrics = DelegatingActionUtils.getActionMetrics(servletContext, "");
+        List<ActionMetrics.MappingStatistics> statistics = actionMetrics.getMappingStatistics();
+        assertEquals(1, statistics.size());
+        assertEquals("/test", statistics.get(0).getPath());
+        assertEquals(3, statistics.get(0).getInvocationCount());
+        assertEquals(0, statistics.get(0).getErrorCount());
+        assertEquals(3, Arrays.stream(statistics.get(0).getHistogram()).sum());
+
+        MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName(
+                "no.hackeriet.struts1Spring.struts:type=ActionMetrics,context=\"\",servlet=\"action\",module=\"\"");
+        assertEquals(1, ((Object[]) mbeanServer.getAttribute(objectName, "MappingStatistics")).length);
+        proxy.setServlet(null);
+        plugin.destroy();
+        assertFalse(mbeanServer.isRegistered(objectName));
+        assertNull(DelegatingActionUtils.getActionMetrics(servletContext, ""));
+    }
+
+    @Test
+    public void autowiringRequestProcessorWiresEachActionOnce() throws Exception {
+        final MockServletContext servletContext = new MockServletContext();
+        StaticWebApplicationContext wac = new StaticWebApplicationContext();
+        wac.setServletContext(servletContext);
+        wac.registerSingleton("helper", WiringHelper.class);
+        wac.refresh();
+        servletContext.setAttribute(ContextLoaderPlugIn.SERVLET_CONTEXT_PREFIX, wac);
+        ActionServlet actionServlet = new ActionServlet() {
+            @Override
+            public String getInitParameter(String name) {
+                return null;
+            }
+
+            @Override
+            public ServletContext getServletContext() {
+                return servletContext;
+            }
+        };
+        ModuleConfig moduleConfig = new ModuleConfigImpl("");
+        AutowiringRequestProcessor processor = new AutowiringRequestProcessor();
+        processor.init(actionServlet, moduleConfig);
+        ActionMapping mapping = new ActionMapping();
+        mapping.setPath("/wired");
+        mapping.setType(WiredTestAction.class.getName());
+        mapping.setModuleConfig(moduleConfig);
+
+        WiredTestAction action = (WiredTestAction) processor.processActionCreate(
+                new MockHttpServletRequest(servletContext), new MockHttpServletResponse(), mapping);
+        assertSame(wac.getBean("helper"), action.helper);
+        assertSame(action, processor.processActionCreate(
+                new MockHttpServletRequest(servletContext), new MockHttpServletResponse(), mapping));
+        assertEquals(1, action.wirings);
+        processor.destroy();
+        wac.close();
+    }
+
+    @Test
+    public void autowiringRequestProcessorAppliesMappingAutowirePolicies() throws Exception {
+        final MockServletContext servletContext = new MockServletContext();
+        StaticWebApplicationContext wac = new StaticWebApplicationContext();
+        wac.setServletContext(servletContext);
+        wac.registerSingleton("helper", WiringHelper.class);
+        wac.registerSingleton("otherHelper", WiringHelper.class);
+        wac.refresh();
+        servletContext.setAttribute(ContextLoaderPlugIn.SERVLET_CONTEXT_PREFIX, wac);
+        ActionServlet actionServlet = new ActionServlet() {
+            @Override
+            public String getInitParameter(String name) {
+                return null;
+            }
+
+            @Override
+            public ServletContext getServletContext() {
+                return servletContext;
+            }
+        };
+        ModuleConfig moduleConfig = new ModuleConfigImpl("");
+        ActionMapping hotMapping = new ActionMapping();
+        hotMapping.setPath("/hot");
+        hotMapping.setType(WiredTestAction.class.getName());
+        hotMapping.setProperty(DelegatingActionUtils.PARAM_AUTOWIRE, DelegatingActionUtils.AUTOWIRE_NO);
+        moduleConfig.addActionConfig(hotMapping);
+        ActionMapping annotatedMapping = new ActionMapping();
+        annotatedMapping.setPath("/annotated");
+        annotatedMapping.setType(AnnotatedTestAction.class.getName());
+        annotatedMapping.setProperty(DelegatingActionUtils.PARAM_AUTOWIRE, DelegatingActionUtils.AUTOWIRE_ANNOTATION);
+        moduleConfig.addActionConfig(annotatedMapping);
+        AutowiringRequestProcessor processor = new AutowiringRequestProcessor();
+        processor.init(actionServlet, moduleConfig);
+
+        WiredTestAction hotAction = (WiredTestAction) processor.processActionCreate(
+                new MockHttpServletRequest(servletContext), new MockHttpServletResponse(), hotMapping);
+        assertNull(hotAction.helper);
+        assertEquals(0, hotAction.wirings);
+        AnnotatedTestAction annotatedAction = (AnnotatedTestAction) processor.processActionCreate(
+                new MockHttpServletRequest(servletContext), new MockHttpServletResponse(), annotatedMapping);
+        assertSame(wac.getBean("helper"), annotatedAction.helper);
+        assertSame(wac.getBean("otherHelper"), annotatedAction.otherHelper);
+        assertNull(annotatedAction.unannotatedHelper);
+        processor.destroy();
+        wac.close();
+
+        ModuleConfig invalidConfig = new ModuleConfigImpl("");
+        ActionMapping invalidMapping = new ActionMapping();
+        invalidMapping.setPath("/invalid");
+        invalidMapping.setProperty(DelegatingActionUtils.PARAM_AUTOWIRE, "sometimes");
+        invalidConfig.addActionConfig(invalidMapping);
+        assertThrows(IllegalArgumentException.class, () -> DelegatingActionUtils.determineAutowirePolicies(
+                invalidConfig, new ActionAutowirePolicy(AutowireCapableBeanFactory.AUTOWIRE_BY_TYPE, false, false)));
+    }
+
+    @Test
+    public void actionInjectionPlansWireByTypeAndByName() {
+        StaticWebApplicationContext wac = new StaticWebApplicationContext();
+        wac.registerSingleton("helper", WiringHelper.class);
+        wac.refresh();
+
+        ActionInjectionPlans byType = new ActionInjectionPlans(
+                wac.getBeanFactory(), AutowireCapableBeanFactory.AUTOWIRE_BY_TYPE, true);
+        wac.addApplicationListener(byType);
+        WiredTestAction action = new WiredTestAction();
+        byType.inject(action);
+        assertSame(wac.getBean("helper"), action.helper);
+        WiredTestAction otherAction = new WiredTestAction();
+        byType.inject(otherAction);
+        assertSame(wac.getBean("helper"), otherAction.helper);
+
+        ActionInjectionPlans byName = new ActionInjectionPlans(
+                wac.getBeanFactory(), AutowireCapableBeanFactory.AUTOWIRE_BY_NAME, false);
+        action = new WiredTestAction();
+        byName.inject(action);
+        assertSame(wac.getBean("helper"), action.helper);
+
+        StaticWebApplicationContext emptyWac = new StaticWebApplicationContext();
+        emptyWac.refresh();
+        ActionInjectionPlans checked = new ActionInjectionPlans(
+                emptyWac.getBeanFactory(), AutowireCapableBeanFactory.AUTOWIRE_BY_TYPE, true);
+        assertThrows(UnsatisfiedDependencyException.class, () -> checked.inject(new WiredTestAction()));
+        wac.close();
+        emptyWac.close();
+    }
+
+    @Test
+    public void autowiringRequestProcessorInjectsAnnotatedMembers() throws Exception {
+        final MockServletContext servletContext = new MockServletContext();
+        StaticWebApplicationContext wac = new StaticWebApplicationContext();
+        wac.setServletContext(servletContext);
+        wac.registerSingleton("helper", WiringHelper.class);
+        wac.registerSingleton("otherHelper", WiringHelper.class);
+        wac.refresh();
+        servletContext.setAttribute(ContextLoaderPlugIn.SERVLET_CONTEXT_PREFIX, wac);
+        ActionServlet actionServlet = new ActionServlet() {
+            @Override
+            public String getInitParameter(String name) {
+                return (DelegatingActionUtils.PARAM_AUTOWIRE.equals(name) ?
+                        DelegatingActionUtils.AUTOWIRE_ANNOTATION : null);
+            }
+
+            @Override
+            public ServletContext getServletContext() {
+                return servletContext;
+            }
+        };
+        ModuleConfig moduleConfig = new ModuleConfigImpl("");
+        AutowiringRequestProcessor processor = new AutowiringRequestProcessor();
+        processor.init(actionServlet, moduleConfig);
+        ActionMapping mapping = new ActionMapping();
+        mapping.setPath("/annotated");
+        mapping.setType(AnnotatedTestAction.class.getName());
+        mapping.setModuleConfig(moduleConfig);
+
+        AnnotatedTestAction action = (AnnotatedTestAction) processor.processActionCreate(
+                new MockHttpServletRequest(servletContext), new MockHttpServletResponse(), mapping);
+        assertSame(wac.getBean("helper"), action.helper);
+        assertSame(wac.getBean("otherHelper"), action.otherHelper);
+        assertNull(action.unannotatedHelper);
+
+        // The qualifier, rather than the field name, selects the bean; @Value is resolved too.
+        mapping = new ActionMapping();
+        mapping.setPath("/qualified");
+        mapping.setType(QualifiedTestAction.class.getName());
+        mapping.setModuleConfig(moduleConfig);
+        QualifiedTestAction qualifiedAction = (QualifiedTestAction) processor.processActionCreate(
+                new MockHttpServletRequest(servletContext), new MockHttpServletResponse(), mapping);
+        assertSame(wac.getBean("otherHelper"), qualifiedAction.helper);
+        assertEquals("forty-two", qualifiedAction.value);
+        processor.destroy();
+        wac.close();
+    }
+
+    @Test
+    public void delegatingRequestProcessorObtainsManagedForms() throws Exception {
+        final MockServletContext servletContext = new MockServletContext();
+        StaticWebApplicationContext wac = new StaticWebApplicationContext();
+        wac.setServletContext(servletContext);
+        wac.registerSingleton("helper", WiringHelper.class);
+        RootBeanDefinition bd = new RootBeanDefinition(WiredTestForm.class);
+        bd.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+        bd.getPropertyValues().add("helper", new RuntimeBeanReference("helper"));
+        wac.registerBeanDefinition("wiredForm", bd);
+        wac.refresh();
+        servletContext.setAttribute(ContextLoaderPlugIn.SERVLET_CONTEXT_PREFIX, wac);
+        ActionServlet actionServlet = new ActionServlet() {
+            @Override
+            public String getInitParameter(String name) {
+                return (DelegatingActionUtils.PARAM_MANAGED_FORMS.equals(name) ? "true" : null);
+            }
+
+            @Override
+            public ServletContext getServletContext() {
+                return servletContext;
+            }
+        };
+        ModuleConfig moduleConfig = new ModuleConfigImpl("");
+        FormBeanConfig wiredConfig = new FormBeanConfig();
+        wiredConfig.setName("wiredForm");
+        wiredConfig.setType(WiredTestForm.class.getName());
+        moduleConfig.addFormBeanConfig(wiredConfig);
+        FormBeanConfig plainConfig = new FormBeanConfig();
+        plainConfig.setName("plainForm");
+        plainConfig.setType(PlainTestForm.class.getName());
+        moduleConfig.addFormBeanConfig(plainConfig);
+        DelegatingRequestProcessor processor = new DelegatingRequestProcessor();
+        processor.init(actionServlet, moduleConfig);
+
+        MockHttpServletRequest request = new MockHttpServletRequest(servletContext);
+        ActionMapping wiredMapping = new ActionMapping();
+        wiredMapping.setPath("/wired");
+        wiredMapping.setName("wiredForm");
+        wiredMapping.setScope("request");
+        WiredTestForm wiredForm = (WiredTestForm) processor.processActionForm(
+                request, new MockHttpServletResponse(), wiredMapping);
+        assertSame(wac.getBean("helper"), wiredForm.helper);
+        assertSame(actionServlet, wiredForm.getActionServlet());
+        assertSame(wiredForm, request.getAttribute("wiredForm"));
+        assertSame(wiredForm, processor.processActionForm(request, new MockHttpServletResponse(), wiredMapping));
+        assertNotSame(wiredForm, processor.processActionForm(
+                new MockHttpServletRequest(servletContext), new MockHttpServletResponse(), wiredMapping));
+
+        ActionMapping plainMapping = new ActionMapping();
+        plainMapping.setPath("/plain");
+        plainMapping.setName("plainForm");
+        plainMapping.setScope("session");
+        ActionForm plainForm = processor.processActionForm(request, new MockHttpServletResponse(), plainMapping);
+        assertTrue(plainForm instanceof PlainTestForm);
+        assertSame(plainForm, request.getSession().getAttribute("plainForm"));
+        processor.destroy();
+        wac.close();
+    }
+
+    @Test
+    public void pooledActionScopeRecyclesInstances() {
+        StaticWebApplicationContext wac = new StaticWebApplicationContext();
+        wac.setServletContext(new MockServletContext());
+        PooledActionScope scope = new PooledActionScope(1);
+        wac.addApplicationListener(scope);
+        wac.getBeanFactory().registerScope(PooledActionScope.SCOPE_NAME, scope);
+        RootBeanDefinition bd = new RootBeanDefinition(ResettableTestAction.class);
+        bd.setScope(PooledActionScope.SCOPE_NAME);
+        wac.registerBeanDefinition("/pooled", bd);
+        wac.refresh();
+
+        ActionDelegate delegate = ActionDelegate.forBean(wac, "/pooled");
+        ResettableTestAction action = (ResettableTestAction) delegate.getAction();
+        ResettableTestAction concurrentAction = (ResettableTestAction) delegate.getAction();
+        assertNotSame(action, concurrentAction);
+        delegate.releaseAction(action);
+        delegate.releaseAction(concurrentAction);
+        assertEquals(1, action.resets);
+        assertSame(action, delegate.getAction());
+        assertNotSame(concurrentAction, delegate.getAction());
+        wac.close();
+    }
+
+
+    public static class ResettableTestAction extends TestAction implements ResettableAction {
+
+        private int resets;
+
+        @Override
+        public void reset() {
+            this.resets++;
+        }
+    }
+
+
+    public static class SubclassedActionProxy extends DelegatingActionProxy {
+    }
+
+
+    public static class WiringHelper {
+    }
+
+
+    public static class WiredTestForm extends ActionForm {
+
+        private WiringHelper helper;
+
+        public void setHelper(WiringHelper helper) {
+            this.helper = helper;
+        }
+
+        ActionServlet getActionServlet() {
+            return getServlet();
+        }
+    }
+
+
+    public static class PlainTestForm extends ActionForm {
+    }
+
+
+    public static class WiredTestAction extends Action {
+
+        private WiringHelper helper;
+
+        private int wirings;
+
+        public void setHelper(WiringHelper helper) {
+            this.helper = helper;
+            this.wirings++;
+        }
+    }
+
+
+    public static class QualifiedTestAction extends Action {
+
+        @Autowired
+        @Qualifier("otherHelper")
+        private WiringHelper helper;
+
+        @Value("forty-two")
+        private String value;
+    }
+
+
+    public static class AnnotationConfigTestBean {
+
+        @Value("forty-two")
+        private String value;
+
+        @Autowired
+        @Qualifier("second")
+        private WiringHelper helper;
+    }
+
+
+    @Configuration
+    public static class AnnotationTestConfig {
+
+        @Bean
+        public WiringHelper configuredHelper() {
+            return new WiringHelper();
+        }
+    }
+
+
+    @Component
+    public static class IndexedTestComponent {
+    }
+
+
+    @Component
+    public static class UnindexedTestComponent {
+    }
+
+
+    @Component("namedAction")
+    public static class NamedTestAction extends Action {
+    }
+
+
+    public static class AnnotatedTestAction extends Action {
+
+        @Autowired
+        @Qualifier("helper")
+        private WiringHelper helper;
+
+        private WiringHelper otherHelper;
+
+        private WiringHelper unannotatedHelper;
+
+        @Resource(name = "otherHelper")
+        public void setOtherHelper(WiringHelper otherHelper) {
+            this.otherHelper = otherHelper;
+        }
+
+        public void setUnannotatedHelper(WiringHelper unannotatedHelper) {
+            this.unannotatedHelper = unannotatedHelper;
+        }
+    }
+
 }